@@ -0,0 +1,174 @@
+package works.hacker.benchmarks;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.closure.ClosureNode;
+import works.hacker.model.closure.ClosureNodeRelation;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.model.farey.FareyNode;
+import works.hacker.model.path.PathNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.classic.MpttTreeImporter;
+import works.hacker.mptt.closure.ClosureRepository;
+import works.hacker.mptt.dyadic.DyadicEntity;
+import works.hacker.mptt.dyadic.DyadicTreeImporter;
+import works.hacker.mptt.path.PathEntity;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.closure.ClosureNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+import works.hacker.repo.farey.FareyNodeRepository;
+import works.hacker.repo.path.PathNodeRepository;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+
+/**
+ * The benchmarked engines - with the entities and repositories of the {@code works.hacker.model} and
+ * {@code works.hacker.repo} packages.
+ * <p>
+ * The classic and the dyadic trees are imported by their {@link works.hacker.mptt.TreeImporter}; the others are
+ * built node by node via {@link TreeRepository#addChild}, thus their setup takes longer.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public enum Engine {
+  CLASSIC(MpttNode.class, MpttNodeRepository.class) {
+    @Override
+    public Long importTree(DataSource dataSource, TreeRepository treeRepo, TreeShape.Tree tree) throws Exception {
+      return new MpttTreeImporter(dataSource, getTable()).importTree(tree.records());
+    }
+  },
+
+  DYADIC(DyadicNode.class, DyadicNodeRepository.class) {
+    @Override
+    public Long importTree(DataSource dataSource, TreeRepository treeRepo, TreeShape.Tree tree) throws Exception {
+      return new DyadicTreeImporter(dataSource, getTable()).importTree(tree.records());
+    }
+
+    @Override
+    public void ensureCapacity(TreeShape.Tree tree) {
+      if (tree.dyadicBits() > DyadicEntity.SCALE_BITS) {
+        throw new IllegalStateException(String.format(
+            "Tree needs denominators of %d bits - the dyadic engine supports up to %d bits",
+            tree.dyadicBits(), DyadicEntity.SCALE_BITS));
+      }
+    }
+  },
+
+  FAREY(FareyNode.class, FareyNodeRepository.class) {
+    @Override
+    public void ensureCapacity(TreeShape.Tree tree) {
+      try {
+        tree.fareyDenominator();
+      } catch (ArithmeticException e) {
+        throw new IllegalStateException("Tree needs denominators beyond long - as supported by the Farey engine", e);
+      }
+    }
+  },
+
+  PATH(PathNode.class, PathNodeRepository.class) {
+    @Override
+    public void ensureCapacity(TreeShape.Tree tree) {
+      if ((tree.depth() + 1) * PathEntity.SEGMENT_LENGTH > PathEntity.MAX_PATH_LENGTH) {
+        throw new IllegalStateException(String.format(
+            "Tree is %d levels deep - the path engine supports up to %d levels",
+            tree.depth(), PathEntity.MAX_PATH_LENGTH / PathEntity.SEGMENT_LENGTH - 1));
+      }
+      if (tree.maxChildren() > PathEntity.MAX_ORDINAL) {
+        throw new IllegalStateException(String.format(
+            "Tree has nodes of %d children - the path engine supports up to %d children",
+            tree.maxChildren(), PathEntity.MAX_ORDINAL));
+      }
+    }
+  },
+
+  CLOSURE(ClosureNode.class, ClosureNodeRepository.class) {
+    @Override
+    public void configure(TreeRepository treeRepo) {
+      super.configure(treeRepo);
+      ((ClosureRepository) treeRepo).setRelationClass(ClosureNodeRelation.class);
+    }
+
+    @Override
+    public void ensureCapacity(TreeShape.Tree tree) {
+      if (tree.closureRows() > MAX_CLOSURE_ROWS) {
+        throw new IllegalStateException(String.format(
+            "Tree needs %d relation rows - more than the %d benchmarked in memory",
+            tree.closureRows(), MAX_CLOSURE_ROWS));
+      }
+    }
+  };
+
+  /**
+   * The max size of the closure table kept in the in-memory database - e.g. the {@code DEEP} trees of a million
+   * nodes need half a billion relation rows.
+   */
+  public static final long MAX_CLOSURE_ROWS = 10_000_000L;
+
+  private final Class<? extends TreeEntity> entityClass;
+  private final Class<? extends JpaRepository> repositoryClass;
+
+  Engine(Class<? extends TreeEntity> entityClass, Class<? extends JpaRepository> repositoryClass) {
+    this.entityClass = entityClass;
+    this.repositoryClass = repositoryClass;
+  }
+
+  public Class<? extends TreeEntity> getEntityClass() {
+    return entityClass;
+  }
+
+  public Class<? extends JpaRepository> getRepositoryClass() {
+    return repositoryClass;
+  }
+
+  public TreeTable getTable() {
+    return new TreeTable(entityClass.getSimpleName());
+  }
+
+  /**
+   * Sets the entity classes of the repository.
+   */
+  public void configure(TreeRepository treeRepo) {
+    treeRepo.setEntityClass(entityClass);
+  }
+
+  /**
+   * Stores the tree - by default node by node, in pre-order, via {@link TreeRepository#addChild}. Thus only the
+   * path from the root to the current node is kept, and the parents are not read again - which holds for the
+   * engines, which do not change the existing nodes when adding a child.
+   *
+   * @return the id of the tree
+   */
+  public Long importTree(DataSource dataSource, TreeRepository treeRepo, TreeShape.Tree tree) throws Exception {
+    var records = tree.records();
+    var record = records.next();
+    var root = (TreeEntity) treeRepo.createNode(record.getName());
+    var treeId = treeRepo.startTree(root);
+
+    var externalIds = new ArrayDeque<String>();
+    var path = new ArrayDeque<TreeEntity>();
+    externalIds.push(record.getExternalId());
+    path.push(root);
+    while (records.hasNext()) {
+      record = records.next();
+      while (!externalIds.peek().equals(record.getParentExternalId())) {
+        externalIds.pop();
+        path.pop();
+      }
+      var child = (TreeEntity) treeRepo.createNode(record.getName());
+      treeRepo.addChild(path.peek(), child);
+      externalIds.push(record.getExternalId());
+      path.push(child);
+    }
+    return treeId;
+  }
+
+  /**
+   * Checks whether the engine can store the tree. Does nothing by default.
+   *
+   * @throws IllegalStateException in case it can not
+   */
+  public void ensureCapacity(TreeShape.Tree tree) {
+  }
+}
@@ -0,0 +1,45 @@
+package works.hacker.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import works.hacker.mptt.TreeEntity;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The finders of the {@link works.hacker.mptt.TreeRepository} - each invocation on the next node of the sample.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeReadBenchmark {
+  @Benchmark
+  public List<TreeEntity> findChildren(TreeState tree) {
+    return tree.treeRepo.findChildren(tree.nextNode());
+  }
+
+  @Benchmark
+  public List<TreeEntity> findSubTree(TreeState tree) {
+    return tree.treeRepo.findSubTree(tree.nextNode());
+  }
+
+  @Benchmark
+  public List<TreeEntity> findAncestors(TreeState tree) {
+    return tree.treeRepo.findAncestors(tree.nextNode());
+  }
+
+  @Benchmark
+  public Optional<TreeEntity> findParent(TreeState tree) {
+    return tree.treeRepo.findParent(tree.nextNode());
+  }
+}
@@ -0,0 +1,223 @@
+package works.hacker.benchmarks;
+
+import works.hacker.mptt.TreeImporter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * The shapes of the benchmarked trees - node {@code 0} is the root, and every other node has a parent with a
+ * lower number.
+ */
+public enum TreeShape {
+  /**
+   * Two levels with a fan-out of {@code sqrt(size)} - e.g. categories and their items.
+   */
+  WIDE {
+    @Override
+    protected int[] parents(int size, Random random) {
+      var fanOut = (int) Math.ceil(Math.sqrt(size));
+      var parents = new int[size];
+      for (var i = 1; i < size; i++) {
+        parents[i] = i <= fanOut ? 0 : 1 + (i - fanOut - 1) % fanOut;
+      }
+      return parents;
+    }
+  },
+
+  /**
+   * Chains of {@value #CHAIN_LENGTH} nodes below the root - e.g. threads of replies.
+   */
+  DEEP {
+    @Override
+    protected int[] parents(int size, Random random) {
+      var parents = new int[size];
+      for (var i = 1; i < size; i++) {
+        parents[i] = (i - 1) % CHAIN_LENGTH == 0 ? 0 : i - 1;
+      }
+      return parents;
+    }
+  },
+
+  /**
+   * A random recursive tree - every node is attached to a uniformly chosen preceding node.
+   */
+  RANDOM {
+    @Override
+    protected int[] parents(int size, Random random) {
+      var parents = new int[size];
+      for (var i = 1; i < size; i++) {
+        parents[i] = random.nextInt(i);
+      }
+      return parents;
+    }
+  };
+
+  public static final int CHAIN_LENGTH = 1000;
+
+  protected abstract int[] parents(int size, Random random);
+
+  /**
+   * Generates a tree of this shape.
+   *
+   * @param size the number of nodes
+   * @param seed the seed of the random shapes; the same seed generates the same tree
+   * @return the tree
+   */
+  public Tree generate(int size, long seed) {
+    if (size < 1) throw new IllegalArgumentException("Size must be positive");
+    return new Tree(parents(size, new Random(seed)));
+  }
+
+  /**
+   * A generated tree as arrays of the children per node - thus compact enough for a million nodes.
+   */
+  public static class Tree {
+    private final int[] parents;
+    private final int[] firstChild;
+    private final int[] children;
+
+    protected Tree(int[] parents) {
+      this.parents = parents;
+      var size = parents.length;
+
+      // the children of node i are children[firstChild[i]..firstChild[i + 1]), in ascending order
+      firstChild = new int[size + 1];
+      for (var i = 1; i < size; i++) {
+        firstChild[parents[i] + 1]++;
+      }
+      for (var i = 0; i < size; i++) {
+        firstChild[i + 1] += firstChild[i];
+      }
+      children = new int[size];
+      var next = firstChild.clone();
+      for (var i = 1; i < size; i++) {
+        children[next[parents[i]]++] = i;
+      }
+    }
+
+    public int size() {
+      return parents.length;
+    }
+
+    /**
+     * @return the max number of bits of the denominators, when the tree is stored as dyadic fractions - every
+     * child takes one more bit than its parent, plus one per preceding sibling
+     */
+    public int dyadicBits() {
+      var bits = new int[size()];
+      var max = 0;
+      for (var node = 0; node < size(); node++) {
+        for (var i = firstChild[node]; i < firstChild[node + 1]; i++) {
+          bits[children[i]] = bits[node] + i - firstChild[node] + 1;
+          max = Math.max(max, bits[children[i]]);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * @return the max depth of the nodes - 0 for the root
+     */
+    public int depth() {
+      var depths = new int[size()];
+      var max = 0;
+      for (var node = 1; node < size(); node++) {
+        depths[node] = depths[parents[node]] + 1;
+        max = Math.max(max, depths[node]);
+      }
+      return max;
+    }
+
+    /**
+     * @return the max number of children of a node
+     */
+    public int maxChildren() {
+      var max = 0;
+      for (var node = 0; node < size(); node++) {
+        max = Math.max(max, firstChild[node + 1] - firstChild[node]);
+      }
+      return max;
+    }
+
+    /**
+     * @return the number of rows of the closure table of the tree - a row per node and each of its ancestors, and
+     * one of the node to itself
+     */
+    public long closureRows() {
+      var depths = new int[size()];
+      var rows = 1L;
+      for (var node = 1; node < size(); node++) {
+        depths[node] = depths[parents[node]] + 1;
+        rows += depths[node] + 1;
+      }
+      return rows;
+    }
+
+    /**
+     * @return the max right denominator, when the tree is stored as Farey fractions - the first child of a node
+     * spans from its left bound, every next one from the right bound of its older sibling, to the mediant with
+     * the right bound of the node
+     * @throws ArithmeticException in case a denominator overflows {@code long}
+     */
+    public long fareyDenominator() {
+      var lftD = new long[size()];
+      var rgtD = new long[size()];
+      lftD[0] = 1;
+      rgtD[0] = 1;
+      var max = 1L;
+      for (var node = 0; node < size(); node++) {
+        var lft = lftD[node];
+        for (var i = firstChild[node]; i < firstChild[node + 1]; i++) {
+          var child = children[i];
+          lftD[child] = lft;
+          rgtD[child] = Math.addExact(lft, rgtD[node]);
+          lft = rgtD[child];
+          max = Math.max(max, rgtD[child]);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * @return the nodes as records in pre-order, for the {@link TreeImporter}; generated lazily
+     */
+    public Iterator<TreeImporter.Record> records() {
+      return new Iterator<>() {
+        // the path from the root: the node and the index of its next child
+        private final int[] path = new int[size()];
+        private final int[] nextChild = new int[size()];
+        private int depth = -1;
+        private boolean started = false;
+
+        @Override
+        public boolean hasNext() {
+          if (!started) {
+            return true;
+          }
+          while (depth >= 0 && nextChild[depth] == firstChild[path[depth] + 1]) {
+            depth--;
+          }
+          return depth >= 0;
+        }
+
+        @Override
+        public TreeImporter.Record next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          var node = started ? children[nextChild[depth]++] : 0;
+          started = true;
+          depth++;
+          path[depth] = node;
+          nextChild[depth] = firstChild[node];
+          return new TreeImporter.Record(
+              String.valueOf(node),
+              node == 0 ? null : String.valueOf(parents[node]),
+              String.format("node-%d", node));
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package works.hacker.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.jpa.repository.JpaRepository;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A tree of the given engine, size and shape in an embedded H2 database - imported once per trial, i.e. per
+ * fork and combination of the parameters.
+ * <p>
+ * The benchmarks operate on a sample of {@value #SAMPLE_SIZE} nodes of the tree, picked at random.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@State(Scope.Benchmark)
+public class TreeState {
+  public static final long SEED = 42L;
+  public static final int SAMPLE_SIZE = 1000;
+
+  @Param({"CLASSIC", "DYADIC", "FAREY", "PATH", "CLOSURE"})
+  public Engine engine;
+
+  @Param({"1000", "10000", "100000", "1000000"})
+  public int size;
+
+  @Param({"WIDE", "DEEP", "RANDOM"})
+  public TreeShape shape;
+
+  protected AnnotationConfigApplicationContext context;
+  protected TreeRepository treeRepo;
+  protected JpaRepository jpaRepo;
+
+  protected Long treeId;
+  protected List<TreeEntity> sample;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    var tree = shape.generate(size, SEED);
+    engine.ensureCapacity(tree);
+
+    context = createContext();
+    jpaRepo = context.getBean(engine.getRepositoryClass());
+    treeRepo = (TreeRepository) jpaRepo;
+    engine.configure(treeRepo);
+
+    var dataSource = context.getBean(DataSource.class);
+    treeId = engine.importTree(dataSource, treeRepo, tree);
+    sample = sample(dataSource, treeId);
+  }
+
+  /**
+   * Creates the Spring context of the {@link TreesJpaConfig} - on an in-memory database of its own, and without
+   * logging the SQL.
+   */
+  protected AnnotationConfigApplicationContext createContext() {
+    var context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+        "spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+        "spring.jpa.generate-ddl", "create-drop",
+        "spring.jpa.show-sql", "false",
+        "spring.jpa.properties.hibernate.format_sql", "false")));
+    context.register(TreesJpaConfig.class);
+    context.refresh();
+    return context;
+  }
+
+  /**
+   * Picks the sample by the ids of the nodes - thus the tree is never loaded as a whole.
+   */
+  protected List<TreeEntity> sample(DataSource dataSource, Long treeId) throws SQLException {
+    var table = engine.getTable();
+    var ids = new long[size];
+    var query = String.format("SELECT %s FROM %s WHERE %s = ?",
+        table.column("id"), table.getName(), table.column("treeId"));
+    try (var connection = dataSource.getConnection();
+         var statement = connection.prepareStatement(query)) {
+      statement.setLong(1, treeId);
+      try (var resultSet = statement.executeQuery()) {
+        for (var i = 0; resultSet.next(); i++) {
+          ids[i] = resultSet.getLong(1);
+        }
+      }
+    }
+
+    var random = new Random(SEED);
+    var sample = new ArrayList<TreeEntity>(SAMPLE_SIZE);
+    for (var i = 0; i < SAMPLE_SIZE; i++) {
+      sample.add(findById(ids[random.nextInt(ids.length)]));
+    }
+    return sample;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  /**
+   * @return the next node of the sample, as read at the start of the trial
+   */
+  public TreeEntity nextNode() {
+    var node = sample.get(next);
+    next = (next + 1) % sample.size();
+    return node;
+  }
+
+  /**
+   * @return the next node of the sample, read again - for the benchmarks which change the tree
+   */
+  public TreeEntity nextFreshNode() {
+    return findById(nextNode().getId());
+  }
+
+  public TreeEntity findById(long id) {
+    return (TreeEntity) jpaRepo.findById(id).orElseThrow();
+  }
+}
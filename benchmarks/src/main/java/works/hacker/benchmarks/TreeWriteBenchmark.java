@@ -0,0 +1,77 @@
+package works.hacker.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import works.hacker.mptt.TreeEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mutators of the {@link works.hacker.mptt.TreeRepository} - each invocation adds a leaf to, or removes a leaf
+ * from the next node of the sample.
+ * <p>
+ * Every added leaf is removed again, and every removed leaf was added before - thus the size of the tree stays
+ * the same. The nodes are read again before each invocation, as every write changes the intervals. Those
+ * per-invocation steps are not measured, but limit the benchmarks to operations of a millisecond or more - as
+ * the writes of a database are.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeWriteBenchmark {
+  @State(Scope.Thread)
+  public static class AddChild {
+    protected TreeEntity parent;
+    protected TreeEntity child;
+
+    @Setup(Level.Invocation)
+    public void setup(TreeState tree) throws Exception {
+      parent = tree.nextFreshNode();
+      child = (TreeEntity) tree.treeRepo.createNode("benchmark");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(TreeState tree) throws Exception {
+      tree.treeRepo.removeChild(tree.findById(parent.getId()), tree.findById(child.getId()));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class RemoveChild {
+    protected TreeEntity parent;
+    protected TreeEntity child;
+
+    @Setup(Level.Invocation)
+    public void setup(TreeState tree) throws Exception {
+      var node = tree.nextFreshNode();
+      var leaf = (TreeEntity) tree.treeRepo.createNode("benchmark");
+      tree.treeRepo.addChild(node, leaf);
+      parent = tree.findById(node.getId());
+      child = tree.findById(leaf.getId());
+    }
+  }
+
+  @Benchmark
+  public void addChild(TreeState tree, AddChild state) throws Exception {
+    tree.treeRepo.addChild(state.parent, state.child);
+  }
+
+  @Benchmark
+  public List<TreeEntity> removeChild(TreeState tree, RemoveChild state) throws Exception {
+    return tree.treeRepo.removeChild(state.parent, state.child);
+  }
+}
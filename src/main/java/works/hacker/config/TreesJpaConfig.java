@@ -11,13 +11,16 @@ import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import works.hacker.mptt.monitor.StatementCounter;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 import java.util.Properties;
 
 @Configuration
-@EnableJpaRepositories(basePackages = { "works.hacker.repo.classic", "works.hacker.repo.dyadic"})
+@EnableJpaRepositories(basePackages = {
+    "works.hacker.repo.classic", "works.hacker.repo.dyadic", "works.hacker.repo.farey",
+    "works.hacker.repo.path", "works.hacker.repo.closure"})
 @PropertySource("application.properties")
 @EnableTransactionManagement
 public class TreesJpaConfig {
@@ -38,7 +41,9 @@ public class TreesJpaConfig {
   public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
     final LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
     em.setDataSource(dataSource());
-    em.setPackagesToScan(new String[]{"works.hacker.model.classic", "works.hacker.model.dyadic"});
+    em.setPackagesToScan(new String[]{
+        "works.hacker.model.classic", "works.hacker.model.dyadic", "works.hacker.model.farey",
+        "works.hacker.model.path", "works.hacker.model.closure"});
     em.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
     em.setJpaProperties(additionalProperties());
     return em;
@@ -58,6 +63,7 @@ public class TreesJpaConfig {
     hibernateProperties.setProperty("hibernate.dialect", env.getProperty("spring.jpa.database-platform"));
     hibernateProperties.setProperty("hibernate.show_sql", env.getProperty("spring.jpa.show-sql"));
     hibernateProperties.setProperty("hibernate.format_sql", env.getProperty("spring.jpa.properties.hibernate.format_sql"));
+    hibernateProperties.setProperty("hibernate.session_factory.statement_inspector", StatementCounter.class.getName());
     // @formatter:on
     return hibernateProperties;
   }
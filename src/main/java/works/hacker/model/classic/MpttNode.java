@@ -8,6 +8,8 @@ import works.hacker.repo.classic.MpttNodeRepositoryCustom;
 import works.hacker.repo.classic.MpttNodeRepositoryImpl;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * Demo usage of the {@link MpttEntity}.
@@ -23,6 +25,9 @@ import javax.persistence.Entity;
  * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
  */
 @Entity
+@Table(indexes = {
+    @Index(columnList = "treeId, parentId"),
+    @Index(columnList = "depth, treeId")})
 public class MpttNode extends MpttEntity {
   @SuppressWarnings({"Unused"})
   public MpttNode() {
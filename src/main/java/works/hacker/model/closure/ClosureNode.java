@@ -0,0 +1,41 @@
+package works.hacker.model.closure;
+
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.closure.ClosureEntity;
+import works.hacker.repo.closure.ClosureNodeRepository;
+import works.hacker.repo.closure.ClosureNodeRepositoryCustom;
+import works.hacker.repo.closure.ClosureNodeRepositoryImpl;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+
+/**
+ * Demo usage of the {@link ClosureEntity}.
+ * <p>
+ * Also used in the unit / integrations tests, as the {@link ClosureEntity} is annotated
+ * with {@link MappedSuperclass} and can not be used standalone.
+ *
+ * @see ClosureNodeRepositoryCustom
+ * @see ClosureNodeRepositoryImpl
+ * @see ClosureNodeRepository
+ * @see TreeEntity
+ * @see TreeRepository
+ * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
+ */
+@Entity
+@Table(indexes = {
+    @Index(columnList = "treeId, depth"),
+    @Index(columnList = "depth, treeId")})
+public class ClosureNode extends ClosureEntity {
+  @SuppressWarnings({"Unused"})
+  public ClosureNode() {
+    super();
+  }
+
+  public ClosureNode(String name) {
+    super(name);
+  }
+}
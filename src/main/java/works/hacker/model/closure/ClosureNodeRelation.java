@@ -0,0 +1,30 @@
+package works.hacker.model.closure;
+
+import works.hacker.mptt.closure.ClosureRelation;
+import works.hacker.repo.closure.ClosureNodeRepositoryImpl;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+
+/**
+ * Demo usage of the {@link ClosureRelation} - the closure table of the {@link ClosureNode}s.
+ * <p>
+ * Also used in the unit / integrations tests, as the {@link ClosureRelation} is annotated
+ * with {@link MappedSuperclass} and can not be used standalone.
+ *
+ * @see ClosureNode
+ * @see ClosureNodeRepositoryImpl
+ * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
+ */
+@Entity
+@Table(indexes = {
+    @Index(columnList = "ancestorId, distance"),
+    @Index(columnList = "descendantId, distance")})
+public class ClosureNodeRelation extends ClosureRelation {
+  @SuppressWarnings({"Unused"})
+  public ClosureNodeRelation() {
+    super();
+  }
+}
@@ -8,7 +8,9 @@ import works.hacker.repo.dyadic.DyadicNodeRepositoryCustom;
 import works.hacker.repo.dyadic.DyadicNodeRepositoryImpl;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
 
 /**
  * Demo usage of the {@link DyadicEntity}.
@@ -24,6 +26,10 @@ import javax.persistence.MappedSuperclass;
  * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
  */
 @Entity
+@Table(indexes = {
+    @Index(columnList = "treeId, lftScaled, rgtScaled"),
+    @Index(columnList = "treeId, parentId"),
+    @Index(columnList = "depth, treeId")})
 public class DyadicNode extends DyadicEntity {
   @SuppressWarnings({"Unused"})
   public DyadicNode() {
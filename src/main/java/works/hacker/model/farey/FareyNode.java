@@ -0,0 +1,43 @@
+package works.hacker.model.farey;
+
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.farey.FareyEntity;
+import works.hacker.repo.farey.FareyNodeRepository;
+import works.hacker.repo.farey.FareyNodeRepositoryCustom;
+import works.hacker.repo.farey.FareyNodeRepositoryImpl;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+
+/**
+ * Demo usage of the {@link FareyEntity}.
+ * <p>
+ * Also used in the unit / integrations tests, as the {@link FareyEntity} is annotated
+ * with {@link MappedSuperclass} and can not be used standalone.
+ *
+ * @see FareyNodeRepositoryCustom
+ * @see FareyNodeRepositoryImpl
+ * @see FareyNodeRepository
+ * @see TreeEntity
+ * @see TreeRepository
+ * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
+ */
+@Entity
+@Table(indexes = {
+    @Index(columnList = "treeId, rgtN, rgtD"),
+    @Index(columnList = "treeId, parentId"),
+    @Index(columnList = "treeId, lft, rgt"),
+    @Index(columnList = "depth, treeId")})
+public class FareyNode extends FareyEntity {
+  @SuppressWarnings({"Unused"})
+  public FareyNode() {
+    super();
+  }
+
+  public FareyNode(String name) {
+    super(name);
+  }
+}
@@ -0,0 +1,41 @@
+package works.hacker.model.path;
+
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.path.PathEntity;
+import works.hacker.repo.path.PathNodeRepository;
+import works.hacker.repo.path.PathNodeRepositoryCustom;
+import works.hacker.repo.path.PathNodeRepositoryImpl;
+
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.Table;
+
+/**
+ * Demo usage of the {@link PathEntity}.
+ * <p>
+ * Also used in the unit / integrations tests, as the {@link PathEntity} is annotated
+ * with {@link MappedSuperclass} and can not be used standalone.
+ *
+ * @see PathNodeRepositoryCustom
+ * @see PathNodeRepositoryImpl
+ * @see PathNodeRepository
+ * @see TreeEntity
+ * @see TreeRepository
+ * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
+ */
+@Entity
+@Table(indexes = {
+    @Index(columnList = "treeId, path"),
+    @Index(columnList = "depth, treeId")})
+public class PathNode extends PathEntity {
+  @SuppressWarnings({"Unused"})
+  public PathNode() {
+    super();
+  }
+
+  public PathNode(String name) {
+    super(name);
+  }
+}
@@ -0,0 +1,60 @@
+package works.hacker.mptt;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous facade of a {@link SiblingTreeRepository} - an {@link AsyncTreeRepository}, which inserts siblings
+ * as well.
+ *
+ * @param <T> the entity type of the nodes
+ */
+@SuppressWarnings("rawtypes")
+public class AsyncSiblingTreeRepository<T extends TreeEntity> extends AsyncTreeRepository<T> {
+  private final SiblingTreeRepository<T> treeRepo;
+
+  /**
+   * @see AsyncTreeRepository#AsyncTreeRepository(TreeRepository, Executor)
+   */
+  public AsyncSiblingTreeRepository(SiblingTreeRepository<T> treeRepo, Executor executor) {
+    super(treeRepo, executor);
+    this.treeRepo = treeRepo;
+  }
+
+  /**
+   * @see AsyncTreeRepository#AsyncTreeRepository(TreeRepository, int, int)
+   */
+  public AsyncSiblingTreeRepository(SiblingTreeRepository<T> treeRepo, int maxThreads, int maxQueued) {
+    super(treeRepo, maxThreads, maxQueued);
+    this.treeRepo = treeRepo;
+  }
+
+  @Override
+  public SiblingTreeRepository<T> getTreeRepository() {
+    return treeRepo;
+  }
+
+  /**
+   * Adds a node as the sibling right before a given node - after the previous writes of the tree of the sibling.
+   *
+   * @see SiblingTreeRepository#insertBefore
+   */
+  public CompletableFuture<Void> insertBefore(T sibling, T node) {
+    return write(sibling.getTreeId(), () -> {
+      treeRepo.insertBefore(refresh(sibling), node);
+      return null;
+    });
+  }
+
+  /**
+   * Adds a node as the sibling right after a given node - after the previous writes of the tree of the sibling.
+   *
+   * @see SiblingTreeRepository#insertAfter
+   */
+  public CompletableFuture<Void> insertAfter(T sibling, T node) {
+    return write(sibling.getTreeId(), () -> {
+      treeRepo.insertAfter(refresh(sibling), node);
+      return null;
+    });
+  }
+}
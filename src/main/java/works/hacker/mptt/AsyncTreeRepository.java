@@ -0,0 +1,334 @@
+package works.hacker.mptt;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous facade of a {@link TreeRepository} - every operation is executed on an executor and returns a
+ * {@link CompletableFuture}, so callers on an event loop do not block on the database.
+ * <p>
+ * The mutator operations of the same tree are executed one after another, in the order they were called - a
+ * write starts only after the previous write of its tree completed (successfully or not). Writes of different
+ * trees, {@link #startTree} and all reads run concurrently, bounded by the executor.
+ * <p>
+ * In case a {@link TreeRepository} method throws, the future completes exceptionally with that exception - e.g.
+ * {@link TreeRepository.NodeNotInTree}. In case the executor is saturated, the future completes exceptionally
+ * with a {@link RejectedExecutionException}.
+ * <p>
+ * <b>NOTE:</b> Every operation runs in a transaction of its own on a thread of the executor, thus the nodes
+ * returned are detached - and as the later writes of their tree are not applied to them, they may become stale.
+ * The writes therefore {@link TreeRepository#refresh} the nodes passed in, i.e. re-read them by id, once the
+ * previous writes of their tree completed - so e.g. many children may be queued for the same parent. The reads
+ * use the nodes as they are passed in; to read from a node which may be stale, refresh it first.
+ * <p>
+ * To insert siblings, wrap a {@link SiblingTreeRepository} into an {@link AsyncSiblingTreeRepository}.
+ *
+ * @param <T> the entity type of the nodes
+ */
+@SuppressWarnings("rawtypes")
+public class AsyncTreeRepository<T extends TreeEntity> implements AutoCloseable {
+  private final TreeRepository<T> treeRepo;
+  private final Executor executor;
+  private final boolean ownsExecutor;
+
+  // the last write of each tree, which is not completed yet
+  private final Map<Long, CompletableFuture<?>> writes = new ConcurrentHashMap<>();
+
+  /**
+   * @param treeRepo the repository to delegate to
+   * @param executor the executor to run the operations on; not shut down by {@link #close}
+   */
+  public AsyncTreeRepository(TreeRepository<T> treeRepo, Executor executor) {
+    this.treeRepo = treeRepo;
+    this.executor = executor;
+    this.ownsExecutor = false;
+  }
+
+  /**
+   * Runs the operations on a {@link #newBoundedExecutor} - shut down by {@link #close}.
+   *
+   * @param treeRepo   the repository to delegate to
+   * @param maxThreads the max number of operations running at the same time - e.g. the size of the connection
+   *                   pool
+   * @param maxQueued  the max number of operations waiting for a thread
+   */
+  public AsyncTreeRepository(TreeRepository<T> treeRepo, int maxThreads, int maxQueued) {
+    this.treeRepo = treeRepo;
+    this.executor = newBoundedExecutor(maxThreads, maxQueued);
+    this.ownsExecutor = true;
+  }
+
+  /**
+   * Creates an executor with a bounded number of threads and a bounded queue. The threads are virtual threads,
+   * where the runtime supports them (Java 21+).
+   *
+   * @param maxThreads the max number of tasks running at the same time
+   * @param maxQueued  the max number of tasks waiting for a thread; further tasks are rejected
+   * @return the executor
+   */
+  public static ExecutorService newBoundedExecutor(int maxThreads, int maxQueued) {
+    var executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(maxQueued), newThreadFactory());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * @return a factory of virtual threads, where the runtime supports them; else of daemon platform threads
+   */
+  protected static ThreadFactory newThreadFactory() {
+    try {
+      var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      var defaultFactory = Executors.defaultThreadFactory();
+      return runnable -> {
+        var thread = defaultFactory.newThread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      };
+    }
+  }
+
+  public TreeRepository<T> getTreeRepository() {
+    return treeRepo;
+  }
+
+  /**
+   * @see TreeRepository#startTree
+   */
+  public CompletableFuture<Long> startTree(T node) {
+    return execute(() -> treeRepo.startTree(node));
+  }
+
+  /**
+   * @see TreeRepository#findTreeRoot
+   */
+  public CompletableFuture<T> findTreeRoot(Long treeId) {
+    return execute(() -> treeRepo.findTreeRoot(treeId));
+  }
+
+  /**
+   * Finds the root nodes of many trees at once - a single operation, instead of one per tree.
+   *
+   * @see TreeRepository#findTreeRoots
+   */
+  public CompletableFuture<List<T>> findTreeRoots(Collection<Long> treeIds) {
+    return execute(() -> treeRepo.findTreeRoots(treeIds));
+  }
+
+  /**
+   * Finds a page of the root nodes of all trees - e.g. to fan out a job per tree.
+   *
+   * @see TreeRepository#findAllRoots
+   */
+  public CompletableFuture<List<T>> findAllRoots(Long afterTreeId, int maxResults) {
+    return execute(() -> treeRepo.findAllRoots(afterTreeId, maxResults));
+  }
+
+  /**
+   * @see TreeRepository#findByDepth
+   */
+  public CompletableFuture<List<T>> findByDepth(long depth, Long... treeIds) {
+    return execute(() -> treeRepo.findByDepth(depth, treeIds));
+  }
+
+  /**
+   * Adds a direct child to a given parent-node - after the previous writes of the tree of the parent.
+   *
+   * @see TreeRepository#addChild
+   */
+  public CompletableFuture<Void> addChild(T parent, T child) {
+    return write(parent.getTreeId(), () -> {
+      treeRepo.addChild(refresh(parent), child);
+      return null;
+    });
+  }
+
+  /**
+   * Removes a child and its sub-tree - after the previous writes of the tree of the parent.
+   *
+   * @see TreeRepository#removeChild
+   */
+  public CompletableFuture<List<T>> removeChild(T parent, T child) {
+    return write(parent.getTreeId(), () -> treeRepo.removeChild(refresh(parent), refresh(child)));
+  }
+
+  /**
+   * @see TreeRepository#findChildren
+   */
+  public CompletableFuture<List<T>> findChildren(T node) {
+    return execute(() -> treeRepo.findChildren(node));
+  }
+
+  /**
+   * Finds the direct children of many parent nodes at once - a single operation, instead of one per node.
+   *
+   * @see TreeRepository#findChildren(Collection)
+   */
+  public CompletableFuture<Map<T, List<T>>> findChildren(Collection<T> nodes) {
+    return execute(() -> treeRepo.findChildren(nodes));
+  }
+
+  /**
+   * @see TreeRepository#findSubTree
+   */
+  public CompletableFuture<List<T>> findSubTree(T node) {
+    return execute(() -> treeRepo.findSubTree(node));
+  }
+
+  /**
+   * Finds the sub-tree of a node down to a given number of levels below it.
+   *
+   * @see TreeRepository#findSubTree(TreeEntity, int)
+   */
+  public CompletableFuture<List<T>> findSubTree(T node, int maxDepth) {
+    return execute(() -> treeRepo.findSubTree(node, maxDepth));
+  }
+
+  /**
+   * @see TreeRepository#findDescendantsAtDepth
+   */
+  public CompletableFuture<List<T>> findDescendantsAtDepth(T node, int relativeDepth) {
+    return execute(() -> treeRepo.findDescendantsAtDepth(node, relativeDepth));
+  }
+
+  /**
+   * Finds the sub-trees of many nodes at once - a single operation, instead of one per node.
+   *
+   * @see TreeRepository#findSubTrees(Collection)
+   */
+  public CompletableFuture<Map<T, List<T>>> findSubTrees(Collection<T> nodes) {
+    return execute(() -> treeRepo.findSubTrees(nodes));
+  }
+
+  /**
+   * @see TreeRepository#findAncestors
+   */
+  public CompletableFuture<List<T>> findAncestors(T node) {
+    return execute(() -> treeRepo.findAncestors(node));
+  }
+
+  /**
+   * Finds the lists of ancestors of many nodes at once - a single operation, instead of one per node.
+   *
+   * @see TreeRepository#findAncestors(Collection)
+   */
+  public CompletableFuture<Map<T, List<T>>> findAncestors(Collection<T> nodes) {
+    return execute(() -> treeRepo.findAncestors(nodes));
+  }
+
+  /**
+   * @see TreeRepository#findChildrenProjected
+   */
+  public CompletableFuture<List<TreeNodeView>> findChildrenProjected(T node) {
+    return execute(() -> treeRepo.findChildrenProjected(node));
+  }
+
+  /**
+   * @see TreeRepository#findSubTreeProjected
+   */
+  public CompletableFuture<List<TreeNodeView>> findSubTreeProjected(T node) {
+    return execute(() -> treeRepo.findSubTreeProjected(node));
+  }
+
+  /**
+   * @see TreeRepository#findAncestorsProjected
+   */
+  public CompletableFuture<List<TreeNodeView>> findAncestorsProjected(T node) {
+    return execute(() -> treeRepo.findAncestorsProjected(node));
+  }
+
+  /**
+   * @see TreeRepository#findParent
+   */
+  public CompletableFuture<Optional<T>> findParent(T node) {
+    return execute(() -> treeRepo.findParent(node));
+  }
+
+  /**
+   * @see TreeRepository#findNextSibling
+   */
+  public CompletableFuture<Optional<T>> findNextSibling(T node) {
+    return execute(() -> treeRepo.findNextSibling(node));
+  }
+
+  /**
+   * @see TreeRepository#findPreviousSibling
+   */
+  public CompletableFuture<Optional<T>> findPreviousSibling(T node) {
+    return execute(() -> treeRepo.findPreviousSibling(node));
+  }
+
+  /**
+   * Re-reads a node passed to a write - a node which is not part of a tree is passed as it is, for the write to
+   * report.
+   */
+  protected T refresh(T node) {
+    return node.hasTreeId() ? treeRepo.refresh(node) : node;
+  }
+
+  /**
+   * Executes an operation on the executor.
+   */
+  protected <R> CompletableFuture<R> execute(Callable<R> operation) {
+    var result = new CompletableFuture<R>();
+    submit(operation, result);
+    return result;
+  }
+
+  /**
+   * Executes an operation on the executor, once the previous write of the same tree completed.
+   */
+  protected <R> CompletableFuture<R> write(long treeId, Callable<R> operation) {
+    var result = new CompletableFuture<R>();
+    writes.compute(treeId, (id, previous) -> {
+      if (previous == null) {
+        submit(operation, result);
+      } else {
+        previous.whenComplete((r, e) -> submit(operation, result));
+      }
+      return result;
+    });
+    result.whenComplete((r, e) -> writes.remove(treeId, result));
+    return result;
+  }
+
+  protected <R> void submit(Callable<R> operation, CompletableFuture<R> result) {
+    try {
+      executor.execute(() -> {
+        try {
+          result.complete(operation.call());
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Shuts down the executor, in case it was created by this repository. The operations already submitted are
+   * still executed.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      ((ExecutorService) executor).shutdown();
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package works.hacker.mptt;
+
+/**
+ * A {@link TreeRepository} adding nodes at a given position among their siblings - not only as the youngest child,
+ * as by {@link #addChild}.
+ * <p>
+ * Implemented by the classic and the dyadic repositories - see {@link works.hacker.mptt.classic.MpttRepository}
+ * and {@link works.hacker.mptt.dyadic.DyadicRepository} for how the following siblings are moved.
+ *
+ * @param <T> the entity type of the nodes
+ */
+public interface SiblingTreeRepository<T extends TreeEntity> extends TreeRepository<T> {
+  /**
+   * Adds a node as the sibling right before a given node.
+   *
+   * @param sibling the node to insert before; must be part of a tree; must not be a root
+   * @param node    the node to insert; must not be part of a tree yet
+   * @throws NodeNotInTree             in case the sibling is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case the node is part of a tree
+   * @throws NodeIsTreeRoot            in case the sibling is a root
+   */
+  void insertBefore(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot;
+
+  /**
+   * Adds a node as the sibling right after a given node.
+   *
+   * @param sibling the node to insert after; must be part of a tree; must not be a root
+   * @param node    the node to insert; must not be part of a tree yet
+   * @throws NodeNotInTree             in case the sibling is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case the node is part of a tree
+   * @throws NodeIsTreeRoot            in case the sibling is a root
+   */
+  void insertAfter(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot;
+}
@@ -0,0 +1,46 @@
+package works.hacker.mptt;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.stream.Stream;
+
+/**
+ * Streaming of query results, as by {@link TreeRepository#streamSubTree}, with the memory bounded by the fetch size.
+ * <p>
+ * The rows are fetched from the cursor {@value #FETCH_SIZE} at a time. The query is read-only, thus Hibernate
+ * keeps no snapshots of the loaded entities for dirty checking; and every entity loaded by the stream is detached
+ * from the persistence context as it is streamed. The entities managed before - e.g. the ones held by the caller -
+ * are returned as they are and stay managed: an entity already in the persistence context keeps its read-only
+ * state, so only the read-only ones, i.e. the ones the stream loaded, are detached.
+ */
+public final class StreamingQueries {
+  public static final int FETCH_SIZE = 1000;
+
+  private static final String HINT_FETCH_SIZE = "org.hibernate.fetchSize";
+  private static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+
+  private StreamingQueries() {
+  }
+
+  /**
+   * @param entityManager the entity manager of the query
+   * @param query         the query; its hints are set
+   * @param <T>           the entity type
+   * @return the stream of the results - to be consumed within the transaction of the caller, and to be closed
+   */
+  public static <T> Stream<T> streamDetached(EntityManager entityManager, TypedQuery<T> query) {
+    var session = entityManager.unwrap(Session.class);
+    return query
+        .setHint(HINT_FETCH_SIZE, FETCH_SIZE)
+        .setHint(HINT_READ_ONLY, true)
+        .getResultStream()
+        .map(streamed -> {
+          if (session.isReadOnly(streamed)) {
+            entityManager.detach(streamed);
+          }
+          return streamed;
+        });
+  }
+}
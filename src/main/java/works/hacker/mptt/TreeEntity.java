@@ -1,6 +1,7 @@
 package works.hacker.mptt;
 
 import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.classic.InMemoryMpttRepository;
 import works.hacker.mptt.classic.MpttEntity;
 import works.hacker.mptt.classic.MpttRepository;
 import works.hacker.mptt.classic.MpttRepositoryImpl;
@@ -20,6 +21,7 @@ import java.util.Objects;
  * <li><b>lft</b> and <b>rgt</b> to represent the nesting of the nodes</li>
  * <li><b>depth</b> to indicate the generation of the children</li>
  * <li><b>treeId</b> to allow growing multiple trees / hierarchies and discriminate between trees</li>
+ * <li><b>parentId</b> id of the direct parent node; null for the root node</li>
  * </ul>
  * <p>
  * <b>NOTE:</b> left and right are reserved words in MySQL, thus the use of <b>lft</b> and <b>rgt</b>.
@@ -48,6 +50,9 @@ public abstract class TreeEntity<T extends Number> {
   @Column(nullable = false)
   protected long treeId;
 
+  @Column
+  private Long parentId;
+
   @Column(nullable = false)
   private long depth;
 
@@ -69,6 +74,7 @@ public abstract class TreeEntity<T extends Number> {
 
   public void setDefaults() {
     this.treeId = NO_TREE_ID;
+    this.parentId = null;
     this.depth = START;
     this.lft = getStartLft();
     this.rgt = getStartRgt();
@@ -82,6 +88,16 @@ public abstract class TreeEntity<T extends Number> {
     return id;
   }
 
+  /**
+   * Sets the id of the node - the id is generated by the database when the node is persisted via JPA, thus only
+   * repositories, which do not persist the nodes, should set it.
+   *
+   * @see InMemoryMpttRepository
+   */
+  public void setId(long id) {
+    this.id = id;
+  }
+
   public boolean hasTreeId() {
     return treeId != NO_TREE_ID;
   }
@@ -94,6 +110,14 @@ public abstract class TreeEntity<T extends Number> {
     this.treeId = treeId;
   }
 
+  public Long getParentId() {
+    return parentId;
+  }
+
+  public void setParentId(Long parentId) {
+    this.parentId = parentId;
+  }
+
   public long getDepth() {
     return depth;
   }
@@ -0,0 +1,212 @@
+package works.hacker.mptt;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the sub-tree of a node as JSON directly to an {@link OutputStream}.
+ * <p>
+ * The nodes are read in one ordered pass via {@link TreeRepository#streamSubTree} and written as they come -
+ * only the depths of the currently open nodes are kept on a stack, so the tree is never materialised as an
+ * object graph. The memory is bounded by the depth of the tree, in case the repository streams from a cursor -
+ * see {@link TreeRepository#streamSubTree}.
+ * <p>
+ * Given the following tree representation:
+ * <pre>
+ * .
+ * └── root
+ *     ├── child1
+ *     │   └── subChild1
+ *     └── child2
+ * </pre>
+ * When {@code exporter.writeJson(root, out)}, then the written JSON is:
+ * <pre>
+ * {"id":1,"name":"root","children":[{"id":2,"name":"child1","children":[{"id":3,"name":"subChild1"}]},
+ * {"id":4,"name":"child2"}]}
+ * </pre>
+ * When {@code exporter.writeNdJson(root, out)}, then one JSON object is written per line, with the
+ * {@code depth} and {@code parentId} of the node:
+ * <pre>
+ * {"id":1,"name":"root","depth":0,"parentId":null}
+ * {"id":2,"name":"child1","depth":1,"parentId":1}
+ * {"id":3,"name":"subChild1","depth":2,"parentId":2}
+ * {"id":4,"name":"child2","depth":1,"parentId":1}
+ * </pre>
+ * Override {@link #writeFields} to write more (or other) fields of the nodes.
+ * <p>
+ * As the nodes are streamed from the database, the methods reading via the repository must be called within a
+ * transaction.
+ *
+ * @param <T> the entity type of the nodes
+ */
+@SuppressWarnings("rawtypes")
+public class TreeExporter<T extends TreeEntity> {
+  private final TreeRepository<T> treeRepo;
+
+  public TreeExporter(TreeRepository<T> treeRepo) {
+    this.treeRepo = treeRepo;
+  }
+
+  /**
+   * Writes the sub-tree of a node as a single nested JSON object.
+   *
+   * @param node the root of the sub-tree; must not be null; must be part of a tree
+   * @param out  the stream to write to; flushed, but not closed
+   */
+  public void writeJson(T node, OutputStream out) throws IOException {
+    try (var subTree = treeRepo.streamSubTree(node)) {
+      writeJson(subTree, out);
+    }
+  }
+
+  /**
+   * Writes the sub-tree of a node as newline delimited JSON - one object per node, in pre-order.
+   *
+   * @param node the root of the sub-tree; must not be null; must be part of a tree
+   * @param out  the stream to write to; flushed, but not closed
+   */
+  public void writeNdJson(T node, OutputStream out) throws IOException {
+    try (var subTree = treeRepo.streamSubTree(node)) {
+      writeNdJson(subTree, out);
+    }
+  }
+
+  /**
+   * Writes nodes in pre-order as a single nested JSON object.
+   *
+   * @param subTree the nodes of a sub-tree in pre-order - every node is followed by its sub-tree
+   * @param out     the stream to write to; flushed, but not closed
+   * @throws IllegalArgumentException in case the nodes are not in pre-order
+   */
+  public void writeJson(Stream<T> subTree, OutputStream out) throws IOException {
+    var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    // the depths of the nodes, which are written, but not closed yet
+    var open = new ArrayDeque<Long>();
+    for (Iterator<T> nodes = subTree.iterator(); nodes.hasNext(); ) {
+      var node = nodes.next();
+      var depth = node.getDepth();
+      if (open.isEmpty()) {
+        writer.write('{');
+      } else if (depth == open.peek() + 1) {
+        writer.write(",\"children\":[{");
+      } else if (depth <= open.peek() && depth > open.peekLast()) {
+        writer.write('}');
+        open.pop();
+        while (open.peek() >= depth) {
+          writer.write("]}");
+          open.pop();
+        }
+        writer.write(",{");
+      } else {
+        throw new IllegalArgumentException(String.format("Node not in pre-order: %s", node));
+      }
+      writeFields(writer, node);
+      open.push(depth);
+    }
+
+    if (!open.isEmpty()) {
+      writer.write('}');
+      open.pop();
+    }
+    while (!open.isEmpty()) {
+      writer.write("]}");
+      open.pop();
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes nodes as newline delimited JSON - one object per node, with its {@code depth} and {@code parentId}.
+   *
+   * @param subTree the nodes to write
+   * @param out     the stream to write to; flushed, but not closed
+   */
+  public void writeNdJson(Stream<T> subTree, OutputStream out) throws IOException {
+    var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    try {
+      subTree.forEachOrdered(node -> {
+        try {
+          writer.write('{');
+          writeFields(writer, node);
+          writer.write(',');
+          writeField(writer, "depth", node.getDepth());
+          writer.write(',');
+          writeField(writer, "parentId", node.getParentId());
+          writer.write("}\n");
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes the fields of a node - without the enclosing braces. Writes {@code id} and {@code name} by default.
+   *
+   * @param writer the writer to write to
+   * @param node   the node
+   */
+  protected void writeFields(Writer writer, T node) throws IOException {
+    writeField(writer, "id", node.getId());
+    writer.write(',');
+    writeField(writer, "name", node.getName());
+  }
+
+  protected void writeField(Writer writer, String name, Number value) throws IOException {
+    writeString(writer, name);
+    writer.write(':');
+    writer.write(value == null ? "null" : value.toString());
+  }
+
+  protected void writeField(Writer writer, String name, String value) throws IOException {
+    writeString(writer, name);
+    writer.write(':');
+    if (value == null) {
+      writer.write("null");
+    } else {
+      writeString(writer, value);
+    }
+  }
+
+  protected void writeString(Writer writer, String value) throws IOException {
+    writer.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            writer.write(String.format("\\u%04x", (int) c));
+          } else {
+            writer.write(c);
+          }
+      }
+    }
+    writer.write('"');
+  }
+}
@@ -0,0 +1,314 @@
+package works.hacker.mptt;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of a whole tree from an adjacency list of {@code (externalId, parentExternalId, name)} records.
+ * <p>
+ * Unlike calling {@link TreeRepository#addChild} per node, the nested intervals are computed in a single
+ * depth-first pass over the records and the rows are inserted with JDBC batching - for the classic engine this
+ * turns {@code O(n²)} row updates into {@code n} inserts.
+ * <p>
+ * The records must be in pre-order - every record follows its parent and the records of a sub-tree are
+ * contiguous, as e.g. in a depth-first dump of the tree. Then only the path from the root to the current record
+ * is kept in memory, so the memory is bounded by the depth of the tree, not by its size. A node is written when
+ * its sub-tree is complete; afterwards the {@code parentId}s are set in a second pass over the inserted rows by
+ * the {@link TreeMigration} of the engine.
+ * <p>
+ * The import runs in a single transaction on a connection of its own - either the whole tree is imported or
+ * nothing is.
+ *
+ * @param <T> the entity type used to compute the intervals; not persisted via JPA
+ */
+@SuppressWarnings("rawtypes")
+public abstract class TreeImporter<T extends TreeEntity> {
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  protected final DataSource dataSource;
+  protected final TreeTable table;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  protected TreeImporter(DataSource dataSource, TreeTable table) {
+    this.dataSource = dataSource;
+    this.table = table;
+  }
+
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive");
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Imports a new tree.
+   *
+   * @param records the records in pre-order; the first one is the root and has no parent
+   * @return the generated tree id
+   * @throws IllegalArgumentException in case the records are empty, not in pre-order or contain more than
+   *                                  one root
+   * @throws SQLException             in case of a database error; nothing is imported then
+   */
+  public Long importTree(Iterator<Record> records) throws SQLException {
+    try (var connection = dataSource.getConnection()) {
+      var autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        var treeId = generateTreeId(connection);
+        insertNodes(connection, treeId, records);
+        var migration = newMigration();
+        migration.setBatchSize(batchSize);
+        migration.updateParentIds(connection, treeId);
+        connection.commit();
+        return treeId;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  protected Long generateTreeId(Connection connection) throws SQLException {
+    var query = String.format("SELECT 1 FROM %s WHERE %s = ?", table.getName(), table.column("treeId"));
+    try (var statement = connection.prepareStatement(query)) {
+      while (true) {
+        var treeId = new Random().nextLong();
+        statement.setLong(1, treeId);
+        try (var resultSet = statement.executeQuery()) {
+          if (!resultSet.next()) {
+            return treeId;
+          }
+        }
+      }
+    }
+  }
+
+  protected void insertNodes(Connection connection, long treeId, Iterator<Record> records) throws SQLException {
+    if (!records.hasNext()) {
+      throw new IllegalArgumentException("No records to import");
+    }
+
+    var columns = Stream.concat(Stream.of("name", "treeId", "depth"), intervalProperties().stream())
+        .map(table::column)
+        .collect(Collectors.toList());
+    var insert = String.format("INSERT INTO %s (%s) VALUES (%s)",
+        table.getName(),
+        String.join(", ", columns),
+        columns.stream().map(column -> "?").collect(Collectors.joining(", ")));
+
+    try (var statement = connection.prepareStatement(insert)) {
+      var path = new ArrayDeque<Frame<T>>();
+
+      var record = records.next();
+      if (record.getParentExternalId() != null) {
+        throw new IllegalArgumentException(String.format("First record is not a root: %s", record));
+      }
+      var root = newNode(record.getName());
+      root.setTreeId(treeId);
+      path.push(new Frame<>(record.getExternalId(), root));
+
+      var pending = 0;
+      while (records.hasNext()) {
+        record = records.next();
+        while (!path.isEmpty() && !Objects.equals(path.peek().externalId, record.getParentExternalId())) {
+          pending = write(statement, path.pop(), pending);
+        }
+        if (path.isEmpty()) {
+          throw new IllegalArgumentException(String.format(
+              "Record not in pre-order - parent is not an ancestor of the preceding record: %s", record));
+        }
+
+        var parent = path.peek();
+        var child = newNode(record.getName());
+        child.setTreeId(treeId);
+        child.setDepth(parent.node.getDepth() + 1);
+        placeChild(parent.node, parent.youngest, child);
+        parent.youngest = child;
+        path.push(new Frame<>(record.getExternalId(), child));
+      }
+      while (!path.isEmpty()) {
+        pending = write(statement, path.pop(), pending);
+      }
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+    }
+  }
+
+  protected int write(PreparedStatement statement, Frame<T> frame, int pending) throws SQLException {
+    closeNode(frame.node, frame.youngest);
+
+    statement.setString(1, frame.node.getName());
+    statement.setLong(2, frame.node.getTreeId());
+    statement.setLong(3, frame.node.getDepth());
+    bindInterval(statement, 4, frame.node);
+    statement.addBatch();
+
+    if (pending + 1 < batchSize) {
+      return pending + 1;
+    }
+    statement.executeBatch();
+    return 0;
+  }
+
+  /**
+   * Creates the transient node holding the position of a record in the tree.
+   *
+   * @param name the name of the node
+   * @return a mint node with its defaults set, i.e. positioned as a root
+   */
+  protected abstract T newNode(String name);
+
+  /**
+   * Positions a child within its parent - analogical to {@link TreeRepository#addChild}.
+   *
+   * @param parent   the parent node; its sub-tree is not complete yet
+   * @param youngest the youngest child of the parent so far, with its sub-tree complete; or null
+   * @param child    the child node, with {@code treeId} and {@code depth} set
+   */
+  protected abstract void placeChild(T parent, T youngest, T child);
+
+  /**
+   * Completes the position of a node once its sub-tree is complete. Does nothing by default.
+   *
+   * @param node     the node
+   * @param youngest the youngest child of the node; or null
+   */
+  protected void closeNode(T node, T youngest) {
+  }
+
+  /**
+   * @return the names of the entity properties holding the position of a node - besides {@code treeId} and
+   * {@code depth}
+   */
+  protected abstract List<String> intervalProperties();
+
+  /**
+   * @return the name of the property ordering the children of a node by their intervals, e.g. when rebuilding a
+   * tree by the {@link TreeRebuilder}; the first of the {@link #intervalProperties} by default
+   */
+  protected String orderProperty() {
+    return intervalProperties().get(0);
+  }
+
+  /**
+   * Binds the values of the {@link #intervalProperties} of a node.
+   *
+   * @param statement the insert statement
+   * @param index     the index of the first parameter to bind
+   * @param node      the node
+   */
+  protected abstract void bindInterval(PreparedStatement statement, int index, T node) throws SQLException;
+
+  /**
+   * @return the migration setting the {@code parentId}s of the imported nodes
+   */
+  protected abstract TreeMigration newMigration();
+
+  /**
+   * Reads the records from CSV lines of {@code externalId,parentExternalId,name}.
+   * <p>
+   * The parent of the root is empty. The name is the rest of the line and may contain commas. Blank lines are
+   * skipped. The lines are read lazily.
+   *
+   * @param reader the reader of the CSV lines; closed by the caller
+   * @return the iterator of the records
+   * @throws UncheckedIOException when iterating, in case reading fails
+   */
+  public static Iterator<Record> readCsv(BufferedReader reader) {
+    return new Iterator<>() {
+      private String line = readLine();
+
+      private String readLine() {
+        try {
+          String next;
+          do {
+            next = reader.readLine();
+          } while (next != null && next.isBlank());
+          return next;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return line != null;
+      }
+
+      @Override
+      public Record next() {
+        if (line == null) throw new NoSuchElementException();
+        var fields = line.split(",", 3);
+        if (fields.length < 3) {
+          throw new IllegalArgumentException(String.format("Not a CSV record: %s", line));
+        }
+        line = readLine();
+        return new Record(fields[0], fields[1].isEmpty() ? null : fields[1], fields[2]);
+      }
+    };
+  }
+
+  /**
+   * A node of the adjacency list to import.
+   */
+  public static class Record {
+    private final String externalId;
+    private final String parentExternalId;
+    private final String name;
+
+    /**
+     * @param externalId       the id of the node in the source; must not be null
+     * @param parentExternalId the id of the parent node in the source; null for the root
+     * @param name             the name of the node
+     */
+    public Record(String externalId, String parentExternalId, String name) {
+      this.externalId = Objects.requireNonNull(externalId);
+      this.parentExternalId = parentExternalId;
+      this.name = name;
+    }
+
+    public String getExternalId() {
+      return externalId;
+    }
+
+    public String getParentExternalId() {
+      return parentExternalId;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s [externalId: %s | parentExternalId: %s]", name, externalId, parentExternalId);
+    }
+  }
+
+  protected static class Frame<T> {
+    protected final String externalId;
+    protected final T node;
+    protected T youngest;
+
+    protected Frame(String externalId, T node) {
+      this.externalId = externalId;
+      this.node = node;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package works.hacker.mptt;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migration of the nested intervals trees created before the {@code parentId} column was introduced - sets the
+ * missing {@code parentId}s from the intervals and depths of the nodes.
+ * <p>
+ * {@code findParent} and {@code findChildren} of the classic and the dyadic engine are based on the
+ * {@code parentId}s, thus return no nodes for the ones without - until their trees are migrated. The nodes are
+ * read in pre-order - a single ordered scan, instead of a lookup of the enclosing interval per node - and updated
+ * by batched updates: the parent of a node is the last node read at {@code depth - 1}. Only the path from the root
+ * to the current node is kept in memory.
+ * <p>
+ * The migration runs in a single transaction on a connection of its own - either all nodes are migrated or none
+ * is. Nodes with a {@code parentId} are not updated, thus running it again does nothing.
+ */
+public abstract class TreeMigration {
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  protected final DataSource dataSource;
+  protected final TreeTable table;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  protected TreeMigration(DataSource dataSource, TreeTable table) {
+    this.dataSource = dataSource;
+    this.table = table;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive");
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Sets the missing {@code parentId}s of the nodes of all trees.
+   *
+   * @return the number of nodes updated
+   * @throws IllegalStateException in case the depth of a node does not match the nesting of the intervals;
+   *                               nothing is updated then
+   * @throws SQLException          in case of a database error; nothing is updated then
+   */
+  public int updateParentIds() throws SQLException {
+    return updateParentIdsInTransaction(null);
+  }
+
+  /**
+   * Sets the missing {@code parentId}s of the nodes of a tree.
+   *
+   * @param treeId the id of the tree
+   * @return the number of nodes updated
+   * @throws IllegalStateException in case the depth of a node does not match the nesting of the intervals;
+   *                               nothing is updated then
+   * @throws SQLException          in case of a database error; nothing is updated then
+   */
+  public int updateParentIds(Long treeId) throws SQLException {
+    return updateParentIdsInTransaction(treeId);
+  }
+
+  private int updateParentIdsInTransaction(Long treeId) throws SQLException {
+    try (var connection = dataSource.getConnection()) {
+      var autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        var updated = updateParentIds(connection, treeId);
+        connection.commit();
+        return updated;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  /**
+   * Sets the missing {@code parentId}s in a single scan of the nodes ordered by tree and in pre-order.
+   *
+   * @param connection the connection; the transaction is handled by the caller
+   * @param treeId     the id of the tree; or null for all trees
+   * @return the number of nodes updated
+   */
+  protected int updateParentIds(Connection connection, Long treeId) throws SQLException {
+    var bounds = boundProperties();
+    // a parent before its first child, in case they share the lower bound
+    var query = String.format("SELECT %s, %s, %s, %s FROM %s %s ORDER BY %s, %s, %s DESC",
+        table.column("id"), table.column("parentId"), table.column("depth"), table.column("treeId"),
+        table.getName(), treeId == null ? "" : String.format("WHERE %s = ?", table.column("treeId")),
+        table.column("treeId"), table.column(bounds.get(0)), table.column(bounds.get(1)));
+    var update = String.format("UPDATE %s SET %s = ? WHERE %s = ?",
+        table.getName(), table.column("parentId"), table.column("id"));
+
+    try (var select = connection.prepareStatement(query);
+         var statement = connection.prepareStatement(update)) {
+      select.setFetchSize(batchSize);
+      if (treeId != null) {
+        select.setLong(1, treeId);
+      }
+      // the ids of the path from the root to the current node, by depth
+      var path = new ArrayList<Long>();
+      Long currentTreeId = null;
+      var updated = 0;
+      var pending = 0;
+      try (var resultSet = select.executeQuery()) {
+        while (resultSet.next()) {
+          var id = resultSet.getLong(1);
+          var hasParentId = resultSet.getObject(2) != null;
+          var depth = (int) resultSet.getLong(3);
+          var nodeTreeId = resultSet.getLong(4);
+          if (currentTreeId == null || currentTreeId != nodeTreeId) {
+            currentTreeId = nodeTreeId;
+            path.clear();
+          }
+          if (depth > path.size()) {
+            throw new IllegalStateException(String.format(
+                "Node %d at depth %d not enclosed by a node at depth %d", id, depth, depth - 1));
+          }
+          path.subList(depth, path.size()).clear();
+          if (depth > 0 && !hasParentId) {
+            statement.setLong(1, path.get(depth - 1));
+            statement.setLong(2, id);
+            statement.addBatch();
+            updated++;
+            if (++pending == batchSize) {
+              statement.executeBatch();
+              pending = 0;
+            }
+          }
+          path.add(id);
+        }
+      }
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+      return updated;
+    }
+  }
+
+  /**
+   * @return the names of the lower and the upper bound properties - ordering the nodes by the lower bound
+   * ascending and the upper bound descending is the pre-order of a tree
+   */
+  protected abstract List<String> boundProperties();
+}
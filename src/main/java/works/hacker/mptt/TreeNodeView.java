@@ -0,0 +1,95 @@
+package works.hacker.mptt;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Read-only view of a node - its {@code id}, {@code parentId}, {@code name}, {@code depth}, {@code lft} and
+ * {@code rgt}, without the rest of the entity.
+ * <p>
+ * The JPA implementations select the views with a JPQL constructor expression, thus the nodes are neither
+ * hydrated as entities nor kept in the persistence context. Entities with extra columns may project those too - by
+ * a subclass of the view with an extra constructor-argument per column, and by overriding the projection of the
+ * repository, e.g. {@code MpttRepositoryImpl#getProjection}.
+ *
+ * @see TreeRepository#findSubTreeProjected
+ * @see TreeRepository#findChildrenProjected
+ * @see TreeRepository#findAncestorsProjected
+ */
+public class TreeNodeView {
+  private final long id;
+  private final Long parentId;
+  private final String name;
+  private final long depth;
+  private final Number lft;
+  private final Number rgt;
+
+  public TreeNodeView(long id, Long parentId, String name, long depth, Number lft, Number rgt) {
+    this.id = id;
+    this.parentId = parentId;
+    this.name = name;
+    this.depth = depth;
+    this.lft = lft;
+    this.rgt = rgt;
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static TreeNodeView of(TreeEntity node) {
+    return new TreeNodeView(node.getId(), node.getParentId(), node.getName(), node.getDepth(), node.getLft(),
+        node.getRgt());
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static List<TreeNodeView> of(List<? extends TreeEntity> nodes) {
+    return nodes.stream().map(TreeNodeView::of).collect(Collectors.toList());
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public Long getParentId() {
+    return parentId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getDepth() {
+    return depth;
+  }
+
+  public Number getLft() {
+    return lft;
+  }
+
+  public Number getRgt() {
+    return rgt;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (id: %d) [depth: %d | lft: %s | rgt: %s]", getName(), getId(), getDepth(), getLft(),
+        getRgt());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    var other = (TreeNodeView) o;
+    return id == other.id && depth == other.depth && Objects.equals(parentId, other.parentId) &&
+        Objects.equals(name, other.name) && Objects.equals(lft, other.lft) && Objects.equals(rgt, other.rgt);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, parentId, name, depth, lft, rgt);
+  }
+}
@@ -0,0 +1,220 @@
+package works.hacker.mptt;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Recomputes the positions of all nodes of a tree - {@code depth} and the intervals - from their {@code parentId}s,
+ * e.g. to repair a tree reported as corrupt by the {@link TreeVerifier}.
+ * <p>
+ * The tree is walked depth-first from its root. The children are read in the order of their current intervals -
+ * by {@link TreeImporter#orderProperty} - and the intervals are assigned as by the {@link TreeImporter} of the
+ * engine, thus the same as when importing the tree. A node is written when its sub-tree is complete, by batched
+ * updates. The children of the siblings along the path are read by a single query per batch of siblings - so only
+ * the path from the root to the current node, with the ids of the children and grandchildren of a batch along it,
+ * is kept in memory, and trees larger than the heap can be rebuilt.
+ * <p>
+ * The rebuild runs in a single transaction on a connection of its own - readers see either the old or the new
+ * positions of all nodes. It fails, and nothing is written, in case the tree has not exactly one root or not all
+ * of its nodes are reachable from the root, e.g. due to a cycle of {@code parentId}s.
+ * <p>
+ * <b>NOTE:</b> The children are read by {@code parentId} - add an index on {@code (treeId, parentId)} for large
+ * trees. Entities of the tree in a persistence context are stale afterwards.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class TreeRebuilder {
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  protected final TreeImporter importer;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  /**
+   * @param importer the importer of the engine - its data source, its table and its placement of the intervals
+   *                 are used
+   */
+  public TreeRebuilder(TreeImporter<?> importer) {
+    this.importer = importer;
+  }
+
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive");
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Rebuilds a tree.
+   *
+   * @param treeId the id of the tree
+   * @return the number of nodes rebuilt
+   * @throws IllegalStateException in case the tree has not exactly one root, or not all of its nodes are
+   *                               reachable from the root; nothing is written then
+   * @throws SQLException          in case of a database error; nothing is written then
+   */
+  public long rebuild(Long treeId) throws SQLException {
+    try (var connection = importer.dataSource.getConnection()) {
+      var autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        var rebuilt = rebuild(connection, treeId);
+        var size = countNodes(connection, treeId);
+        if (rebuilt != size) {
+          throw new IllegalStateException(String.format(
+              "%d of %d nodes of tree %d not reachable from its root", size - rebuilt, size, treeId));
+        }
+        connection.commit();
+        return rebuilt;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  protected long rebuild(Connection connection, long treeId) throws SQLException {
+    var table = importer.table;
+    var columns = new ArrayList<String>();
+    columns.add("depth");
+    columns.addAll(importer.intervalProperties());
+    var update = String.format("UPDATE %s SET %s WHERE %s = ?",
+        table.getName(),
+        columns.stream().map(column -> table.column(column) + " = ?").collect(Collectors.joining(", ")),
+        table.column("id"));
+
+    try (var updateStatement = connection.prepareStatement(update)) {
+      var path = new ArrayDeque<Frame>();
+
+      var root = importer.newNode(null);
+      root.setTreeId(treeId);
+      var rootId = findRoot(connection, treeId);
+      var rootChildren = findChildren(connection, treeId, List.of(rootId)).getOrDefault(rootId, List.of());
+      path.push(new Frame(rootId, root, rootChildren));
+
+      var rebuilt = 0L;
+      var pending = 0;
+      while (!path.isEmpty()) {
+        var frame = path.peek();
+        if (frame.next < frame.children.size()) {
+          if (frame.next % batchSize == 0) {
+            var batch = frame.children.subList(frame.next, Math.min(frame.next + batchSize, frame.children.size()));
+            frame.grandchildren = findChildren(connection, treeId, batch);
+          }
+          var childId = frame.children.get(frame.next++);
+          var child = importer.newNode(null);
+          child.setTreeId(treeId);
+          child.setDepth(frame.node.getDepth() + 1);
+          importer.placeChild(frame.node, frame.youngest, child);
+          frame.youngest = child;
+          path.push(new Frame(childId, child, frame.grandchildren.getOrDefault(childId, List.of())));
+        } else {
+          path.pop();
+          pending = write(updateStatement, frame, pending);
+          rebuilt++;
+        }
+      }
+      if (pending > 0) {
+        updateStatement.executeBatch();
+      }
+      return rebuilt;
+    }
+  }
+
+  protected long findRoot(Connection connection, long treeId) throws SQLException {
+    var table = importer.table;
+    var query = String.format("SELECT %s FROM %s WHERE %s = ? AND %s IS NULL",
+        table.column("id"), table.getName(), table.column("treeId"), table.column("parentId"));
+    try (var statement = connection.prepareStatement(query)) {
+      statement.setLong(1, treeId);
+      try (var resultSet = statement.executeQuery()) {
+        var roots = new ArrayList<Long>();
+        while (resultSet.next()) {
+          roots.add(resultSet.getLong(1));
+        }
+        if (roots.size() != 1) {
+          throw new IllegalStateException(String.format("Tree %d with %d roots: %s", treeId, roots.size(), roots));
+        }
+        return roots.get(0);
+      }
+    }
+  }
+
+  /**
+   * Reads the children of many nodes by a single query.
+   *
+   * @return the ids of the children by the id of their parent - in the order of their current intervals
+   */
+  protected Map<Long, List<Long>> findChildren(Connection connection, long treeId, List<Long> parentIds)
+      throws SQLException {
+    var table = importer.table;
+    var query = String.format("SELECT %s, %s FROM %s WHERE %s = ? AND %s IN (%s) ORDER BY %s, %s",
+        table.column("parentId"), table.column("id"), table.getName(), table.column("treeId"),
+        table.column("parentId"), parentIds.stream().map(id -> "?").collect(Collectors.joining(", ")),
+        table.column(importer.orderProperty()), table.column("id"));
+    try (var statement = connection.prepareStatement(query)) {
+      statement.setLong(1, treeId);
+      for (var i = 0; i < parentIds.size(); i++) {
+        statement.setLong(i + 2, parentIds.get(i));
+      }
+      try (var resultSet = statement.executeQuery()) {
+        var children = new HashMap<Long, List<Long>>();
+        while (resultSet.next()) {
+          children.computeIfAbsent(resultSet.getLong(1), id -> new ArrayList<>()).add(resultSet.getLong(2));
+        }
+        return children;
+      }
+    }
+  }
+
+  protected long countNodes(Connection connection, long treeId) throws SQLException {
+    var table = importer.table;
+    var query = String.format("SELECT COUNT(*) FROM %s WHERE %s = ?", table.getName(), table.column("treeId"));
+    try (var statement = connection.prepareStatement(query)) {
+      statement.setLong(1, treeId);
+      try (var resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  protected int write(PreparedStatement statement, Frame frame, int pending) throws SQLException {
+    importer.closeNode(frame.node, frame.youngest);
+
+    statement.setLong(1, frame.node.getDepth());
+    importer.bindInterval(statement, 2, frame.node);
+    statement.setLong(2 + importer.intervalProperties().size(), frame.id);
+    statement.addBatch();
+
+    if (pending + 1 < batchSize) {
+      return pending + 1;
+    }
+    statement.executeBatch();
+    return 0;
+  }
+
+  protected static class Frame {
+    protected final long id;
+    protected final TreeEntity node;
+    protected final List<Long> children;
+    // the index of the next child to visit
+    protected int next;
+    // the children of the current batch of children, by their parent
+    protected Map<Long, List<Long>> grandchildren = Map.of();
+    protected TreeEntity youngest;
+
+    protected Frame(long id, TreeEntity node, List<Long> children) {
+      this.id = id;
+      this.node = node;
+      this.children = children;
+    }
+  }
+}
@@ -4,8 +4,13 @@ import works.hacker.mptt.classic.MpttEntity;
 
 import javax.persistence.NoResultException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * JPA repository interface defining the operations of / on an MPTT tree.
@@ -72,6 +77,56 @@ public interface TreeRepository<T extends TreeEntity> {
    */
   T findTreeRoot(Long treeId) throws NoResultException;
 
+  /**
+   * Re-reads a node, which may be stale - e.g. a node read in an earlier transaction, before further writes to its
+   * tree, which moved it.
+   *
+   * @param node the node to refresh; must not be null; must be part of a tree
+   * @return the refreshed node - either the given one, or a fresh instance of it
+   * @throws NoResultException in case the node does not exist (anymore)
+   */
+  T refresh(T node) throws NoResultException;
+
+  /**
+   * Finds the root nodes of many trees at once.
+   *
+   * @param treeIds the identifiers of the trees
+   * @return the list of the root nodes ordered by {@code treeId}; without the ones of trees, which do not exist
+   */
+  List<T> findTreeRoots(Collection<Long> treeIds);
+
+  /**
+   * Finds the root nodes of all trees - page by page, ordered by {@code treeId}.
+   * <p>
+   * The pages are keyset based - to iterate over all trees (e.g. one tree per tenant), pass the {@code treeId} of
+   * the last root of the previous page:
+   * <pre><code>
+   * var roots = treeRepo.findAllRoots(null, 100);
+   * while (!roots.isEmpty()) {
+   *   ...
+   *   roots = treeRepo.findAllRoots(roots.get(roots.size() - 1).getTreeId(), 100);
+   * }
+   * </code></pre>
+   * Entities should declare an index on {@code (depth, treeId)}.
+   *
+   * @param afterTreeId the root nodes of trees with a greater {@code treeId} are returned; or null for the first
+   *                    page
+   * @param maxResults  the max number of root nodes to return
+   * @return the list of the root nodes ordered by {@code treeId}; or empty list after the last page
+   */
+  List<T> findAllRoots(Long afterTreeId, int maxResults);
+
+  /**
+   * Finds all nodes at a given depth - across trees.
+   * <p>
+   * Entities should declare an index on {@code (depth, treeId)}.
+   *
+   * @param depth   the depth of the nodes - 0 for the root nodes
+   * @param treeIds the identifiers of the trees to search in; none to search in all trees
+   * @return the list of the nodes ordered by {@code treeId}, and from left to right within a tree
+   */
+  List<T> findByDepth(long depth, Long... treeIds);
+
   /**
    * Adds a direct child to a given parent-node.
    *
@@ -137,6 +192,22 @@ public interface TreeRepository<T extends TreeEntity> {
    */
   List<T> findChildren(T node);
 
+  /**
+   * Finds the direct children of many parent nodes at once - e.g. the nodes expanded in a menu.
+   * <p>
+   * The default implementation calls {@link #findChildren(TreeEntity)} per node. The JPA implementations
+   * override it with a single query.
+   *
+   * @param nodes the parent nodes; must not be null; must be part of a tree
+   * @return map of the given nodes - in the iteration order of {@code nodes} - to the list of their direct
+   * children, as by {@link #findChildren(TreeEntity)}
+   */
+  default Map<T, List<T>> findChildren(Collection<T> nodes) {
+    var children = new LinkedHashMap<T, List<T>>();
+    nodes.forEach(node -> children.put(node, findChildren(node)));
+    return children;
+  }
+
   /**
    * Finds the sub-tree - including the parent and all direct and indirect children - of a given node.
    * <p>
@@ -159,6 +230,85 @@ public interface TreeRepository<T extends TreeEntity> {
    */
   List<T> findSubTree(T node);
 
+  /**
+   * Finds the sub-tree of a given node down to a max depth below it - e.g. the few levels shown by a navigation
+   * menu, without reading the whole sub-tree.
+   * <p>
+   * The default implementation filters the result of {@link #findSubTree(TreeEntity)}. The JPA implementations of
+   * the classic and the dyadic engine override it with a range query on {@code depth}.
+   *
+   * @param node     the parent node; must not be null; must be part of a tree
+   * @param maxDepth the max depth relative to the parent node - 0 for the parent only, 1 for its direct children
+   *                 too, etc.
+   * @return the list of the parent and its direct and indirect children down to {@code maxDepth}, in the order of
+   * {@link #findSubTree(TreeEntity)}
+   * @throws IllegalArgumentException in case {@code maxDepth} is negative
+   */
+  default List<T> findSubTree(T node, int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException(String.format("Negative max depth: %d", maxDepth));
+    }
+    return findSubTree(node).stream()
+        .filter(descendant -> descendant.getDepth() <= node.getDepth() + maxDepth)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Finds the descendants of a given node at a depth relative to it - e.g. its grandchildren.
+   * <p>
+   * The default implementation filters the result of {@link #findSubTree(TreeEntity)}. The JPA implementations of
+   * the classic and the dyadic engine override it with a query on {@code depth}.
+   *
+   * @param node          the parent node; must not be null; must be part of a tree
+   * @param relativeDepth the depth relative to the parent node - 1 for its direct children, 2 for its
+   *                      grandchildren, etc.
+   * @return the list of the descendants at the given depth, in the order of {@link #findSubTree(TreeEntity)}
+   * @throws IllegalArgumentException in case {@code relativeDepth} is not positive
+   */
+  default List<T> findDescendantsAtDepth(T node, int relativeDepth) {
+    if (relativeDepth < 1) {
+      throw new IllegalArgumentException(String.format("Relative depth not positive: %d", relativeDepth));
+    }
+    return findSubTree(node).stream()
+        .filter(descendant -> descendant.getDepth() == node.getDepth() + relativeDepth)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Streams the sub-tree - including the parent and all direct and indirect children - of a given node in
+   * pre-order, i.e. every node is followed by its sub-tree.
+   * <p>
+   * Unlike {@link #findSubTree}, implementations may read the nodes from a database cursor and detach the nodes
+   * read from the persistence context as they are streamed, so the whole sub-tree is never held in memory - the JPA
+   * implementations of the classic, the dyadic and the path engine do. Thus the stream must be consumed within the
+   * transaction of the caller, and should be closed - e.g. by try-with-resources.
+   * <p>
+   * The default implementation streams the result of {@link #findSubTree}, i.e. holds the whole sub-tree in
+   * memory.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the stream of the parent and all of its direct and indirect children nodes in pre-order
+   */
+  default Stream<T> streamSubTree(T node) {
+    return findSubTree(node).stream();
+  }
+
+  /**
+   * Finds the sub-trees of many nodes at once.
+   * <p>
+   * The default implementation calls {@link #findSubTree(TreeEntity)} per node. The JPA implementations
+   * override it with a single query.
+   *
+   * @param nodes the parent nodes; must not be null; must be part of a tree
+   * @return map of the given nodes - in the iteration order of {@code nodes} - to their sub-trees, as by {@link
+   * #findSubTree(TreeEntity)}
+   */
+  default Map<T, List<T>> findSubTrees(Collection<T> nodes) {
+    var subTrees = new LinkedHashMap<T, List<T>>();
+    nodes.forEach(node -> subTrees.put(node, findSubTree(node)));
+    return subTrees;
+  }
+
   /**
    * Finds the list of ancestors of a given node.
    * <p>
@@ -181,6 +331,66 @@ public interface TreeRepository<T extends TreeEntity> {
    */
   List<T> findAncestors(T node);
 
+  /**
+   * Finds the lists of ancestors of many nodes at once - e.g. the breadcrumbs of a page of search results.
+   * <p>
+   * The default implementation calls {@link #findAncestors(TreeEntity)} per node. The JPA implementations
+   * override it with a single query.
+   *
+   * @param nodes the nodes; must not be null; must be part of a tree
+   * @return map of the given nodes - in the iteration order of {@code nodes} - to the list of their ancestors, as
+   * by {@link #findAncestors(TreeEntity)}
+   */
+  default Map<T, List<T>> findAncestors(Collection<T> nodes) {
+    var ancestors = new LinkedHashMap<T, List<T>>();
+    nodes.forEach(node -> ancestors.put(node, findAncestors(node)));
+    return ancestors;
+  }
+
+  /**
+   * Finds the direct children of a given node as read-only views - e.g. for listings, which do not modify the
+   * nodes.
+   * <p>
+   * The default implementation maps the result of {@link #findChildren(TreeEntity)}. The JPA implementations of
+   * the classic and the dyadic engine override it with a JPQL constructor expression, which bypasses the
+   * persistence context.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the views of the direct children, in the order of {@link #findChildren(TreeEntity)}
+   */
+  default List<TreeNodeView> findChildrenProjected(T node) {
+    return TreeNodeView.of(findChildren(node));
+  }
+
+  /**
+   * Finds the sub-tree of a given node as read-only views - e.g. for listings of large sub-trees.
+   * <p>
+   * The default implementation maps the result of {@link #findSubTree(TreeEntity)}. The JPA implementations of
+   * the classic and the dyadic engine override it with a JPQL constructor expression, which bypasses the
+   * persistence context.
+   *
+   * @param node the parent node; must not be null; must be part of a tree
+   * @return the views of the parent and all of its direct and indirect children, in the order of {@link
+   * #findSubTree(TreeEntity)}
+   */
+  default List<TreeNodeView> findSubTreeProjected(T node) {
+    return TreeNodeView.of(findSubTree(node));
+  }
+
+  /**
+   * Finds the ancestors of a given node as read-only views - e.g. for breadcrumbs.
+   * <p>
+   * The default implementation maps the result of {@link #findAncestors(TreeEntity)}. The JPA implementations of
+   * the classic and the dyadic engine override it with a JPQL constructor expression, which bypasses the
+   * persistence context.
+   *
+   * @param node must not be null; must be part of a tree
+   * @return the views of all ancestors, in the order of {@link #findAncestors(TreeEntity)}
+   */
+  default List<TreeNodeView> findAncestorsProjected(T node) {
+    return TreeNodeView.of(findAncestors(node));
+  }
+
   /**
    * Finds the direct parent of a given node.
    * <p>
@@ -204,6 +414,48 @@ public interface TreeRepository<T extends TreeEntity> {
    */
   Optional<T> findParent(T node);
 
+  /**
+   * Finds the next sibling of a given node - the one following it in the order of {@link #findChildren}.
+   * <p>
+   * The default implementation reads the children of the parent. The JPA implementations of the classic and the
+   * dyadic engine override it with a single query.
+   *
+   * @param node must not be null; must be part of a tree
+   * @return optional of the next sibling; or empty optional if the given node is the youngest child or a root
+   */
+  default Optional<T> findNextSibling(T node) {
+    return findParent(node).flatMap(parent -> {
+      var siblings = findChildren(parent);
+      for (var i = 0; i < siblings.size() - 1; i++) {
+        if (siblings.get(i).getId() == node.getId()) {
+          return Optional.of(siblings.get(i + 1));
+        }
+      }
+      return Optional.empty();
+    });
+  }
+
+  /**
+   * Finds the previous sibling of a given node - the one preceding it in the order of {@link #findChildren}.
+   * <p>
+   * The default implementation reads the children of the parent. The JPA implementations of the classic and the
+   * dyadic engine override it with a single query.
+   *
+   * @param node must not be null; must be part of a tree
+   * @return optional of the previous sibling; or empty optional if the given node is the eldest child or a root
+   */
+  default Optional<T> findPreviousSibling(T node) {
+    return findParent(node).flatMap(parent -> {
+      var siblings = findChildren(parent);
+      for (var i = 1; i < siblings.size(); i++) {
+        if (siblings.get(i).getId() == node.getId()) {
+          return Optional.of(siblings.get(i - 1));
+        }
+      }
+      return Optional.empty();
+    });
+  }
+
   class NodeAlreadyAttachedToTree extends Exception {
     public NodeAlreadyAttachedToTree(String message) {
       super(message);
@@ -221,4 +473,10 @@ public interface TreeRepository<T extends TreeEntity> {
       super(message);
     }
   }
+
+  class NodeIsTreeRoot extends Exception {
+    public NodeIsTreeRoot(String message) {
+      super(message);
+    }
+  }
 }
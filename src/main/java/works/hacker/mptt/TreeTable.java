@@ -0,0 +1,45 @@
+package works.hacker.mptt;
+
+/**
+ * Names of the table and the columns of a tree entity, as used by the JDBC based tools working on whole
+ * trees - e.g. the {@link TreeImporter}.
+ * <p>
+ * By default the column names are the property names of the entity, as with the default Hibernate naming
+ * strategy. Override {@link #column} for other naming strategies, or use {@link #snakeCase} for the one of
+ * Spring Boot.
+ */
+public class TreeTable {
+  private final String name;
+
+  public TreeTable(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Creates a table with {@code snake_case} column names - e.g. {@code tree_id} for {@code treeId}.
+   *
+   * @param name the name of the table
+   */
+  public static TreeTable snakeCase(String name) {
+    return new TreeTable(name) {
+      @Override
+      public String column(String property) {
+        return property.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+      }
+    };
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Maps a property of the entity to the name of its column.
+   *
+   * @param property the name of the property - e.g. {@code treeId}
+   * @return the name of the column
+   */
+  public String column(String property) {
+    return property;
+  }
+}
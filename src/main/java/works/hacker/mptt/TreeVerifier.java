@@ -0,0 +1,345 @@
+package works.hacker.mptt;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Integrity check of a whole tree - e.g. to find the trees corrupted by concurrent writes.
+ * <p>
+ * The nodes are streamed via JDBC ordered by their intervals, i.e. in pre-order, and checked in a single pass:
+ * <ul>
+ * <li>there is a single root - at {@code depth} 0, without a {@code parentId}, and all other intervals are
+ * nested within its interval</li>
+ * <li>every interval is properly nested within the interval of its parent - it neither overlaps the interval of
+ * its parent nor the intervals of its siblings</li>
+ * <li>the {@code parentId} of every node is the node of the enclosing interval, and its {@code depth} is the
+ * depth of that node plus one</li>
+ * <li>the checks of the engine - e.g. the contiguous numbering of the classic engine</li>
+ * </ul>
+ * Only the path from the root to the current node is kept in memory, so the memory is bounded by the depth of
+ * the tree, not by its width or size; the violations kept are limited by {@link #setMaxViolations}.
+ * <p>
+ * The tree is read in a read-only transaction on a connection of its own.
+ */
+public abstract class TreeVerifier {
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+  public static final int DEFAULT_MAX_VIOLATIONS = 100;
+
+  protected final DataSource dataSource;
+  protected final TreeTable table;
+
+  private int fetchSize = DEFAULT_FETCH_SIZE;
+  private int maxViolations = DEFAULT_MAX_VIOLATIONS;
+
+  protected TreeVerifier(DataSource dataSource, TreeTable table) {
+    this.dataSource = dataSource;
+    this.table = table;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    if (fetchSize < 1) throw new IllegalArgumentException("Fetch size must be positive");
+    this.fetchSize = fetchSize;
+  }
+
+  public void setMaxViolations(int maxViolations) {
+    if (maxViolations < 1) throw new IllegalArgumentException("Max violations must be positive");
+    this.maxViolations = maxViolations;
+  }
+
+  /**
+   * Verifies a tree.
+   *
+   * @param treeId the id of the tree
+   * @return the report of the verification; with a violation in case the tree has no nodes at all
+   * @throws SQLException in case of a database error
+   */
+  public Report verify(Long treeId) throws SQLException {
+    var report = new Report(treeId, maxViolations);
+    try (var connection = dataSource.getConnection()) {
+      var autoCommit = connection.getAutoCommit();
+      // some drivers - e.g. the one of PostgreSQL - stream the rows only outside of auto-commit
+      connection.setAutoCommit(false);
+      try (var statement = connection.prepareStatement(createQuery())) {
+        statement.setFetchSize(fetchSize);
+        statement.setLong(1, treeId);
+        try (var resultSet = statement.executeQuery()) {
+          verify(resultSet, report);
+        }
+      } finally {
+        connection.rollback();
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+    return report;
+  }
+
+  protected String createQuery() {
+    var bounds = boundProperties();
+    var columns = Stream.concat(Stream.of("id", "parentId", "depth"),
+        Stream.concat(bounds.stream(), extraProperties().stream()))
+        .map(table::column)
+        .collect(Collectors.joining(", "));
+    // a parent before its first child, in case they share the lower bound
+    return String.format("SELECT %s FROM %s WHERE %s = ? ORDER BY %s, %s DESC",
+        columns, table.getName(), table.column("treeId"), table.column(bounds.get(0)),
+        table.column(bounds.get(1)));
+  }
+
+  protected void verify(ResultSet resultSet, Report report) throws SQLException {
+    // the path from the root to the current node
+    var path = new ArrayDeque<Node>();
+    var root = (Node) null;
+    var next = firstBound();
+
+    while (resultSet.next()) {
+      var node = new Node(
+          resultSet.getLong(1),
+          resultSet.getObject(2) == null ? null : resultSet.getLong(2),
+          resultSet.getLong(3),
+          resultSet.getLong(4),
+          resultSet.getLong(5));
+      report.nodes++;
+      verifyNode(resultSet, node, report);
+
+      while (!path.isEmpty() && node.lft >= path.peek().rgt) {
+        next = close(path.pop(), next, report);
+      }
+
+      if (path.isEmpty()) {
+        if (root != null) {
+          report.add(node.id, "Interval outside the interval of the root");
+          continue;
+        }
+        root = node;
+        if (node.parentId != null) {
+          report.add(node.id, String.format("Root with parentId %d", node.parentId));
+        }
+        if (node.depth != 0) {
+          report.add(node.id, String.format("Root at depth %d", node.depth));
+        }
+      } else {
+        var parent = path.peek();
+        if (!contains(parent, node)) {
+          report.add(node.id, String.format("Interval overlaps the interval of node %d", parent.id));
+          continue;
+        }
+        if (!Objects.equals(node.parentId, parent.id)) {
+          report.add(node.id, String.format("parentId %d instead of %d", node.parentId, parent.id));
+        }
+        if (node.depth != parent.depth + 1) {
+          report.add(node.id, String.format("Depth %d instead of %d", node.depth, parent.depth + 1));
+        }
+      }
+
+      if (isContiguous()) {
+        if (node.lft != next) {
+          report.add(node.id, String.format("lft %d instead of %d", node.lft, next));
+        }
+        next = node.lft + 1;
+      }
+      path.push(node);
+    }
+
+    while (!path.isEmpty()) {
+      next = close(path.pop(), next, report);
+    }
+    if (root == null) {
+      report.add(null, "No nodes in tree");
+    }
+  }
+
+  /**
+   * @return the next bound expected by a contiguous numbering
+   */
+  protected long close(Node node, long next, Report report) {
+    if (!isContiguous()) {
+      return next;
+    }
+    if (node.rgt != next) {
+      report.add(node.id, String.format("rgt %d instead of %d", node.rgt, next));
+    }
+    return node.rgt + 1;
+  }
+
+  /**
+   * @return the names of the properties of the lower and the upper bound of the intervals - as comparable
+   * longs
+   */
+  protected abstract List<String> boundProperties();
+
+  /**
+   * @return the names of further properties read for {@link #verifyNode}, after the bounds; none by default
+   */
+  protected List<String> extraProperties() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * @param parent the node of the enclosing interval
+   * @param node   a node, which starts within the interval of {@code parent}
+   * @return true, if the interval of {@code node} is properly nested within the interval of {@code parent}
+   */
+  protected abstract boolean contains(Node parent, Node node);
+
+  /**
+   * @return true, if the bounds of a tree are numbered contiguously from {@link #firstBound} - every bound
+   * exactly once
+   */
+  protected boolean isContiguous() {
+    return false;
+  }
+
+  /**
+   * @return the lower bound of the root, in case the bounds are {@link #isContiguous}
+   */
+  protected long firstBound() {
+    return 0;
+  }
+
+  /**
+   * Verifies a single node on its own - e.g. its interval is not empty. Does nothing by default.
+   *
+   * @param resultSet the result set, positioned at the node - with the {@link #extraProperties} from index 6
+   * @param node      the node
+   * @param report    the report to add the violations to
+   */
+  protected void verifyNode(ResultSet resultSet, Node node, Report report) throws SQLException {
+  }
+
+  /**
+   * Adds a violation of a node to the report - e.g. by {@link #verifyNode}.
+   */
+  protected void addViolation(Report report, Node node, String message) {
+    report.add(node.id, message);
+  }
+
+  /**
+   * A node as read by the verifier - with its bounds as comparable longs.
+   */
+  protected static class Node {
+    protected final long id;
+    protected final Long parentId;
+    protected final long depth;
+    protected final long lft;
+    protected final long rgt;
+
+    protected Node(long id, Long parentId, long depth, long lft, long rgt) {
+      this.id = id;
+      this.parentId = parentId;
+      this.depth = depth;
+      this.lft = lft;
+      this.rgt = rgt;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public Long getParentId() {
+      return parentId;
+    }
+
+    public long getDepth() {
+      return depth;
+    }
+
+    public long getLft() {
+      return lft;
+    }
+
+    public long getRgt() {
+      return rgt;
+    }
+  }
+
+  /**
+   * The result of the verification of a tree.
+   */
+  public static class Report {
+    private final Long treeId;
+    private final int maxViolations;
+    private final List<Violation> violations = new ArrayList<>();
+    private long nodes;
+    private long violationCount;
+
+    protected Report(Long treeId, int maxViolations) {
+      this.treeId = treeId;
+      this.maxViolations = maxViolations;
+    }
+
+    void add(Long nodeId, String message) {
+      violationCount++;
+      if (violations.size() < maxViolations) {
+        violations.add(new Violation(nodeId, message));
+      }
+    }
+
+    public Long getTreeId() {
+      return treeId;
+    }
+
+    /**
+     * @return the number of nodes read
+     */
+    public long getNodes() {
+      return nodes;
+    }
+
+    /**
+     * @return the first violations found - up to the max violations of the verifier
+     */
+    public List<Violation> getViolations() {
+      return Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * @return the number of all violations found
+     */
+    public long getViolationCount() {
+      return violationCount;
+    }
+
+    public boolean isValid() {
+      return violationCount == 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Tree %d [nodes: %d | violations: %d]", treeId, nodes, violationCount);
+    }
+  }
+
+  public static class Violation {
+    private final Long nodeId;
+    private final String message;
+
+    protected Violation(Long nodeId, String message) {
+      this.nodeId = nodeId;
+      this.message = message;
+    }
+
+    /**
+     * @return the id of the violating node; null for violations of the tree as a whole
+     */
+    public Long getNodeId() {
+      return nodeId;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("node %d: %s", nodeId, message);
+    }
+  }
+}
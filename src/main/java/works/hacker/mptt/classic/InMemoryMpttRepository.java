@@ -0,0 +1,462 @@
+package works.hacker.mptt.classic;
+
+import works.hacker.mptt.monitor.TreeOperationListener;
+
+import javax.persistence.NoResultException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * {@link MpttRepository} keeping the trees in memory - without JPA and without a database.
+ * <p>
+ * The nodes of a tree are kept in pre-order, i.e. ordered by {@code lft}, with their {@code lft} and {@code rgt}
+ * in primitive arrays. Thus a node is found by a binary search on {@code lft}, a sub-tree is a range of the
+ * arrays, and adding or removing nodes shifts the arrays by {@link System#arraycopy}. The trees are kept in a map
+ * by {@code treeId}.
+ * <p>
+ * The semantics are the same as of {@link MpttRepositoryImpl} - the nodes passed in are the nodes kept, and
+ * their {@code lft} and {@code rgt} are updated in place (as by a persistence context). The {@code id}s are
+ * generated by the repository.
+ * <p>
+ * Useful for ephemeral trees - e.g. request or session scoped ones - and as a baseline to measure the overhead
+ * of JPA. Instances are not thread-safe.
+ *
+ * @param <T> the entity type of the nodes
+ */
+public class InMemoryMpttRepository<T extends MpttEntity> implements MpttRepository<T> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Map<Long, Tree<T>> trees = new HashMap<>();
+  private final Map<Long, T> nodesById = new HashMap<>();
+  private final Random random = new Random();
+
+  private long lastId = 0L;
+
+  protected Class<T> entityClass;
+
+  @Override
+  public void setEntityClass(Class<T> entityClass) {
+    this.entityClass = entityClass;
+  }
+
+  /**
+   * Ignored - the operations of the in-memory repository are not monitored.
+   */
+  @Override
+  public void setTreeOperationListener(TreeOperationListener listener) {
+  }
+
+  @Override
+  public T createNode(String name)
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
+      InstantiationException {
+    return entityClass.getDeclaredConstructor(String.class).newInstance(name);
+  }
+
+  @Override
+  public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var treeId = generateTreeId();
+    node.setTreeId(treeId);
+    node.setLft(1L);
+    node.setRgt(2L);
+
+    var tree = new Tree<T>();
+    tree.insert(0, node);
+    trees.put(treeId, tree);
+    persist(node);
+    return treeId;
+  }
+
+  protected void ensureNodeIsNotAttachedToAnyTree(T node) throws NodeAlreadyAttachedToTree {
+    if (node.hasTreeId()) {
+      throw new NodeAlreadyAttachedToTree(
+          String.format("Node already has treeId set to %d", node.getTreeId()));
+    }
+  }
+
+  protected Long generateTreeId() {
+    Long treeId = random.nextLong();
+    return trees.containsKey(treeId) ? generateTreeId() : treeId;
+  }
+
+  protected void persist(T node) {
+    node.setId(++lastId);
+    nodesById.put(node.getId(), node);
+  }
+
+  @Override
+  public T findTreeRoot(Long treeId) throws NoResultException {
+    var tree = trees.get(treeId);
+    if (tree == null) {
+      throw new NoResultException(String.format("No tree with treeId %d", treeId));
+    }
+    return tree.get(0);
+  }
+
+  @Override
+  public List<T> findTreeRoots(Collection<Long> treeIds) {
+    return treeIds.stream()
+        .sorted()
+        .distinct()
+        .filter(trees::containsKey)
+        .map(this::findTreeRoot)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public List<T> findAllRoots(Long afterTreeId, int maxResults) {
+    return trees.keySet().stream()
+        .filter(treeId -> afterTreeId == null || treeId > afterTreeId)
+        .sorted()
+        .limit(maxResults)
+        .map(this::findTreeRoot)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public List<T> findByDepth(long depth, Long... treeIds) {
+    var nodes = new ArrayList<T>();
+    var searched = treeIds.length == 0 ? trees.keySet().stream() : Arrays.stream(treeIds);
+    searched.sorted().distinct().filter(trees::containsKey).forEach(treeId -> {
+      var tree = trees.get(treeId);
+      for (var i = 0; i < tree.size; i++) {
+        if (tree.get(i).getDepth() == depth) {
+          nodes.add(tree.get(i));
+        }
+      }
+    });
+    return nodes;
+  }
+
+  @Override
+  public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    ensureParentIsAttachedToTree(parent);
+    ensureNodeIsNotAttachedToAnyTree(child);
+
+    var tree = getTree(parent);
+    // the child becomes the right-most child - right after the sub-tree of the parent
+    var childLft = parent.getRgt();
+    var parentIndex = tree.indexOf(parent);
+    var index = parentIndex + tree.subTreeSize(parentIndex);
+
+    tree.shift(index, childLft, 2L);
+
+    child.setTreeId(parent.getTreeId());
+    child.setParentId(parent.getId());
+    child.setLft(childLft);
+    child.setRgt(childLft + 1);
+    child.setDepth(parent.getDepth() + 1);
+
+    tree.insert(index, child);
+    persist(child);
+  }
+
+  @Override
+  public void insertBefore(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot {
+    ensureSiblingIsNotRoot(sibling);
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var tree = getTree(sibling);
+    insertSibling(tree, tree.indexOf(sibling), sibling, sibling.getLft(), node);
+  }
+
+  @Override
+  public void insertAfter(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot {
+    ensureSiblingIsNotRoot(sibling);
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var tree = getTree(sibling);
+    var index = tree.indexOf(sibling);
+    insertSibling(tree, index + tree.subTreeSize(index), sibling, sibling.getRgt() + 1, node);
+  }
+
+  protected void insertSibling(Tree<T> tree, int index, T sibling, long lft, T node) {
+    node.setTreeId(sibling.getTreeId());
+    node.setParentId(sibling.getParentId());
+    node.setDepth(sibling.getDepth());
+
+    tree.shift(index, lft, 2L);
+
+    node.setLft(lft);
+    node.setRgt(lft + 1);
+
+    tree.insert(index, node);
+    persist(node);
+  }
+
+  protected void ensureSiblingIsNotRoot(T sibling) throws NodeNotInTree, NodeIsTreeRoot {
+    if (!sibling.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Sibling node not attached to any tree: %s", sibling));
+    }
+    if (sibling.getParentId() == null) {
+      throw new NodeIsTreeRoot(String.format("Root node can not have siblings: %s", sibling));
+    }
+  }
+
+  @Override
+  public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    ensureParentIsAttachedToTree(parent);
+    ensureChildOfParent(parent, child);
+
+    var tree = getTree(parent);
+    var index = tree.indexOf(child);
+    var removed = tree.subList(index, index + tree.subTreeSize(index));
+
+    tree.remove(index, removed.size());
+    tree.shift(index, child.getRgt(), -(child.getRgt() - child.getLft() + 1));
+
+    removed.forEach(node -> nodesById.remove(node.getId()));
+    return removed;
+  }
+
+  protected void ensureParentIsAttachedToTree(T parent) throws NodeNotInTree {
+    if (!parent.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Parent node not attached to any tree: %s", parent));
+    }
+  }
+
+  protected void ensureChildOfParent(T parent, T child) throws NodeNotChildOfParent, NodeNotInTree {
+    if (parent.getLft() < child.getLft() && child.getRgt() < parent.getRgt()) {
+      if (child.getTreeId() != parent.getTreeId()) {
+        throw new NodeNotInTree(
+            String.format("Nodes not in same tree - parent: %s; child %s", parent, child));
+      }
+    } else {
+      throw new NodeNotChildOfParent(String.format("%s not parent of %s", parent, child));
+    }
+  }
+
+  protected Tree<T> getTree(T node) {
+    var tree = trees.get(node.getTreeId());
+    if (tree == null) {
+      throw new IllegalArgumentException(String.format("Node not in this repository: %s", node));
+    }
+    return tree;
+  }
+
+  @Override
+  public T findRightMostChild(T node) {
+    var tree = getTree(node);
+    var index = tree.indexOf(node);
+    T rightMostChild = null;
+    for (var child = index + 1; child < index + tree.subTreeSize(index); child += tree.subTreeSize(child)) {
+      rightMostChild = tree.get(child);
+    }
+    return rightMostChild;
+  }
+
+  @Override
+  public List<T> findByTreeIdAndLftGreaterThanEqual(Long treeId, Long lft) {
+    var tree = trees.get(treeId);
+    return tree == null ? Collections.emptyList() : tree.subList(tree.search(lft), tree.size);
+  }
+
+  @Override
+  public List<T> findByTreeIdAndLftGreaterThan(Long treeId, Long lft) {
+    var tree = trees.get(treeId);
+    return tree == null ? Collections.emptyList() : tree.subList(tree.search(lft + 1), tree.size);
+  }
+
+  @Override
+  public List<T> findByTreeIdAndRgtGreaterThan(Long treeId, Long rgt) {
+    var tree = trees.get(treeId);
+    var nodes = new ArrayList<T>();
+    if (tree != null) {
+      for (var i = 0; i < tree.size; i++) {
+        if (tree.rgt[i] > rgt) {
+          nodes.add(tree.get(i));
+        }
+      }
+    }
+    return nodes;
+  }
+
+  @Override
+  public List<T> findChildren(T node) {
+    var tree = getTree(node);
+    var index = tree.indexOf(node);
+    var children = new ArrayList<T>();
+    for (var child = index + 1; child < index + tree.subTreeSize(index); child += tree.subTreeSize(child)) {
+      children.add(tree.get(child));
+    }
+    return children;
+  }
+
+  @Override
+  public List<T> findSubTree(T node) {
+    var tree = getTree(node);
+    var index = tree.indexOf(node);
+    return tree.subList(index, index + tree.subTreeSize(index));
+  }
+
+  @Override
+  public List<T> findAncestors(T node) {
+    var ancestors = new ArrayList<T>();
+    for (var parent = findParent(node); parent.isPresent(); parent = findParent(parent.get())) {
+      ancestors.add(parent.get());
+    }
+    Collections.reverse(ancestors);
+    return ancestors;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The nodes kept are always fresh - returns the node kept by the repository.
+   */
+  @Override
+  public T refresh(T node) throws NoResultException {
+    return findById(node.getId())
+        .orElseThrow(() -> new NoResultException(String.format("No node with id %d", node.getId())));
+  }
+
+  @Override
+  public List<T> findLeaves(T node) {
+    var tree = getTree(node);
+    var index = tree.indexOf(node);
+    var leaves = new ArrayList<T>();
+    for (var i = index + 1; i < index + tree.subTreeSize(index); i++) {
+      if (tree.rgt[i] == tree.lft[i] + 1) {
+        leaves.add(tree.get(i));
+      }
+    }
+    return leaves;
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(nodesById.get(node.getParentId()));
+  }
+
+  public Optional<T> findById(long id) {
+    return Optional.ofNullable(nodesById.get(id));
+  }
+
+  /**
+   * @return the number of nodes in all trees
+   */
+  public long count() {
+    return nodesById.size();
+  }
+
+  /**
+   * Removes all trees.
+   */
+  public void deleteAll() {
+    trees.clear();
+    nodesById.clear();
+  }
+
+  /**
+   * The nodes of a tree in pre-order, with their {@code lft} and {@code rgt} in parallel primitive arrays.
+   * <p>
+   * The arrays are the source of truth - every change is written through to the nodes.
+   */
+  protected static class Tree<T extends MpttEntity> {
+    private Object[] nodes = new Object[INITIAL_CAPACITY];
+    private long[] lft = new long[INITIAL_CAPACITY];
+    private long[] rgt = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    protected T get(int index) {
+      return (T) nodes[index];
+    }
+
+    /**
+     * @return the index of the first node with a {@code lft} greater than or equal to the given one
+     */
+    protected int search(long value) {
+      var low = 0;
+      var high = size;
+      while (low < high) {
+        var middle = (low + high) >>> 1;
+        if (lft[middle] < value) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    protected int indexOf(T node) {
+      var index = search(node.getLft());
+      if (index == size || get(index).getId() != node.getId()) {
+        throw new IllegalArgumentException(String.format("Node not in this repository: %s", node));
+      }
+      return index;
+    }
+
+    /**
+     * @return the number of nodes in the sub-tree of the node at the given index - including the node
+     */
+    protected int subTreeSize(int index) {
+      return (int) ((rgt[index] - lft[index] + 1) / 2);
+    }
+
+    protected List<T> subList(int from, int to) {
+      var subList = new ArrayList<T>(to - from);
+      for (var i = from; i < to; i++) {
+        subList.add(get(i));
+      }
+      return subList;
+    }
+
+    protected void insert(int index, T node) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+        lft = Arrays.copyOf(lft, size * 2);
+        rgt = Arrays.copyOf(rgt, size * 2);
+      }
+      System.arraycopy(nodes, index, nodes, index + 1, size - index);
+      System.arraycopy(lft, index, lft, index + 1, size - index);
+      System.arraycopy(rgt, index, rgt, index + 1, size - index);
+      nodes[index] = node;
+      lft[index] = node.getLft();
+      rgt[index] = node.getRgt();
+      size++;
+    }
+
+    protected void remove(int index, int count) {
+      System.arraycopy(nodes, index + count, nodes, index, size - index - count);
+      System.arraycopy(lft, index + count, lft, index, size - index - count);
+      System.arraycopy(rgt, index + count, rgt, index, size - index - count);
+      Arrays.fill(nodes, size - count, size, null);
+      size -= count;
+    }
+
+    /**
+     * Shifts the nodes from the given index on by {@code delta}, as well as the {@code rgt} of the preceding
+     * nodes with a {@code rgt} greater than or equal to {@code from} - i.e. the ancestors of the position.
+     */
+    protected void shift(int index, long from, long delta) {
+      for (var i = 0; i < index; i++) {
+        if (rgt[i] >= from) {
+          rgt[i] += delta;
+          get(i).setRgt(rgt[i]);
+        }
+      }
+      for (var i = index; i < size; i++) {
+        lft[i] += delta;
+        rgt[i] += delta;
+        get(i).setLft(lft[i]);
+        get(i).setRgt(rgt[i]);
+      }
+    }
+  }
+}
@@ -23,4 +23,45 @@ public class MpttEntity extends TreeEntity<Long> {
   public Long getStartRgt() {
     return 2L;
   }
+
+  /**
+   * Counts the descendants of the node - i.e. {@code (rgt - lft - 1) / 2}.
+   * <p>
+   * Answered from the {@code lft} and {@code rgt} of the entity, without any database access - thus only as
+   * fresh as the entity, see {@link MpttRepository#refresh}.
+   *
+   * @return the number of nodes in the sub-tree of the node, excluding the node
+   */
+  public long countDescendants() {
+    return (getRgt() - getLft() - 1) / 2;
+  }
+
+  /**
+   * Answered from the {@code lft} and {@code rgt} of the entity, without any database access.
+   *
+   * @return true, if the node has no children - i.e. {@code rgt == lft + 1}
+   */
+  public boolean isLeaf() {
+    return getRgt() == getLft() + 1;
+  }
+
+  /**
+   * Answered from the {@code treeId}, {@code lft} and {@code rgt} of the entities, without any database access.
+   *
+   * @param node the potential ancestor
+   * @return true, if this node is in the sub-tree of the given node, and not the node itself
+   */
+  public boolean isDescendantOf(MpttEntity node) {
+    return getTreeId() == node.getTreeId() && node.getLft() < getLft() && getRgt() < node.getRgt();
+  }
+
+  /**
+   * Answered from the {@code treeId}, {@code lft} and {@code rgt} of the entities, without any database access.
+   *
+   * @param node the potential descendant
+   * @return true, if the given node is in the sub-tree of this node, and not the node itself
+   */
+  public boolean isAncestorOf(MpttEntity node) {
+    return node.isDescendantOf(this);
+  }
 }
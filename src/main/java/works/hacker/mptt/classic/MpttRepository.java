@@ -1,10 +1,86 @@
 package works.hacker.mptt.classic;
 
-import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.SiblingTreeRepository;
+import works.hacker.mptt.monitor.TreeOperationListener;
 
+import javax.persistence.NoResultException;
 import java.util.List;
 
-public interface MpttRepository<T extends MpttEntity> extends TreeRepository<T> {
+public interface MpttRepository<T extends MpttEntity> extends SiblingTreeRepository<T> {
+  /**
+   * Sets the listener of the completed operations - e.g. a {@link works.hacker.mptt.monitor.MicrometerTreeMetrics}.
+   * <p>
+   * Defaults to {@link TreeOperationListener#NOOP}.
+   *
+   * @param listener the listener; must not be null
+   */
+  void setTreeOperationListener(TreeOperationListener listener);
+
+  /**
+   * Re-reads the {@code lft} and {@code rgt} of a node, which may be stale - e.g. a node read in an earlier
+   * transaction, before further writes to its tree.
+   * <p>
+   * Use before answering {@link MpttEntity#countDescendants}, {@link MpttEntity#isLeaf},
+   * {@link MpttEntity#isDescendantOf} and {@link MpttEntity#isAncestorOf} from a node, which may be stale.
+   *
+   * @param node the node to refresh
+   * @return the refreshed node - either the given one, or a fresh instance of it
+   * @throws NoResultException in case the node does not exist (anymore)
+   */
+  @Override
+  T refresh(T node) throws NoResultException;
+
+  /**
+   * Finds the leaves of the sub-tree of a given node - the nodes with {@code rgt == lft + 1}; a single range query.
+   * <p>
+   * Given the following tree:
+   * <pre>
+   * .
+   * └── root [lft: 1 | rgt: 14]
+   *     ├── child1 [lft: 2 | rgt: 9]
+   *     │   ├── subChild1 [lft: 3 | rgt: 6]
+   *     │   │   └── subSubChild [lft: 4 | rgt: 5]
+   *     │   └── subChild2 [lft: 7 | rgt: 8]
+   *     └── child2 [lft: 10 | rgt: 13]
+   *         └── lastSubChild [lft: 11 | rgt: 12]
+   * </pre>
+   * When {@code repo.findLeaves(root)}, then the leaves are {@code subSubChild}, {@code subChild2} and
+   * {@code lastSubChild}.
+   *
+   * @param node the root of the sub-tree
+   * @return the leaves ordered by {@code lft}, excluding the node itself; empty, if the node is a leaf
+   */
+  List<T> findLeaves(T node);
+
+  /**
+   * Adds a node as the sibling right before a given node - unlike {@link #addChild}, which adds the right-most
+   * child.
+   * <p>
+   * Opens a gap of two at the {@code lft} of the sibling - the sibling, its sub-tree, the nodes to its right and
+   * its ancestors are shifted in bulk, as by {@link #addChild}.
+   *
+   * @param sibling the node to insert before; must be part of a tree; must not be a root
+   * @param node    the node to insert; must not be part of a tree yet
+   * @throws NodeNotInTree             in case the sibling is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case the node is part of a tree
+   * @throws NodeIsTreeRoot            in case the sibling is a root
+   */
+  @Override
+  void insertBefore(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot;
+
+  /**
+   * Adds a node as the sibling right after a given node - at the {@code rgt + 1} of the sibling.
+   *
+   * @param sibling the node to insert after; must be part of a tree; must not be a root
+   * @param node    the node to insert; must not be part of a tree yet
+   * @throws NodeNotInTree             in case the sibling is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case the node is part of a tree
+   * @throws NodeIsTreeRoot            in case the sibling is a root
+   * @see #insertBefore
+   */
+  @Override
+  void insertAfter(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot;
+
   /**
    * <b>Internal method:</b> Finds the right-most child of a given node.
    * <p>
@@ -1,14 +1,28 @@
 package works.hacker.mptt.classic;
 
+import works.hacker.mptt.StreamingQueries;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeNodeView;
+import works.hacker.mptt.monitor.TreeOperationListener;
+import works.hacker.mptt.monitor.TreeOperationMonitor;
+
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Transactional
 public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRepository<T> {
@@ -17,11 +31,26 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
 
   protected Class<T> entityClass;
 
+  protected final TreeOperationMonitor operations = new TreeOperationMonitor("classic");
+
   @Override
   public void setEntityClass(Class<T> entityClass) {
     this.entityClass = entityClass;
   }
 
+  @Override
+  public void setTreeOperationListener(TreeOperationListener listener) {
+    operations.setListener(listener);
+  }
+
+  /**
+   * @return the tree of the given nodes - or {@link TreeEntity#NO_TREE_ID} for the nodes of several trees
+   */
+  protected long getTreeId(Collection<T> nodes) {
+    var treeIds = nodes.stream().map(T::getTreeId).distinct().limit(2).collect(Collectors.toList());
+    return treeIds.size() == 1 ? treeIds.get(0) : TreeEntity.NO_TREE_ID;
+  }
+
   @Override
   public T createNode(String name)
       throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
@@ -31,6 +60,7 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
 
   @Override
   public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    var start = operations.start();
     ensureNodeIsNotAttachedToAnyTree(node);
 
     var treeId = generateTreeId();
@@ -39,6 +69,7 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
     node.setRgt(2L);
 
     entityManager.persist(node);
+    operations.monitor("startTree", treeId, start, 1, 0);
     return treeId;
   }
 
@@ -67,22 +98,78 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
 
   @Override
   public T findTreeRoot(Long treeId) throws NoResultException {
+    var start = operations.start();
     var query = String.format(
         "SELECT node FROM %s node" +
             " WHERE node.treeId = :treeId AND node.lft = 1",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var root = entityManager.createQuery(query, entityClass)
         .setParameter("treeId", treeId)
         .getSingleResult();
+    operations.monitor("findTreeRoot", treeId, start, 1, 0);
+    return root;
+  }
+
+  @Override
+  public List<T> findTreeRoots(Collection<Long> treeIds) {
+    if (treeIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0 AND node.treeId IN :treeIds" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName());
+    var roots = entityManager.createQuery(query, entityClass)
+        .setParameter("treeIds", treeIds)
+        .getResultList();
+    return operations.monitor("findTreeRoots",
+        treeIds.size() == 1 ? treeIds.iterator().next() : TreeEntity.NO_TREE_ID, start, roots);
+  }
+
+  @Override
+  public List<T> findAllRoots(Long afterTreeId, int maxResults) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0%s" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName(), afterTreeId == null ? "" : " AND node.treeId > :afterTreeId");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setMaxResults(maxResults);
+    if (afterTreeId != null) {
+      typedQuery.setParameter("afterTreeId", afterTreeId);
+    }
+    return operations.monitor("findAllRoots", TreeEntity.NO_TREE_ID, start, typedQuery.getResultList());
+  }
+
+  @Override
+  public List<T> findByDepth(long depth, Long... treeIds) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = :depth%s" +
+            " ORDER BY node.treeId ASC, node.lft ASC",
+        entityClass.getSimpleName(), treeIds.length == 0 ? "" : " AND node.treeId IN :treeIds");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setParameter("depth", depth);
+    if (treeIds.length > 0) {
+      typedQuery.setParameter("treeIds", Arrays.asList(treeIds));
+    }
+    return operations.monitor("findByDepth", treeIds.length == 1 ? treeIds[0] : TreeEntity.NO_TREE_ID, start,
+        typedQuery.getResultList());
   }
 
   @Override
   public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    var start = operations.start();
     ensureParentIsAttachedToTree(parent);
     ensureNodeIsNotAttachedToAnyTree(child);
 
     long childLft;
     long childRgt;
+    List<T> shifted;
 
     var rightMostChild = findRightMostChild(parent);
 
@@ -91,40 +178,101 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
 
       findByTreeIdAndLftGreaterThanEqual(parent.getTreeId(), childLft)
           .forEach(n -> n.setLft(n.getLft() + 2L));
-      findByTreeIdAndRgtGreaterThan(parent.getTreeId(), parent.getLft())
-          .forEach(n -> n.setRgt(n.getRgt() + 2L));
+      shifted = findByTreeIdAndRgtGreaterThan(parent.getTreeId(), parent.getLft());
+      shifted.forEach(n -> n.setRgt(n.getRgt() + 2L));
     } else {
       childLft = rightMostChild.getRgt() + 1;
 
       findByTreeIdAndLftGreaterThan(parent.getTreeId(), rightMostChild.getRgt())
           .forEach(n -> n.setLft(n.getLft() + 2L));
-      findByTreeIdAndRgtGreaterThan(parent.getTreeId(), rightMostChild.getRgt())
-          .forEach(n -> n.setRgt(n.getRgt() + 2L));
+      shifted = findByTreeIdAndRgtGreaterThan(parent.getTreeId(), rightMostChild.getRgt());
+      shifted.forEach(n -> n.setRgt(n.getRgt() + 2L));
     }
     childRgt = childLft + 1;
 
     child.setTreeId(parent.getTreeId());
+    child.setParentId(parent.getId());
     child.setLft(childLft);
     child.setRgt(childRgt);
     child.setDepth(parent.getDepth() + 1);
 
     entityManager.persist(child);
+    // every node with a shifted lft has a shifted rgt too
+    operations.monitor("addChild", parent.getTreeId(), start, 1, shifted.size());
+  }
+
+  @Override
+  public void insertBefore(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot {
+    var start = operations.start();
+    ensureSiblingIsNotRoot(sibling);
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var shifted = insertSibling(sibling, sibling.getLft(), node);
+    operations.monitor("insertBefore", sibling.getTreeId(), start, 1, shifted);
+  }
+
+  @Override
+  public void insertAfter(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot {
+    var start = operations.start();
+    ensureSiblingIsNotRoot(sibling);
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var shifted = insertSibling(sibling, sibling.getRgt() + 1, node);
+    operations.monitor("insertAfter", sibling.getTreeId(), start, 1, shifted);
+  }
+
+  /**
+   * Opens a gap of two at the given {@code lft} and inserts the node there, as a sibling of the given one.
+   *
+   * @return the number of nodes shifted
+   */
+  protected int insertSibling(T sibling, long lft, T node) {
+    // read before the shift - a managed sibling is shifted too
+    var treeId = sibling.getTreeId();
+    var parentId = sibling.getParentId();
+    var depth = sibling.getDepth();
+
+    findByTreeIdAndLftGreaterThanEqual(treeId, lft)
+        .forEach(n -> n.setLft(n.getLft() + 2L));
+    var shifted = findByTreeIdAndRgtGreaterThan(treeId, lft - 1);
+    shifted.forEach(n -> n.setRgt(n.getRgt() + 2L));
+
+    node.setTreeId(treeId);
+    node.setParentId(parentId);
+    node.setLft(lft);
+    node.setRgt(lft + 1);
+    node.setDepth(depth);
+
+    entityManager.persist(node);
+    // every node with a shifted lft has a shifted rgt too
+    return shifted.size();
+  }
+
+  protected void ensureSiblingIsNotRoot(T sibling) throws NodeNotInTree, NodeIsTreeRoot {
+    if (!sibling.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Sibling node not attached to any tree: %s", sibling));
+    }
+    if (sibling.getParentId() == null) {
+      throw new NodeIsTreeRoot(String.format("Root node can not have siblings: %s", sibling));
+    }
   }
 
   @Override
   public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    var start = operations.start();
     ensureParentIsAttachedToTree(parent);
     ensureChildOfParent(parent, child);
 
-    var removed = findSubTree(child);
+    var removed = createSubTreeQuery(child).getResultList();
 
     var decrement = child.getRgt() - child.getLft() + 1;
     findByTreeIdAndLftGreaterThan(parent.getTreeId(), child.getRgt())
         .forEach(n -> n.setLft(n.getLft() - decrement));
-    findByTreeIdAndRgtGreaterThan(parent.getTreeId(), child.getRgt())
-        .forEach(n -> n.setRgt(n.getRgt() - decrement));
+    var shifted = findByTreeIdAndRgtGreaterThan(parent.getTreeId(), child.getRgt());
+    shifted.forEach(n -> n.setRgt(n.getRgt() - decrement));
 
     removed.forEach(this::removeNode);
+    operations.monitor("removeChild", parent.getTreeId(), start, removed.size(), shifted.size());
     return removed;
   }
 
@@ -218,38 +366,105 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
 
   @Override
   public List<T> findChildren(T node) {
+    var start = operations.start();
     var query = String.format(
         "SELECT child" +
             " FROM %s child" +
             " WHERE child.treeId = :treeId" +
-            " AND :lft < child.lft AND child.rgt < :rgt" +
-            " AND child.depth = :depth",
+            " AND child.parentId = :parentId" +
+            " ORDER BY child.lft ASC",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var children = entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
-        .setParameter("lft", node.getLft())
-        .setParameter("rgt", node.getRgt())
-        .setParameter("depth", node.getDepth() + 1)
+        .setParameter("parentId", node.getId())
         .getResultList();
+    return operations.monitor("findChildren", node.getTreeId(), start, children);
   }
 
   @Override
   public List<T> findSubTree(T node) {
+    var start = operations.start();
+    return operations.monitor("findSubTree", node.getTreeId(), start, createSubTreeQuery(node).getResultList());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The nodes are streamed ordered by {@code lft}.
+   * <p>
+   * The nodes are read by {@link StreamingQueries#streamDetached} - thus the memory is bounded by the fetch size,
+   * not by the size of the sub-tree. The nodes managed before, e.g. the ones held by the caller, stay managed.
+   * <p>
+   * The operation is reported to the listener when the stream is closed - with the nodes streamed until then.
+   */
+  @Override
+  public Stream<T> streamSubTree(T node) {
+    var start = operations.start();
+    var query = createSubTreeQuery(node);
+    var nodes = new long[1];
+    return StreamingQueries.streamDetached(entityManager, query)
+        .peek(streamed -> nodes[0]++)
+        .onClose(() -> operations.monitor("streamSubTree", node.getTreeId(), start, nodes[0], 0));
+  }
+
+  protected TypedQuery<T> createSubTreeQuery(T node) {
     var query = String.format(
         "SELECT node" +
             " FROM %s node" +
             " WHERE node.treeId = :treeId" +
-            " AND :lft <= node.lft AND node.rgt <= :rgt",
+            " AND :lft <= node.lft AND node.rgt <= :rgt" +
+            " ORDER BY node.lft ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt());
+  }
+
+  @Override
+  public List<T> findSubTree(T node, int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException(String.format("Negative max depth: %d", maxDepth));
+    }
+    var start = operations.start();
+    var subTree = createSubTreeQuery(node, node.getDepth(), node.getDepth() + maxDepth).getResultList();
+    return operations.monitor("findSubTree", node.getTreeId(), start, subTree);
+  }
+
+  @Override
+  public List<T> findDescendantsAtDepth(T node, int relativeDepth) {
+    if (relativeDepth < 1) {
+      throw new IllegalArgumentException(String.format("Relative depth not positive: %d", relativeDepth));
+    }
+    var start = operations.start();
+    var depth = node.getDepth() + relativeDepth;
+    var descendants = createSubTreeQuery(node, depth, depth).getResultList();
+    return operations.monitor("findDescendantsAtDepth", node.getTreeId(), start, descendants);
+  }
+
+  /**
+   * @return the query of the sub-tree of a node, limited to the nodes within a range of absolute depths
+   */
+  protected TypedQuery<T> createSubTreeQuery(T node, long minDepth, long maxDepth) {
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lft AND node.rgt <= :rgt" +
+            " AND node.depth BETWEEN :minDepth AND :maxDepth" +
+            " ORDER BY node.lft ASC",
         entityClass.getSimpleName());
     return entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
         .setParameter("lft", node.getLft())
         .setParameter("rgt", node.getRgt())
-        .getResultList();
+        .setParameter("minDepth", minDepth)
+        .setParameter("maxDepth", maxDepth);
   }
 
   @Override
   public List<T> findAncestors(T node) {
+    var start = operations.start();
     var query = String.format(
         "SELECT node" +
             " FROM %s node" +
@@ -257,28 +472,290 @@ public abstract class MpttRepositoryImpl<T extends MpttEntity> implements MpttRe
             " AND node.lft < :lft AND :rgt < node.rgt" +
             " ORDER BY node.lft ASC",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var ancestors = entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
         .setParameter("lft", node.getLft())
         .setParameter("rgt", node.getRgt())
         .getResultList();
+    return operations.monitor("findAncestors", node.getTreeId(), start, ancestors);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query on {@code (treeId, parentId)}.
+   */
   @Override
-  public Optional<T> findParent(T node) {
+  public Map<T, List<T>> findChildren(Collection<T> nodes) {
+    if (nodes.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT child.parentId, child" +
+            " FROM %s child" +
+            " WHERE child.treeId IN :treeIds" +
+            " AND child.parentId IN :ids" +
+            " ORDER BY child.lft ASC",
+        entityClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("treeIds", getTreeIds(nodes))
+        .setParameter("ids", getIds(nodes))
+        .getResultList();
+    return operations.monitor("findChildren", getTreeId(nodes), start, groupByNode(nodes, rows));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query - the nodes are joined with their descendants.
+   */
+  @Override
+  public Map<T, List<T>> findSubTrees(Collection<T> nodes) {
+    if (nodes.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node.id, descendant" +
+            " FROM %s node, %s descendant" +
+            " WHERE node.id IN :ids" +
+            " AND descendant.treeId = node.treeId" +
+            " AND node.lft <= descendant.lft AND descendant.rgt <= node.rgt" +
+            " ORDER BY descendant.lft ASC",
+        entityClass.getSimpleName(), entityClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("ids", getIds(nodes))
+        .getResultList();
+    return operations.monitor("findSubTrees", getTreeId(nodes), start, groupByNode(nodes, rows));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query - the nodes are joined with their ancestors.
+   */
+  @Override
+  public Map<T, List<T>> findAncestors(Collection<T> nodes) {
+    if (nodes.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node.id, ancestor" +
+            " FROM %s node, %s ancestor" +
+            " WHERE node.id IN :ids" +
+            " AND ancestor.treeId = node.treeId" +
+            " AND ancestor.lft < node.lft AND node.rgt < ancestor.rgt" +
+            " ORDER BY ancestor.lft ASC",
+        entityClass.getSimpleName(), entityClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("ids", getIds(nodes))
+        .getResultList();
+    return operations.monitor("findAncestors", getTreeId(nodes), start, groupByNode(nodes, rows));
+  }
+
+  protected List<Long> getIds(Collection<T> nodes) {
+    return nodes.stream().map(T::getId).collect(Collectors.toList());
+  }
+
+  protected List<Long> getTreeIds(Collection<T> nodes) {
+    return nodes.stream().map(T::getTreeId).distinct().collect(Collectors.toList());
+  }
+
+  /**
+   * Groups the rows of {@code [node.id, related node]} by the given nodes.
+   */
+  protected Map<T, List<T>> groupByNode(Collection<T> nodes, List<Object[]> rows) {
+    var byId = new HashMap<Long, List<T>>();
+    for (var row : rows) {
+      byId.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(entityClass.cast(row[1]));
+    }
+    var result = new LinkedHashMap<T, List<T>>();
+    nodes.forEach(node -> result.put(node, byId.getOrDefault(node.getId(), new ArrayList<>())));
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The pending changes are flushed first - then a managed node is refreshed in place, and for a detached node a
+   * managed instance is returned.
+   */
+  @Override
+  public T refresh(T node) throws NoResultException {
+    var start = operations.start();
+    entityManager.flush();
+    if (entityManager.contains(node)) {
+      entityManager.refresh(node);
+      operations.monitor("refresh", node.getTreeId(), start, 1, 0);
+      return node;
+    }
+    var refreshed = entityManager.find(entityClass, node.getId());
+    if (refreshed == null) {
+      throw new NoResultException(String.format("No node with id %d", node.getId()));
+    }
+    operations.monitor("refresh", node.getTreeId(), start, 1, 0);
+    return refreshed;
+  }
+
+  @Override
+  public List<T> findLeaves(T node) {
+    var start = operations.start();
     var query = String.format(
         "SELECT node" +
             " FROM %s node" +
             " WHERE node.treeId = :treeId" +
-            " AND node.lft < :lft AND :rgt < node.rgt" +
-            " ORDER BY node.lft DESC",
+            " AND :lft < node.lft AND node.rgt < :rgt" +
+            " AND node.rgt = node.lft + 1" +
+            " ORDER BY node.lft ASC",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var leaves = entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .getResultList();
+    return operations.monitor("findLeaves", node.getTreeId(), start, leaves);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query selecting the {@link #getProjection}.
+   */
+  @Override
+  public List<TreeNodeView> findChildrenProjected(T node) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT %s" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.parentId = :parentId" +
+            " ORDER BY node.lft ASC",
+        getProjection(), entityClass.getSimpleName());
+    var views = entityManager.createQuery(query, TreeNodeView.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("parentId", node.getId())
+        .getResultList();
+    return operations.monitor("findChildrenProjected", node.getTreeId(), start, views);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query selecting the {@link #getProjection}.
+   */
+  @Override
+  public List<TreeNodeView> findSubTreeProjected(T node) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT %s" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lft AND node.rgt <= :rgt" +
+            " ORDER BY node.lft ASC",
+        getProjection(), entityClass.getSimpleName());
+    var views = entityManager.createQuery(query, TreeNodeView.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft())
+        .setParameter("rgt", node.getRgt())
+        .getResultList();
+    return operations.monitor("findSubTreeProjected", node.getTreeId(), start, views);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query selecting the {@link #getProjection}.
+   */
+  @Override
+  public List<TreeNodeView> findAncestorsProjected(T node) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT %s" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.lft < :lft AND :rgt < node.rgt" +
+            " ORDER BY node.lft ASC",
+        getProjection(), entityClass.getSimpleName());
+    var views = entityManager.createQuery(query, TreeNodeView.class)
         .setParameter("treeId", node.getTreeId())
         .setParameter("lft", node.getLft())
         .setParameter("rgt", node.getRgt())
-        .setMaxResults(1)
-        .getResultList().stream().findFirst();
+        .getResultList();
+    return operations.monitor("findAncestorsProjected", node.getTreeId(), start, views);
+  }
+
+  /**
+   * The JPQL constructor expression of the projected finders, on the alias {@code node}.
+   * <p>
+   * Override it to project extra columns of the entity - into a subclass of {@link TreeNodeView}, e.g.:
+   * <pre>
+   * return String.format("NEW %s(node.id, node.parentId, node.name, node.depth, node.lft, node.rgt, node.color)",
+   *     ColoredNodeView.class.getName());
+   * </pre>
+   *
+   * @return the select clause of the projected finders
+   */
+  protected String getProjection() {
+    return String.format("NEW %s(node.id, node.parentId, node.name, node.depth, node.lft, node.rgt)",
+        TreeNodeView.class.getName());
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * An exact lookup - the next sibling starts right after the sub-tree of the node, i.e. at {@code rgt + 1}.
+   */
+  @Override
+  public Optional<T> findNextSibling(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId AND node.lft = :lft",
+        entityClass.getSimpleName());
+    var sibling = Optional.ofNullable(getSingleResultOrNull(
+        entityManager.createQuery(query, entityClass)
+            .setParameter("treeId", node.getTreeId())
+            .setParameter("lft", node.getRgt() + 1)));
+    operations.monitor("findNextSibling", node.getTreeId(), start, sibling.isPresent() ? 1 : 0, 0);
+    return sibling;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * An exact lookup - the sub-tree of the previous sibling ends right before the node, i.e. at {@code lft - 1}.
+   */
+  @Override
+  public Optional<T> findPreviousSibling(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId AND node.rgt = :rgt",
+        entityClass.getSimpleName());
+    var sibling = Optional.ofNullable(getSingleResultOrNull(
+        entityManager.createQuery(query, entityClass)
+            .setParameter("treeId", node.getTreeId())
+            .setParameter("rgt", node.getLft() - 1)));
+    operations.monitor("findPreviousSibling", node.getTreeId(), start, sibling.isPresent() ? 1 : 0, 0);
+    return sibling;
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    var start = operations.start();
+    var parent = Optional.ofNullable(entityManager.find(entityClass, node.getParentId()));
+    operations.monitor("findParent", node.getTreeId(), start, parent.isPresent() ? 1 : 0, 0);
+    return parent;
+  }
 }
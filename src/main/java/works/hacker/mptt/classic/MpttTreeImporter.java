@@ -0,0 +1,52 @@
+package works.hacker.mptt.classic;
+
+import works.hacker.mptt.TreeImporter;
+import works.hacker.mptt.TreeMigration;
+import works.hacker.mptt.TreeTable;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link TreeImporter} for the classic MPTT structure - {@code lft} is assigned when a node is reached,
+ * {@code rgt} when its sub-tree is complete.
+ */
+public class MpttTreeImporter extends TreeImporter<MpttEntity> {
+  public MpttTreeImporter(DataSource dataSource, TreeTable table) {
+    super(dataSource, table);
+  }
+
+  @Override
+  protected MpttEntity newNode(String name) {
+    return new MpttEntity(name);
+  }
+
+  @Override
+  protected void placeChild(MpttEntity parent, MpttEntity youngest, MpttEntity child) {
+    child.setLft(youngest == null ? parent.getLft() + 1 : youngest.getRgt() + 1);
+    child.setRgt(child.getLft() + 1);
+  }
+
+  @Override
+  protected void closeNode(MpttEntity node, MpttEntity youngest) {
+    node.setRgt(youngest == null ? node.getLft() + 1 : youngest.getRgt() + 1);
+  }
+
+  @Override
+  protected List<String> intervalProperties() {
+    return List.of("lft", "rgt");
+  }
+
+  @Override
+  protected void bindInterval(PreparedStatement statement, int index, MpttEntity node) throws SQLException {
+    statement.setLong(index, node.getLft());
+    statement.setLong(index + 1, node.getRgt());
+  }
+
+  @Override
+  protected TreeMigration newMigration() {
+    return new MpttTreeMigration(dataSource, table);
+  }
+}
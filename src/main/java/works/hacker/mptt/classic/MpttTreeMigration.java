@@ -0,0 +1,21 @@
+package works.hacker.mptt.classic;
+
+import works.hacker.mptt.TreeMigration;
+import works.hacker.mptt.TreeTable;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * {@link TreeMigration} for the classic MPTT structure - the nodes are ordered by {@code lft} and {@code rgt}.
+ */
+public class MpttTreeMigration extends TreeMigration {
+  public MpttTreeMigration(DataSource dataSource, TreeTable table) {
+    super(dataSource, table);
+  }
+
+  @Override
+  protected List<String> boundProperties() {
+    return List.of("lft", "rgt");
+  }
+}
@@ -0,0 +1,45 @@
+package works.hacker.mptt.classic;
+
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.TreeVerifier;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * {@link TreeVerifier} for the classic MPTT structure - besides the nesting, the bounds must be numbered
+ * contiguously from {@code 1} to {@code 2n}, each exactly once; thus a gap or a duplicate is reported as well.
+ */
+public class MpttTreeVerifier extends TreeVerifier {
+  public MpttTreeVerifier(DataSource dataSource, TreeTable table) {
+    super(dataSource, table);
+  }
+
+  @Override
+  protected List<String> boundProperties() {
+    return List.of("lft", "rgt");
+  }
+
+  @Override
+  protected boolean contains(Node parent, Node node) {
+    return parent.getLft() < node.getLft() && node.getRgt() < parent.getRgt();
+  }
+
+  @Override
+  protected boolean isContiguous() {
+    return true;
+  }
+
+  @Override
+  protected long firstBound() {
+    return 1;
+  }
+
+  @Override
+  protected void verifyNode(ResultSet resultSet, Node node, Report report) {
+    if (node.getRgt() <= node.getLft()) {
+      addViolation(report, node, String.format("Empty interval [%d, %d]", node.getLft(), node.getRgt()));
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package works.hacker.mptt.closure;
+
+import works.hacker.mptt.TreeEntity;
+
+import javax.persistence.MappedSuperclass;
+
+/**
+ * Node of a closure table tree structure.
+ * <p>
+ * The structure of the tree is not stored in the node, but in a separate table of {@link ClosureRelation}s -
+ * one row per pair of ancestor and descendant (including each node paired with itself), together with the
+ * distance between the two.
+ * <p>
+ * There are no nested intervals to maintain, so {@code lft} holds the ordinal of the node amongst its siblings
+ * and {@code rgt} mirrors it.
+ *
+ * @see ClosureRelation
+ * @see ClosureRepositoryImpl
+ */
+@MappedSuperclass
+public class ClosureEntity extends TreeEntity<Long> {
+  public ClosureEntity() {
+    super();
+  }
+
+  public ClosureEntity(String name) {
+    super(name);
+  }
+
+  @Override
+  public Long getStartLft() {
+    return 1L;
+  }
+
+  @Override
+  public Long getStartRgt() {
+    return 1L;
+  }
+
+  @Override
+  protected String toNodeString() {
+    return String.format("[treeId: %d | depth: %d | ordinal: %d]", treeId, getDepth(), lft);
+  }
+}
@@ -0,0 +1,80 @@
+package works.hacker.mptt.closure;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.MappedSuperclass;
+
+/**
+ * Row of the closure table - a pair of ancestor and descendant node ids and the distance between them.
+ * <p>
+ * Every node is paired with itself at distance 0, so a node at depth {@code d} is the descendant in
+ * {@code d + 1} rows.
+ * <p>
+ * Entities should declare indexes on {@code (ancestorId, distance)} and {@code (descendantId, distance)}, see
+ * {@code ClosureNodeRelation}.
+ *
+ * @see ClosureEntity
+ * @see ClosureRepositoryImpl
+ */
+@MappedSuperclass
+public class ClosureRelation {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  @Column(nullable = false)
+  private long treeId;
+
+  @Column(nullable = false)
+  private long ancestorId;
+
+  @Column(nullable = false)
+  private long descendantId;
+
+  @Column(nullable = false)
+  private long distance;
+
+  public long getId() {
+    return id;
+  }
+
+  public long getTreeId() {
+    return treeId;
+  }
+
+  public void setTreeId(long treeId) {
+    this.treeId = treeId;
+  }
+
+  public long getAncestorId() {
+    return ancestorId;
+  }
+
+  public void setAncestorId(long ancestorId) {
+    this.ancestorId = ancestorId;
+  }
+
+  public long getDescendantId() {
+    return descendantId;
+  }
+
+  public void setDescendantId(long descendantId) {
+    this.descendantId = descendantId;
+  }
+
+  public long getDistance() {
+    return distance;
+  }
+
+  public void setDistance(long distance) {
+    this.distance = distance;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("[treeId: %d | ancestorId: %d | descendantId: %d | distance: %d]",
+        treeId, ancestorId, descendantId, distance);
+  }
+}
@@ -0,0 +1,63 @@
+package works.hacker.mptt.closure;
+
+import works.hacker.mptt.TreeRepository;
+
+import java.util.Optional;
+
+public interface ClosureRepository<T extends ClosureEntity, R extends ClosureRelation> extends TreeRepository<T> {
+  /**
+   * Sets the class of the closure table entity.
+   * <p>
+   * Analogical to {@link TreeRepository#setEntityClass} - the relation class is used when creating the
+   * JPQL-queries dynamically.
+   *
+   * @param relationClass the class type of the entity extending {@link ClosureRelation}
+   */
+  void setRelationClass(Class<R> relationClass);
+
+  /**
+   * <b>Internal method:</b> Finds the youngest / last-added child of a given node.
+   * <p>
+   * This method should not be called directly, but {@link ClosureRepository#addChild} depends on it.
+   *
+   * @param parent the parent node for which to find the youngest child
+   * @return an optional of the youngest / last-added child; or empty optional, if there are no children
+   */
+  Optional<T> findYoungestChild(T parent);
+
+  /**
+   * Moves a node and its sub-tree to become the youngest child of another node in the same tree.
+   * <p>
+   * Given the following tree representation:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   ├── subChild1
+   *     │   │   └── subSubChild
+   *     │   └── subChild2
+   *     └── child2
+   *         └── lastSubChild
+   * </pre>
+   * When {@code tagTreeRepo.moveSubTree(subChild1, child2)}, then the resulting tree should be:
+   * <pre>
+   * .
+   * └── root
+   *     ├── child1
+   *     │   └── subChild2
+   *     └── child2
+   *         ├── lastSubChild
+   *         └── subChild1
+   *             └── subSubChild
+   * </pre>
+   * The closure rows are replaced by one {@code DELETE} and one {@code INSERT ... SELECT}, the depths by one
+   * {@code UPDATE} - independent of the size of the sub-tree. The moved nodes loaded in the persistence
+   * context are detached, as bulk statements bypass it; the {@code node} instance itself is updated.
+   *
+   * @param node      the root of the sub-tree to move; must not be null; must not be the root of the tree
+   * @param newParent the new parent node; must not be null; must not be part of the sub-tree of {@code node}
+   * @throws NodeNotInTree            in case the nodes are not part of the same tree
+   * @throws IllegalArgumentException in case {@code newParent} is part of the sub-tree of {@code node}
+   */
+  void moveSubTree(T node, T newParent) throws NodeNotInTree;
+}
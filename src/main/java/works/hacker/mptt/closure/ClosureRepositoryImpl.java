@@ -0,0 +1,427 @@
+package works.hacker.mptt.closure;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+@Transactional
+public abstract class ClosureRepositoryImpl<T extends ClosureEntity, R extends ClosureRelation>
+    implements ClosureRepository<T, R> {
+  @PersistenceContext
+  EntityManager entityManager;
+
+  protected Class<T> entityClass;
+
+  protected Class<R> relationClass;
+
+  @Override
+  public void setEntityClass(Class<T> entityClass) {
+    this.entityClass = entityClass;
+  }
+
+  @Override
+  public void setRelationClass(Class<R> relationClass) {
+    this.relationClass = relationClass;
+  }
+
+  @Override
+  public T createNode(String name)
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
+      InstantiationException {
+    return entityClass.getDeclaredConstructor(String.class).newInstance(name);
+  }
+
+  protected R createRelation(long treeId, long ancestorId, long descendantId, long distance) {
+    try {
+      var relation = relationClass.getDeclaredConstructor().newInstance();
+      relation.setTreeId(treeId);
+      relation.setAncestorId(ancestorId);
+      relation.setDescendantId(descendantId);
+      relation.setDistance(distance);
+      return relation;
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          String.format("Can not instantiate relation class %s", relationClass.getSimpleName()), e);
+    }
+  }
+
+  @Override
+  public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var treeId = generateTreeId();
+    node.setDefaults();
+    node.setTreeId(treeId);
+
+    entityManager.persist(node);
+    entityManager.persist(createRelation(treeId, node.getId(), node.getId(), 0L));
+    return treeId;
+  }
+
+  protected void ensureNodeIsNotAttachedToAnyTree(T node) throws NodeAlreadyAttachedToTree {
+    if (node.hasTreeId()) {
+      throw new NodeAlreadyAttachedToTree(
+          String.format("Node already has treeId set to %d", node.getTreeId()));
+    }
+  }
+
+  protected Long generateTreeId() {
+    Long treeId = new Random().nextLong();
+    var query = String.format(
+        "SELECT node FROM %s node WHERE node.treeId = :treeId",
+        entityClass.getSimpleName());
+    try {
+      entityManager.createQuery(query, entityClass)
+          .setParameter("treeId", treeId)
+          .setMaxResults(1)
+          .getSingleResult();
+    } catch (NoResultException e) {
+      return treeId;
+    }
+    return generateTreeId();
+  }
+
+  @Override
+  public T findTreeRoot(Long treeId) throws NoResultException {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId AND node.depth = 0",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", treeId)
+        .getSingleResult();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The pending changes are flushed first - then a managed node is refreshed in place, and for a detached node a
+   * managed instance is returned.
+   */
+  @Override
+  public T refresh(T node) throws NoResultException {
+    entityManager.flush();
+    if (entityManager.contains(node)) {
+      entityManager.refresh(node);
+      return node;
+    }
+    var refreshed = entityManager.find(entityClass, node.getId());
+    if (refreshed == null) {
+      throw new NoResultException(String.format("No node with id %d", node.getId()));
+    }
+    return refreshed;
+  }
+
+  @Override
+  public List<T> findTreeRoots(Collection<Long> treeIds) {
+    if (treeIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0 AND node.treeId IN :treeIds" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeIds", treeIds)
+        .getResultList();
+  }
+
+  @Override
+  public List<T> findAllRoots(Long afterTreeId, int maxResults) {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0%s" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName(), afterTreeId == null ? "" : " AND node.treeId > :afterTreeId");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setMaxResults(maxResults);
+    if (afterTreeId != null) {
+      typedQuery.setParameter("afterTreeId", afterTreeId);
+    }
+    return typedQuery.getResultList();
+  }
+
+  @Override
+  public List<T> findByDepth(long depth, Long... treeIds) {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = :depth%s" +
+            " ORDER BY node.treeId ASC, node.id ASC",
+        entityClass.getSimpleName(), treeIds.length == 0 ? "" : " AND node.treeId IN :treeIds");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setParameter("depth", depth);
+    if (treeIds.length > 0) {
+      typedQuery.setParameter("treeIds", Arrays.asList(treeIds));
+    }
+    return typedQuery.getResultList();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Besides the new child, the closure rows of the new child are written - its self-reference and a single
+   * {@code INSERT ... SELECT} copying the {@code depth + 1} ancestor rows of the parent.
+   */
+  @Override
+  public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    ensureParentIsAttachedToTree(parent);
+    ensureNodeIsNotAttachedToAnyTree(child);
+
+    var ordinal = findYoungestChild(parent).map(youngest -> youngest.getLft() + 1).orElse(1L);
+    child.setTreeId(parent.getTreeId());
+    child.setParentId(parent.getId());
+    child.setDepth(parent.getDepth() + 1);
+    child.setLft(ordinal);
+    child.setRgt(ordinal);
+
+    entityManager.persist(child);
+    entityManager.persist(createRelation(child.getTreeId(), child.getId(), child.getId(), 0L));
+
+    var statement = String.format(
+        "INSERT INTO %s (treeId, ancestorId, descendantId, distance)" +
+            " SELECT r.treeId, r.ancestorId, child.id, r.distance + 1" +
+            " FROM %s r, %s child" +
+            " WHERE r.descendantId = :parentId AND child.id = :childId",
+        relationClass.getSimpleName(), relationClass.getSimpleName(), entityClass.getSimpleName());
+    entityManager.createQuery(statement)
+        .setParameter("parentId", parent.getId())
+        .setParameter("childId", child.getId())
+        .executeUpdate();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The nodes and their closure rows are removed by bulk statements, thus the removed nodes are detached from
+   * the persistence context.
+   */
+  @Override
+  public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    ensureParentIsAttachedToTree(parent);
+    ensureChildOfParent(parent, child);
+
+    var removed = findSubTree(child);
+    var ids = removed.stream().map(T::getId).collect(Collectors.toList());
+
+    entityManager.flush();
+    entityManager.createQuery(String.format(
+        "DELETE FROM %s r WHERE r.descendantId IN :ids",
+        relationClass.getSimpleName()))
+        .setParameter("ids", ids)
+        .executeUpdate();
+    entityManager.createQuery(String.format(
+        "DELETE FROM %s node WHERE node.id IN :ids",
+        entityClass.getSimpleName()))
+        .setParameter("ids", ids)
+        .executeUpdate();
+    removed.forEach(this::detachNode);
+
+    return removed;
+  }
+
+  @Override
+  public void moveSubTree(T node, T newParent) throws NodeNotInTree {
+    ensureParentIsAttachedToTree(newParent);
+    if (node.getTreeId() != newParent.getTreeId()) {
+      throw new NodeNotInTree(
+          String.format("Nodes not in same tree - parent: %s; child %s", newParent, node));
+    }
+    if (isDescendant(node, newParent, 0L)) {
+      throw new IllegalArgumentException(
+          String.format("Can not move %s into its own sub-tree: %s", node, newParent));
+    }
+
+    var ordinal = findYoungestChild(newParent).map(youngest -> youngest.getLft() + 1).orElse(1L);
+    var depthDelta = newParent.getDepth() + 1 - node.getDepth();
+    var moved = findSubTree(node);
+    var ids = moved.stream().map(T::getId).collect(Collectors.toList());
+
+    entityManager.flush();
+    // detach the sub-tree from its old ancestors - the rows within the sub-tree are kept
+    entityManager.createQuery(String.format(
+        "DELETE FROM %s r" +
+            " WHERE r.descendantId IN :ids AND r.ancestorId NOT IN :ids",
+        relationClass.getSimpleName()))
+        .setParameter("ids", ids)
+        .executeUpdate();
+    // attach the sub-tree to the new ancestors - the cross product of their rows and the sub-tree rows
+    entityManager.createQuery(String.format(
+        "INSERT INTO %s (treeId, ancestorId, descendantId, distance)" +
+            " SELECT a.treeId, a.ancestorId, d.descendantId, a.distance + d.distance + 1" +
+            " FROM %s a, %s d" +
+            " WHERE a.descendantId = :newParentId AND d.ancestorId = :nodeId",
+        relationClass.getSimpleName(), relationClass.getSimpleName(), relationClass.getSimpleName()))
+        .setParameter("newParentId", newParent.getId())
+        .setParameter("nodeId", node.getId())
+        .executeUpdate();
+    entityManager.createQuery(String.format(
+        "UPDATE %s node SET node.depth = node.depth + :depthDelta WHERE node.id IN :ids",
+        entityClass.getSimpleName()))
+        .setParameter("depthDelta", depthDelta)
+        .setParameter("ids", ids)
+        .executeUpdate();
+    entityManager.createQuery(String.format(
+        "UPDATE %s node SET node.parentId = :parentId, node.lft = :ordinal, node.rgt = :ordinal" +
+            " WHERE node.id = :id",
+        entityClass.getSimpleName()))
+        .setParameter("parentId", newParent.getId())
+        .setParameter("ordinal", ordinal)
+        .setParameter("id", node.getId())
+        .executeUpdate();
+    moved.forEach(this::detachNode);
+
+    node.setParentId(newParent.getId());
+    node.setDepth(node.getDepth() + depthDelta);
+    node.setLft(ordinal);
+    node.setRgt(ordinal);
+  }
+
+  protected void ensureParentIsAttachedToTree(T parent) throws NodeNotInTree {
+    if (!parent.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Parent node not attached to any tree: %s", parent));
+    }
+  }
+
+  protected void ensureChildOfParent(T parent, T child) throws NodeNotChildOfParent, NodeNotInTree {
+    if (child.getTreeId() != parent.getTreeId()) {
+      throw new NodeNotInTree(
+          String.format("Nodes not in same tree - parent: %s; child %s", parent, child));
+    }
+    if (!isDescendant(parent, child, 1L)) {
+      throw new NodeNotChildOfParent(String.format("%s not parent of %s", parent, child));
+    }
+  }
+
+  protected boolean isDescendant(T ancestor, T descendant, long minDistance) {
+    var query = String.format(
+        "SELECT COUNT(r) FROM %s r" +
+            " WHERE r.ancestorId = :ancestorId AND r.descendantId = :descendantId" +
+            " AND r.distance >= :minDistance",
+        relationClass.getSimpleName());
+    return entityManager.createQuery(query, Long.class)
+        .setParameter("ancestorId", ancestor.getId())
+        .setParameter("descendantId", descendant.getId())
+        .setParameter("minDistance", minDistance)
+        .getSingleResult() > 0;
+  }
+
+  protected void detachNode(T node) {
+    if (entityManager.contains(node)) {
+      entityManager.detach(node);
+    }
+  }
+
+  @Override
+  public Optional<T> findYoungestChild(T parent) {
+    var query = String.format(
+        "SELECT child" +
+            " FROM %s child, %s r" +
+            " WHERE r.ancestorId = :parentId AND r.distance = 1" +
+            " AND child.id = r.descendantId" +
+            " ORDER BY child.lft DESC",
+        entityClass.getSimpleName(), relationClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("parentId", parent.getId())
+        .setMaxResults(1)
+        .getResultList().stream().findFirst();
+  }
+
+  @Override
+  public List<T> findChildren(T node) {
+    var query = String.format(
+        "SELECT child" +
+            " FROM %s child, %s r" +
+            " WHERE r.ancestorId = :parentId AND r.distance = 1" +
+            " AND child.id = r.descendantId" +
+            " ORDER BY child.lft ASC",
+        entityClass.getSimpleName(), relationClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("parentId", node.getId())
+        .getResultList();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The sub-tree is loaded by a single join, together with the parent id of each node, and put in pre-order in
+   * memory.
+   */
+  @Override
+  public List<T> findSubTree(T node) {
+    var query = String.format(
+        "SELECT node, parent.ancestorId" +
+            " FROM %s node" +
+            " JOIN %s r ON r.descendantId = node.id" +
+            " LEFT JOIN %s parent ON parent.descendantId = node.id AND parent.distance = 1" +
+            " WHERE r.ancestorId = :id" +
+            " ORDER BY node.lft ASC",
+        entityClass.getSimpleName(), relationClass.getSimpleName(), relationClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("id", node.getId())
+        .getResultList();
+
+    T subTreeRoot = null;
+    var children = new HashMap<Long, List<T>>();
+    for (var row : rows) {
+      @SuppressWarnings("unchecked")
+      var current = (T) row[0];
+      if (current.getId() == node.getId()) {
+        subTreeRoot = current;
+      } else {
+        children.computeIfAbsent((Long) row[1], parentId -> new ArrayList<>()).add(current);
+      }
+    }
+
+    var subTree = new ArrayList<T>(rows.size());
+    if (subTreeRoot != null) {
+      addPreOrder(subTreeRoot, children, subTree);
+    }
+    return subTree;
+  }
+
+  protected void addPreOrder(T node, Map<Long, List<T>> children, List<T> subTree) {
+    subTree.add(node);
+    for (var child : children.getOrDefault(node.getId(), List.of())) {
+      addPreOrder(child, children, subTree);
+    }
+  }
+
+  @Override
+  public List<T> findAncestors(T node) {
+    var query = String.format(
+        "SELECT ancestor" +
+            " FROM %s ancestor, %s r" +
+            " WHERE r.descendantId = :id AND r.distance > 0" +
+            " AND ancestor.id = r.ancestorId" +
+            " ORDER BY r.distance DESC",
+        entityClass.getSimpleName(), relationClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("id", node.getId())
+        .getResultList();
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    var query = String.format(
+        "SELECT parent" +
+            " FROM %s parent, %s r" +
+            " WHERE r.descendantId = :id AND r.distance = 1" +
+            " AND parent.id = r.ancestorId",
+        entityClass.getSimpleName(), relationClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("id", node.getId())
+        .getResultList().stream().findFirst();
+  }
+}
@@ -5,11 +5,32 @@ import works.hacker.mptt.TreeEntity;
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
 
+/**
+ * Nested intervals with dyadic fractions (fractions with power-of-two denominators) as interval bounds.
+ * <p>
+ * Each bound is stored three times:
+ * <ul>
+ * <li><b>lftN / lftD</b> and <b>rgtN / rgtD</b> - the exact numerator and denominator</li>
+ * <li><b>lftScaled</b> and <b>rgtScaled</b> - the exact fixed-point value, i.e. the fraction scaled to the
+ * common denominator {@link #SCALE}; used for all range predicates</li>
+ * <li><b>lft</b> and <b>rgt</b> - the approximated {@code Double} value; kept for display only, as it can not
+ * distinguish bounds once the denominators exceed 2^53</li>
+ * </ul>
+ * <p>
+ * Entities should declare an index on {@code (treeId, lftScaled, rgtScaled)}, see {@code DyadicNode}.
+ * The fixed-point bounds of the trees created before they were introduced are set by the
+ * {@link DyadicTreeMigration}.
+ *
+ * @see DyadicRepositoryImpl
+ */
 @MappedSuperclass
 public class DyadicEntity extends TreeEntity<Double> {
   public static final long START = 0;
   public static final long END = 1;
 
+  public static final int SCALE_BITS = 62;
+  public static final long SCALE = 1L << SCALE_BITS;
+
   @Column(nullable = false)
   private long lftN;
 
@@ -22,6 +43,12 @@ public class DyadicEntity extends TreeEntity<Double> {
   @Column(nullable = false)
   private long rgtD;
 
+  @Column(nullable = false)
+  private long lftScaled;
+
+  @Column(nullable = false)
+  private long rgtScaled;
+
   public DyadicEntity() {
     super();
   }
@@ -40,8 +67,8 @@ public class DyadicEntity extends TreeEntity<Double> {
     this.rgtN = END;
     this.rgtD = END;
 
-    this.lft = (double) lftN / (double) lftD;
-    this.rgt = (double) rgtN / (double) rgtD;
+    updateHead();
+    updateTail();
   }
 
   @Override
@@ -54,12 +81,94 @@ public class DyadicEntity extends TreeEntity<Double> {
     return (double) END;
   }
 
+  /**
+   * Converts a dyadic fraction to its exact fixed-point representation.
+   *
+   * @param numerator   the numerator of the fraction
+   * @param denominator the denominator of the fraction; must be a power of two not greater than {@link #SCALE}
+   * @return {@code numerator / denominator * SCALE}
+   */
+  public static long toScaled(long numerator, long denominator) {
+    if (denominator <= 0 || denominator > SCALE || Long.bitCount(denominator) != 1) {
+      throw new IllegalArgumentException(
+          String.format("Not a dyadic denominator within the fixed-point precision: %d", denominator));
+    }
+    return numerator << (SCALE_BITS - Long.numberOfTrailingZeros(denominator));
+  }
+
+  /**
+   * Positions the interval of the first child of a parent - the lower half of the interval of the parent.
+   * <p>
+   * The single placement of the engine - used by {@link DyadicRepositoryImpl#addChild} as well as by the
+   * {@link DyadicTreeImporter}, so the trees added node by node and the imported ones are the same. Sets the bounds
+   * only, not the {@code treeId}, {@code parentId} and {@code depth}.
+   *
+   * @param parent the parent node
+   * @param child  the child node
+   */
+  public static void placeFirstChild(DyadicEntity parent, DyadicEntity child) {
+    child.setLftN(parent.getLftN());
+    child.setLftD(parent.getLftD());
+
+    // the midpoint of the parent interval - bring both bounds to their common denominator first
+    var denominator = Math.max(parent.getLftD(), parent.getRgtD());
+    child.setRgtN(parent.getLftN() * (denominator / parent.getLftD()) +
+        parent.getRgtN() * (denominator / parent.getRgtD()));
+    child.setRgtD(2 * denominator);
+  }
+
+  /**
+   * Positions the interval of the next child after a given one - the lower half of the rest of the interval of
+   * their parent. Sets the bounds only, as {@link #placeFirstChild}.
+   *
+   * @param sibling the preceding child node
+   * @param child   the child node
+   */
+  public static void placeNextChild(DyadicEntity sibling, DyadicEntity child) {
+    child.setLftN(sibling.getRgtN());
+    child.setLftD(sibling.getRgtD());
+    child.setRgtN(2 * sibling.getRgtN() + 1);
+    child.setRgtD(2 * sibling.getRgtD());
+  }
+
+  /**
+   * Sets the {@code lft} to the dyadic fraction - in lowest terms - of a fixed-point value.
+   *
+   * @param scaled the fixed-point value, as by {@link #toScaled}
+   */
+  public void setLftFromScaled(long scaled) {
+    this.lftN = numeratorOf(scaled);
+    this.lftD = denominatorOf(scaled);
+    updateHead();
+  }
+
+  /**
+   * Sets the {@code rgt} to the dyadic fraction - in lowest terms - of a fixed-point value.
+   *
+   * @param scaled the fixed-point value, as by {@link #toScaled}
+   */
+  public void setRgtFromScaled(long scaled) {
+    this.rgtN = numeratorOf(scaled);
+    this.rgtD = denominatorOf(scaled);
+    updateTail();
+  }
+
+  private static long numeratorOf(long scaled) {
+    return scaled == 0 ? 0 : scaled >> Long.numberOfTrailingZeros(scaled);
+  }
+
+  private static long denominatorOf(long scaled) {
+    return scaled == 0 ? 1 : 1L << (SCALE_BITS - Long.numberOfTrailingZeros(scaled));
+  }
+
   private void updateHead() {
     this.lft = (double) lftN / (double) lftD;
+    this.lftScaled = toScaled(lftN, lftD);
   }
 
   private void updateTail() {
     this.rgt = (double) rgtN / (double) rgtD;
+    this.rgtScaled = toScaled(rgtN, rgtD);
   }
 
   public long getLftN() {
@@ -100,6 +209,14 @@ public class DyadicEntity extends TreeEntity<Double> {
     updateTail();
   }
 
+  public long getLftScaled() {
+    return lftScaled;
+  }
+
+  public long getRgtScaled() {
+    return rgtScaled;
+  }
+
   @Override
   protected String toNodeString() {
     return String.format("[treeId: %d | lft: %d/%d | rgt: %d/%d]", treeId, lftN, lftD, rgtN, rgtD);
@@ -1,10 +1,53 @@
 package works.hacker.mptt.dyadic;
 
-import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.SiblingTreeRepository;
+import works.hacker.mptt.monitor.TreeOperationListener;
 
 import java.util.Optional;
 
-public interface DyadicRepository<T extends DyadicEntity> extends TreeRepository<T> {
+public interface DyadicRepository<T extends DyadicEntity> extends SiblingTreeRepository<T> {
+  /**
+   * Sets the listener of the completed operations - e.g. a {@link works.hacker.mptt.monitor.MicrometerTreeMetrics}.
+   * <p>
+   * Defaults to {@link TreeOperationListener#NOOP}.
+   *
+   * @param listener the listener; must not be null
+   */
+  void setTreeOperationListener(TreeOperationListener listener);
+
+  /**
+   * Adds a node as the sibling right before a given node - unlike {@link #addChild}, which adds the youngest child.
+   * <p>
+   * The node takes the interval of the sibling. Then the sibling and the following siblings are moved one
+   * interval to the right - each with its sub-tree, mapped onto the new interval - until a sibling is reached,
+   * which is already to the right of the moved ones, e.g. after a gap left by a removed node.
+   *
+   * @param sibling the node to insert before; must be part of a tree; must not be a root
+   * @param node    the node to insert; must not be part of a tree yet
+   * @throws NodeNotInTree             in case the sibling is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case the node is part of a tree
+   * @throws NodeIsTreeRoot            in case the sibling is a root
+   * @throws IllegalArgumentException  in case a moved sub-tree exceeds the precision of
+   *                                   {@link DyadicEntity#SCALE_BITS}; nothing is moved then
+   */
+  @Override
+  void insertBefore(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot;
+
+  /**
+   * Adds a node as the sibling right after a given node - the following siblings are moved as by
+   * {@link #insertBefore}.
+   *
+   * @param sibling the node to insert after; must be part of a tree; must not be a root
+   * @param node    the node to insert; must not be part of a tree yet
+   * @throws NodeNotInTree             in case the sibling is not part of a tree
+   * @throws NodeAlreadyAttachedToTree in case the node is part of a tree
+   * @throws NodeIsTreeRoot            in case the sibling is a root
+   * @throws IllegalArgumentException  in case a moved sub-tree exceeds the precision of
+   *                                   {@link DyadicEntity#SCALE_BITS}; nothing is moved then
+   */
+  @Override
+  void insertAfter(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot;
+
   /**
    * <b>Internal method:</b> Finds the youngest / last-added child of a given node.
    * <p>
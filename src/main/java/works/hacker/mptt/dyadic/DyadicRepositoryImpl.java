@@ -1,13 +1,28 @@
 package works.hacker.mptt.dyadic;
 
+import works.hacker.mptt.StreamingQueries;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeNodeView;
+import works.hacker.mptt.monitor.TreeOperationListener;
+import works.hacker.mptt.monitor.TreeOperationMonitor;
+
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Transactional
 public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements DyadicRepository<T> {
@@ -16,11 +31,26 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
 
   protected Class<T> entityClass;
 
+  protected final TreeOperationMonitor operations = new TreeOperationMonitor("dyadic");
+
   @Override
   public void setEntityClass(Class<T> entityClass) {
     this.entityClass = entityClass;
   }
 
+  @Override
+  public void setTreeOperationListener(TreeOperationListener listener) {
+    operations.setListener(listener);
+  }
+
+  /**
+   * @return the tree of the given nodes - or {@link TreeEntity#NO_TREE_ID} for the nodes of several trees
+   */
+  protected long getTreeId(Collection<T> nodes) {
+    var treeIds = nodes.stream().map(T::getTreeId).distinct().limit(2).collect(Collectors.toList());
+    return treeIds.size() == 1 ? treeIds.get(0) : TreeEntity.NO_TREE_ID;
+  }
+
   @Override
   public T createNode(String name)
       throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
@@ -30,6 +60,7 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
 
   @Override
   public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    var start = operations.start();
     ensureNodeIsNotAttachedToAnyTree(node);
 
     var treeId = generateTreeId();
@@ -37,6 +68,7 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
     node.setTreeId(treeId);
 
     entityManager.persist(node);
+    operations.monitor("startTree", treeId, start, 1, 0);
     return treeId;
   }
 
@@ -65,18 +97,97 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
 
   @Override
   public T findTreeRoot(Long treeId) throws NoResultException {
+    var start = operations.start();
     var query = String.format(
         "SELECT node FROM %s node" +
             " WHERE node.treeId = :treeId" +
-            " AND node.lft = 0 AND node.rgt = 1",
+            " AND node.lftScaled = 0 AND node.rgtScaled = :rgt",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var root = entityManager.createQuery(query, entityClass)
         .setParameter("treeId", treeId)
+        .setParameter("rgt", DyadicEntity.SCALE)
         .getSingleResult();
+    operations.monitor("findTreeRoot", treeId, start, 1, 0);
+    return root;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The pending changes are flushed first - then a managed node is refreshed in place, and for a detached node a
+   * managed instance is returned.
+   */
+  @Override
+  public T refresh(T node) throws NoResultException {
+    var start = operations.start();
+    entityManager.flush();
+    if (entityManager.contains(node)) {
+      entityManager.refresh(node);
+      operations.monitor("refresh", node.getTreeId(), start, 1, 0);
+      return node;
+    }
+    var refreshed = entityManager.find(entityClass, node.getId());
+    if (refreshed == null) {
+      throw new NoResultException(String.format("No node with id %d", node.getId()));
+    }
+    operations.monitor("refresh", node.getTreeId(), start, 1, 0);
+    return refreshed;
+  }
+
+  @Override
+  public List<T> findTreeRoots(Collection<Long> treeIds) {
+    if (treeIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0 AND node.treeId IN :treeIds" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName());
+    var roots = entityManager.createQuery(query, entityClass)
+        .setParameter("treeIds", treeIds)
+        .getResultList();
+    return operations.monitor("findTreeRoots",
+        treeIds.size() == 1 ? treeIds.iterator().next() : TreeEntity.NO_TREE_ID, start, roots);
+  }
+
+  @Override
+  public List<T> findAllRoots(Long afterTreeId, int maxResults) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0%s" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName(), afterTreeId == null ? "" : " AND node.treeId > :afterTreeId");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setMaxResults(maxResults);
+    if (afterTreeId != null) {
+      typedQuery.setParameter("afterTreeId", afterTreeId);
+    }
+    return operations.monitor("findAllRoots", TreeEntity.NO_TREE_ID, start, typedQuery.getResultList());
+  }
+
+  @Override
+  public List<T> findByDepth(long depth, Long... treeIds) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = :depth%s" +
+            " ORDER BY node.treeId ASC, node.lftScaled ASC",
+        entityClass.getSimpleName(), treeIds.length == 0 ? "" : " AND node.treeId IN :treeIds");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setParameter("depth", depth);
+    if (treeIds.length > 0) {
+      typedQuery.setParameter("treeIds", Arrays.asList(treeIds));
+    }
+    return operations.monitor("findByDepth", treeIds.length == 1 ? treeIds[0] : TreeEntity.NO_TREE_ID, start,
+        typedQuery.getResultList());
   }
 
   @Override
   public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    var start = operations.start();
     ensureParentIsAttachedToTree(parent);
     ensureNodeIsNotAttachedToAnyTree(child);
 
@@ -88,34 +199,162 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
     }
 
     entityManager.persist(child);
+    operations.monitor("addChild", parent.getTreeId(), start, 1, 0, 63 - Long.numberOfLeadingZeros(child.getRgtD()));
   }
 
   protected void addFirstChild(T parent, T child) {
     child.setTreeId(parent.getTreeId());
+    child.setParentId(parent.getId());
     child.setDepth(parent.getDepth() + 1);
-    child.setLftN(parent.getLftN());
-    child.setLftD(parent.getLftD());
-    child.setRgtN(2 * parent.getLftN() + parent.getRgtN());
-    child.setRgtD(2 * parent.getRgtD());
+    DyadicEntity.placeFirstChild(parent, child);
   }
 
   protected void addNextChild(T sibling, T child) {
     child.setTreeId(sibling.getTreeId());
+    child.setParentId(sibling.getParentId());
     child.setDepth(sibling.getDepth());
-    child.setLftN(sibling.getRgtN());
-    child.setLftD(sibling.getRgtD());
-    child.setRgtN(2 * sibling.getRgtN() + 1);
-    child.setRgtD(2 * sibling.getRgtD());
+    DyadicEntity.placeNextChild(sibling, child);
+  }
+
+  @Override
+  public void insertBefore(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot {
+    var start = operations.start();
+    ensureSiblingIsNotRoot(sibling);
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    insertSibling("insertBefore", start, sibling, 0, node);
+  }
+
+  @Override
+  public void insertAfter(T sibling, T node) throws NodeNotInTree, NodeAlreadyAttachedToTree, NodeIsTreeRoot {
+    var start = operations.start();
+    ensureSiblingIsNotRoot(sibling);
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    insertSibling("insertAfter", start, sibling, 1, node);
+  }
+
+  /**
+   * Inserts the node at the given offset from the sibling - 0 for before, 1 for after - and moves the following
+   * siblings to the right, as far as they overlap.
+   */
+  protected void insertSibling(String operation, TreeOperationMonitor.Start start, T sibling, int offset, T node) {
+    var parent = entityManager.find(entityClass, sibling.getParentId());
+    var siblings = createChildrenQuery(parent).getResultList();
+    var position = 0;
+    while (position < siblings.size() && siblings.get(position).getId() != sibling.getId()) {
+      position++;
+    }
+    if (position == siblings.size()) {
+      throw new IllegalArgumentException(String.format("%s not a child of its parent %s", sibling, parent));
+    }
+    var index = position + offset;
+
+    if (index == 0) {
+      addFirstChild(parent, node);
+    } else {
+      addNextChild(siblings.get(index - 1), node);
+    }
+    var moved = moveSiblings(node, siblings.subList(index, siblings.size()));
+
+    entityManager.persist(node);
+    var denominatorBits = moved.stream()
+        .mapToInt(n -> 63 - Long.numberOfLeadingZeros(Math.max(n.getLftD(), n.getRgtD())))
+        .reduce(63 - Long.numberOfLeadingZeros(node.getRgtD()), Math::max);
+    operations.monitor(operation, sibling.getTreeId(), start, 1, moved.size(), denominatorBits);
+  }
+
+  /**
+   * Moves the siblings - each with its sub-tree - to the intervals right after the given node, one after the other,
+   * until a sibling does not overlap the interval of its predecessor.
+   * <p>
+   * The sub-trees are read before any node is moved, and the new bounds are computed before any node is changed -
+   * thus nothing is changed in case the precision is exceeded.
+   *
+   * @return the moved nodes
+   */
+  protected List<T> moveSiblings(T node, List<T> siblings) {
+    var subTrees = new ArrayList<List<T>>();
+    var lfts = new ArrayList<long[]>();
+    var rgts = new ArrayList<long[]>();
+
+    var previousRgtN = node.getRgtN();
+    var previousRgtD = node.getRgtD();
+    for (var sibling : siblings) {
+      var toLft = DyadicEntity.toScaled(previousRgtN, previousRgtD);
+      if (sibling.getLftScaled() >= toLft) {
+        break;
+      }
+      // the interval of the next child after the predecessor - as by DyadicEntity#placeNextChild
+      var toRgt = DyadicEntity.toScaled(2 * previousRgtN + 1, 2 * previousRgtD);
+      var fromLft = sibling.getLftScaled();
+      var shift = Long.numberOfTrailingZeros(sibling.getRgtScaled() - fromLft) -
+          Long.numberOfTrailingZeros(toRgt - toLft);
+
+      var subTree = createSubTreeQuery(sibling).getResultList();
+      var subTreeLfts = new long[subTree.size()];
+      var subTreeRgts = new long[subTree.size()];
+      for (var i = 0; i < subTree.size(); i++) {
+        subTreeLfts[i] = moveBound(subTree.get(i).getLftScaled(), fromLft, toLft, shift);
+        subTreeRgts[i] = moveBound(subTree.get(i).getRgtScaled(), fromLft, toLft, shift);
+      }
+      subTrees.add(subTree);
+      lfts.add(subTreeLfts);
+      rgts.add(subTreeRgts);
+
+      previousRgtN = 2 * previousRgtN + 1;
+      previousRgtD = 2 * previousRgtD;
+    }
+
+    var moved = new ArrayList<T>();
+    for (var i = 0; i < subTrees.size(); i++) {
+      var subTree = subTrees.get(i);
+      for (var j = 0; j < subTree.size(); j++) {
+        subTree.get(j).setLftFromScaled(lfts.get(i)[j]);
+        subTree.get(j).setRgtFromScaled(rgts.get(i)[j]);
+      }
+      moved.addAll(subTree);
+    }
+    return moved;
+  }
+
+  /**
+   * Maps a bound of a moved sub-tree onto its new interval - scaled by a power of two.
+   *
+   * @param shift the difference of the bits of the lengths of the old and the new interval - positive, in case
+   *              the new interval is shorter
+   * @throws IllegalArgumentException in case the bound is not representable within the fixed-point precision
+   */
+  protected long moveBound(long bound, long fromLft, long toLft, int shift) {
+    var offset = bound - fromLft;
+    if (shift <= 0) {
+      return toLft + (offset << -shift);
+    }
+    if (Long.numberOfTrailingZeros(offset) < shift) {
+      throw new IllegalArgumentException(String.format(
+          "Sub-tree can not be moved within the fixed-point precision of %d bits", DyadicEntity.SCALE_BITS));
+    }
+    return toLft + (offset >> shift);
+  }
+
+  protected void ensureSiblingIsNotRoot(T sibling) throws NodeNotInTree, NodeIsTreeRoot {
+    if (!sibling.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Sibling node not attached to any tree: %s", sibling));
+    }
+    if (sibling.getParentId() == null) {
+      throw new NodeIsTreeRoot(String.format("Root node can not have siblings: %s", sibling));
+    }
   }
 
   @Override
   public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    var start = operations.start();
     ensureParentIsAttachedToTree(parent);
     ensureChildOfParent(parent, child);
 
-    var removed = findSubTree(child);
+    var removed = createSubTreeQuery(child).getResultList();
     removed.forEach(this::removeNode);
-    return removed;
+    return operations.monitor("removeChild", parent.getTreeId(), start, removed);
   }
 
   protected void ensureParentIsAttachedToTree(T parent) throws NodeNotInTree {
@@ -125,7 +364,7 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
   }
 
   protected void ensureChildOfParent(T parent, T child) throws NodeNotChildOfParent, NodeNotInTree {
-    if (parent.getLft() <= child.getLft() && child.getRgt() <= parent.getRgt()) {
+    if (parent.getLftScaled() <= child.getLftScaled() && child.getRgtScaled() <= parent.getRgtScaled()) {
       if (child.getTreeId() != parent.getTreeId()) {
         throw new NodeNotInTree(
             String.format("Nodes not in same tree - parent: %s; child %s", parent, child));
@@ -150,89 +389,396 @@ public abstract class DyadicRepositoryImpl<T extends DyadicEntity> implements Dy
         "SELECT youngest FROM %s youngest" +
             " WHERE youngest.treeId = :treeId" +
             " AND youngest.depth = :depth" +
-            " AND :lft <= youngest.lft" +
-            " AND youngest.rgt <= :rgt" +
+            " AND :lft <= youngest.lftScaled" +
+            " AND youngest.rgtScaled <= :rgt" +
             " AND youngest.rgtD = (" +
             "SELECT MAX(node.rgtD) FROM %s node" +
             " WHERE node.treeId = :treeId" +
             " AND node.depth = :depth" +
-            " AND :lft <= node.lft" +
-            " AND node.rgt <= :rgt" +
+            " AND :lft <= node.lftScaled" +
+            " AND node.rgtScaled <= :rgt" +
             ")",
         entityClass.getSimpleName(),
         entityClass.getSimpleName());
     return entityManager.createQuery(query, entityClass)
         .setParameter("treeId", parent.getTreeId())
-        .setParameter("lft", parent.getLft())
-        .setParameter("rgt", parent.getRgt())
+        .setParameter("lft", parent.getLftScaled())
+        .setParameter("rgt", parent.getRgtScaled())
         .setParameter("depth", parent.getDepth() + 1)
         .getResultList().stream().findFirst();
   }
 
   @Override
   public List<T> findChildren(T node) {
+    var start = operations.start();
+    return operations.monitor("findChildren", node.getTreeId(), start, createChildrenQuery(node).getResultList());
+  }
+
+  protected TypedQuery<T> createChildrenQuery(T node) {
     var query = String.format(
         "SELECT child" +
             " FROM %s child" +
             " WHERE child.treeId = :treeId" +
-            " AND :lft <= child.lft AND child.rgt <= :rgt" +
-            " AND child.depth = :depth",
+            " AND child.parentId = :parentId" +
+            " ORDER BY child.lftScaled ASC",
         entityClass.getSimpleName());
     return entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
-        .setParameter("lft", node.getLft())
-        .setParameter("rgt", node.getRgt())
-        .setParameter("depth", node.getDepth() + 1)
-        .getResultList();
+        .setParameter("parentId", node.getId());
   }
 
   @Override
   public List<T> findSubTree(T node) {
+    var start = operations.start();
+    return operations.monitor("findSubTree", node.getTreeId(), start, createSubTreeQuery(node).getResultList());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The nodes are streamed ordered by {@code lft} - and by {@code depth}, as the first child shares its
+   * {@code lft} with the parent.
+   * <p>
+   * The nodes are read by {@link StreamingQueries#streamDetached} - thus the memory is bounded by the fetch size,
+   * not by the size of the sub-tree. The nodes managed before, e.g. the ones held by the caller, stay managed.
+   * <p>
+   * The operation is reported to the listener when the stream is closed - with the nodes streamed until then.
+   */
+  @Override
+  public Stream<T> streamSubTree(T node) {
+    var start = operations.start();
+    var query = createSubTreeQuery(node);
+    var nodes = new long[1];
+    return StreamingQueries.streamDetached(entityManager, query)
+        .peek(streamed -> nodes[0]++)
+        .onClose(() -> operations.monitor("streamSubTree", node.getTreeId(), start, nodes[0], 0));
+  }
+
+  protected TypedQuery<T> createSubTreeQuery(T node) {
     var query = String.format(
         "SELECT node" +
             " FROM %s node" +
             " WHERE node.treeId = :treeId" +
-            " AND :lft <= node.lft AND node.rgt <= :rgt",
+            " AND :lft <= node.lftScaled AND node.rgtScaled <= :rgt" +
+            " ORDER BY node.lftScaled ASC, node.depth ASC",
         entityClass.getSimpleName());
     return entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
-        .setParameter("lft", node.getLft())
-        .setParameter("rgt", node.getRgt())
-        .getResultList();
+        .setParameter("lft", node.getLftScaled())
+        .setParameter("rgt", node.getRgtScaled());
+  }
+
+  @Override
+  public List<T> findSubTree(T node, int maxDepth) {
+    if (maxDepth < 0) {
+      throw new IllegalArgumentException(String.format("Negative max depth: %d", maxDepth));
+    }
+    var start = operations.start();
+    var subTree = createSubTreeQuery(node, node.getDepth(), node.getDepth() + maxDepth).getResultList();
+    return operations.monitor("findSubTree", node.getTreeId(), start, subTree);
+  }
+
+  @Override
+  public List<T> findDescendantsAtDepth(T node, int relativeDepth) {
+    if (relativeDepth < 1) {
+      throw new IllegalArgumentException(String.format("Relative depth not positive: %d", relativeDepth));
+    }
+    var start = operations.start();
+    var depth = node.getDepth() + relativeDepth;
+    var descendants = createSubTreeQuery(node, depth, depth).getResultList();
+    return operations.monitor("findDescendantsAtDepth", node.getTreeId(), start, descendants);
+  }
+
+  /**
+   * @return the query of the sub-tree of a node, limited to the nodes within a range of absolute depths
+   */
+  protected TypedQuery<T> createSubTreeQuery(T node, long minDepth, long maxDepth) {
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lftScaled AND node.rgtScaled <= :rgt" +
+            " AND node.depth BETWEEN :minDepth AND :maxDepth" +
+            " ORDER BY node.lftScaled ASC, node.depth ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLftScaled())
+        .setParameter("rgt", node.getRgtScaled())
+        .setParameter("minDepth", minDepth)
+        .setParameter("maxDepth", maxDepth);
   }
 
   @Override
   public List<T> findAncestors(T node) {
+    var start = operations.start();
     var query = String.format(
         "SELECT node" +
             " FROM %s node" +
             " WHERE node.treeId = :treeId" +
-            " AND node.lft <= :lft AND :rgt <= node.rgt" +
+            " AND node.lftScaled <= :lft AND :rgt <= node.rgtScaled" +
             " AND node.depth < :depth" +
             " ORDER BY node.depth ASC",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var ancestors = entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
-        .setParameter("lft", node.getLft())
-        .setParameter("rgt", node.getRgt())
+        .setParameter("lft", node.getLftScaled())
+        .setParameter("rgt", node.getRgtScaled())
         .setParameter("depth", node.getDepth())
         .getResultList();
+    return operations.monitor("findAncestors", node.getTreeId(), start, ancestors);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query on {@code (treeId, parentId)}.
+   */
   @Override
-  public Optional<T> findParent(T node) {
+  public Map<T, List<T>> findChildren(Collection<T> nodes) {
+    if (nodes.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    var start = operations.start();
     var query = String.format(
-        "SELECT node" +
+        "SELECT child.parentId, child" +
+            " FROM %s child" +
+            " WHERE child.treeId IN :treeIds" +
+            " AND child.parentId IN :ids" +
+            " ORDER BY child.lftScaled ASC",
+        entityClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("treeIds", getTreeIds(nodes))
+        .setParameter("ids", getIds(nodes))
+        .getResultList();
+    return operations.monitor("findChildren", getTreeId(nodes), start, groupByNode(nodes, rows));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query - the nodes are joined with their descendants.
+   */
+  @Override
+  public Map<T, List<T>> findSubTrees(Collection<T> nodes) {
+    if (nodes.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node.id, descendant" +
+            " FROM %s node, %s descendant" +
+            " WHERE node.id IN :ids" +
+            " AND descendant.treeId = node.treeId" +
+            " AND node.lftScaled <= descendant.lftScaled AND descendant.rgtScaled <= node.rgtScaled" +
+            " ORDER BY descendant.lftScaled ASC, descendant.depth ASC",
+        entityClass.getSimpleName(), entityClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("ids", getIds(nodes))
+        .getResultList();
+    return operations.monitor("findSubTrees", getTreeId(nodes), start, groupByNode(nodes, rows));
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query - the nodes are joined with their ancestors.
+   */
+  @Override
+  public Map<T, List<T>> findAncestors(Collection<T> nodes) {
+    if (nodes.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT node.id, ancestor" +
+            " FROM %s node, %s ancestor" +
+            " WHERE node.id IN :ids" +
+            " AND ancestor.treeId = node.treeId" +
+            " AND ancestor.lftScaled <= node.lftScaled AND node.rgtScaled <= ancestor.rgtScaled" +
+            " AND ancestor.depth < node.depth" +
+            " ORDER BY ancestor.depth ASC",
+        entityClass.getSimpleName(), entityClass.getSimpleName());
+    var rows = entityManager.createQuery(query, Object[].class)
+        .setParameter("ids", getIds(nodes))
+        .getResultList();
+    return operations.monitor("findAncestors", getTreeId(nodes), start, groupByNode(nodes, rows));
+  }
+
+  protected List<Long> getIds(Collection<T> nodes) {
+    return nodes.stream().map(T::getId).collect(Collectors.toList());
+  }
+
+  protected List<Long> getTreeIds(Collection<T> nodes) {
+    return nodes.stream().map(T::getTreeId).distinct().collect(Collectors.toList());
+  }
+
+  /**
+   * Groups the rows of {@code [node.id, related node]} by the given nodes.
+   */
+  protected Map<T, List<T>> groupByNode(Collection<T> nodes, List<Object[]> rows) {
+    var byId = new HashMap<Long, List<T>>();
+    for (var row : rows) {
+      byId.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(entityClass.cast(row[1]));
+    }
+    var result = new LinkedHashMap<T, List<T>>();
+    nodes.forEach(node -> result.put(node, byId.getOrDefault(node.getId(), new ArrayList<>())));
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query selecting the {@link #getProjection}.
+   */
+  @Override
+  public List<TreeNodeView> findChildrenProjected(T node) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT %s" +
             " FROM %s node" +
             " WHERE node.treeId = :treeId" +
-            " AND node.lft <= :lft AND :rgt <= node.rgt" +
-            " AND node.depth = :depth",
+            " AND node.parentId = :parentId" +
+            " ORDER BY node.lftScaled ASC",
+        getProjection(), entityClass.getSimpleName());
+    var views = entityManager.createQuery(query, TreeNodeView.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("parentId", node.getId())
+        .getResultList();
+    return operations.monitor("findChildrenProjected", node.getTreeId(), start, views);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query selecting the {@link #getProjection}.
+   */
+  @Override
+  public List<TreeNodeView> findSubTreeProjected(T node) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT %s" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lftScaled AND node.rgtScaled <= :rgt" +
+            " ORDER BY node.lftScaled ASC, node.depth ASC",
+        getProjection(), entityClass.getSimpleName());
+    var views = entityManager.createQuery(query, TreeNodeView.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLftScaled())
+        .setParameter("rgt", node.getRgtScaled())
+        .getResultList();
+    return operations.monitor("findSubTreeProjected", node.getTreeId(), start, views);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * A single query selecting the {@link #getProjection}.
+   */
+  @Override
+  public List<TreeNodeView> findAncestorsProjected(T node) {
+    var start = operations.start();
+    var query = String.format(
+        "SELECT %s" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.lftScaled <= :lft AND :rgt <= node.rgtScaled" +
+            " AND node.depth < :depth" +
+            " ORDER BY node.depth ASC",
+        getProjection(), entityClass.getSimpleName());
+    var views = entityManager.createQuery(query, TreeNodeView.class)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLftScaled())
+        .setParameter("rgt", node.getRgtScaled())
+        .setParameter("depth", node.getDepth())
+        .getResultList();
+    return operations.monitor("findAncestorsProjected", node.getTreeId(), start, views);
+  }
+
+  /**
+   * The JPQL constructor expression of the projected finders, on the alias {@code node}.
+   * <p>
+   * Override it to project extra columns of the entity - into a subclass of {@link TreeNodeView}, e.g.:
+   * <pre>
+   * return String.format("NEW %s(node.id, node.parentId, node.name, node.depth, node.lft, node.rgt, node.color)",
+   *     ColoredNodeView.class.getName());
+   * </pre>
+   *
+   * @return the select clause of the projected finders
+   */
+  protected String getProjection() {
+    return String.format("NEW %s(node.id, node.parentId, node.name, node.depth, node.lft, node.rgt)",
+        TreeNodeView.class.getName());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The first child of the same parent to the right of the node - the siblings may not be adjacent, as removed
+   * nodes leave gaps.
+   */
+  @Override
+  public Optional<T> findNextSibling(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT sibling FROM %s sibling" +
+            " WHERE sibling.treeId = :treeId" +
+            " AND sibling.parentId = :parentId" +
+            " AND sibling.lftScaled >= :rgt" +
+            " ORDER BY sibling.lftScaled ASC",
         entityClass.getSimpleName());
-    return entityManager.createQuery(query, entityClass)
+    var sibling = entityManager.createQuery(query, entityClass)
         .setParameter("treeId", node.getTreeId())
-        .setParameter("lft", node.getLft())
-        .setParameter("rgt", node.getRgt())
-        .setParameter("depth", node.getDepth() - 1)
-        .getResultList().stream().findFirst();
+        .setParameter("parentId", node.getParentId())
+        .setParameter("rgt", node.getRgtScaled())
+        .setMaxResults(1)
+        .getResultStream()
+        .findFirst();
+    operations.monitor("findNextSibling", node.getTreeId(), start, sibling.isPresent() ? 1 : 0, 0);
+    return sibling;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The last child of the same parent to the left of the node.
+   */
+  @Override
+  public Optional<T> findPreviousSibling(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    var start = operations.start();
+    var query = String.format(
+        "SELECT sibling FROM %s sibling" +
+            " WHERE sibling.treeId = :treeId" +
+            " AND sibling.parentId = :parentId" +
+            " AND sibling.rgtScaled <= :lft" +
+            " ORDER BY sibling.lftScaled DESC",
+        entityClass.getSimpleName());
+    var sibling = entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("parentId", node.getParentId())
+        .setParameter("lft", node.getLftScaled())
+        .setMaxResults(1)
+        .getResultStream()
+        .findFirst();
+    operations.monitor("findPreviousSibling", node.getTreeId(), start, sibling.isPresent() ? 1 : 0, 0);
+    return sibling;
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    if (node.getParentId() == null) {
+      return Optional.empty();
+    }
+    var start = operations.start();
+    var parent = Optional.ofNullable(entityManager.find(entityClass, node.getParentId()));
+    operations.monitor("findParent", node.getTreeId(), start, parent.isPresent() ? 1 : 0, 0);
+    return parent;
   }
 }
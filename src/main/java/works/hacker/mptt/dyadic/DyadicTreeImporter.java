@@ -0,0 +1,65 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.TreeImporter;
+import works.hacker.mptt.TreeMigration;
+import works.hacker.mptt.TreeTable;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link TreeImporter} for the dyadic fractions structure - the intervals are placed by
+ * {@link DyadicEntity#placeFirstChild} and {@link DyadicEntity#placeNextChild}, thus the same as the ones assigned
+ * by {@link DyadicRepositoryImpl#addChild} when adding the nodes one by one.
+ */
+public class DyadicTreeImporter extends TreeImporter<DyadicEntity> {
+  public DyadicTreeImporter(DataSource dataSource, TreeTable table) {
+    super(dataSource, table);
+  }
+
+  @Override
+  protected DyadicEntity newNode(String name) {
+    return new DyadicEntity(name);
+  }
+
+  @Override
+  protected void placeChild(DyadicEntity parent, DyadicEntity youngest, DyadicEntity child) {
+    if (youngest == null) {
+      DyadicEntity.placeFirstChild(parent, child);
+    } else {
+      DyadicEntity.placeNextChild(youngest, child);
+    }
+  }
+
+  @Override
+  protected List<String> intervalProperties() {
+    return List.of("lft", "rgt", "lftN", "lftD", "rgtN", "rgtD", "lftScaled", "rgtScaled");
+  }
+
+  /**
+   * @return {@code lftScaled} - exact, unlike the {@code Double} {@code lft}
+   */
+  @Override
+  protected String orderProperty() {
+    return "lftScaled";
+  }
+
+  @Override
+  protected void bindInterval(PreparedStatement statement, int index, DyadicEntity node) throws SQLException {
+    statement.setDouble(index, node.getLft());
+    statement.setDouble(index + 1, node.getRgt());
+    statement.setLong(index + 2, node.getLftN());
+    statement.setLong(index + 3, node.getLftD());
+    statement.setLong(index + 4, node.getRgtN());
+    statement.setLong(index + 5, node.getRgtD());
+    statement.setLong(index + 6, node.getLftScaled());
+    statement.setLong(index + 7, node.getRgtScaled());
+  }
+
+  @Override
+  protected TreeMigration newMigration() {
+    return new DyadicTreeMigration(dataSource, table);
+  }
+}
@@ -0,0 +1,92 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.TreeMigration;
+import works.hacker.mptt.TreeTable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Migration of the dyadic trees created before the fixed-point bounds were introduced - sets the
+ * {@code lftScaled} and {@code rgtScaled} of their nodes from the exact fractions, i.e. by
+ * {@link DyadicEntity#toScaled}. Besides, sets the missing {@code parentId}s as a {@link TreeMigration} - by the
+ * fixed-point bounds, thus {@link #updateScaledBounds} has to run first.
+ * <p>
+ * All range predicates of the {@link DyadicRepositoryImpl} compare the fixed-point bounds, thus the finders return
+ * no nodes of a tree until it is migrated. A node is migrated in case its {@code rgtScaled} is {@code NULL} or
+ * {@code 0} - as the upper bound of a node is always positive, it is {@code 0} only as the default of the column
+ * added to an existing table.
+ * <p>
+ * The nodes are read in a single scan and updated by batched updates, in a single transaction on a connection of
+ * its own - either all nodes are migrated or none is.
+ */
+public class DyadicTreeMigration extends TreeMigration {
+  public DyadicTreeMigration(DataSource dataSource, TreeTable table) {
+    super(dataSource, table);
+  }
+
+  /**
+   * Sets the missing fixed-point bounds of the nodes of all trees.
+   *
+   * @return the number of nodes updated
+   * @throws IllegalArgumentException in case a denominator exceeds the fixed-point precision; nothing is updated
+   *                                  then
+   * @throws SQLException             in case of a database error; nothing is updated then
+   */
+  public int updateScaledBounds() throws SQLException {
+    try (var connection = dataSource.getConnection()) {
+      var autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        var updated = updateScaledBounds(connection);
+        connection.commit();
+        return updated;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
+  protected int updateScaledBounds(Connection connection) throws SQLException {
+    var rgtScaled = table.column("rgtScaled");
+    var query = String.format("SELECT %s, %s, %s, %s, %s FROM %s WHERE %s IS NULL OR %s = 0",
+        table.column("id"), table.column("lftN"), table.column("lftD"), table.column("rgtN"),
+        table.column("rgtD"), table.getName(), rgtScaled, rgtScaled);
+    var update = String.format("UPDATE %s SET %s = ?, %s = ? WHERE %s = ?",
+        table.getName(), table.column("lftScaled"), rgtScaled, table.column("id"));
+
+    try (var select = connection.prepareStatement(query);
+         var statement = connection.prepareStatement(update)) {
+      select.setFetchSize(getBatchSize());
+      var updated = 0;
+      var pending = 0;
+      try (var resultSet = select.executeQuery()) {
+        while (resultSet.next()) {
+          statement.setLong(1, DyadicEntity.toScaled(resultSet.getLong(2), resultSet.getLong(3)));
+          statement.setLong(2, DyadicEntity.toScaled(resultSet.getLong(4), resultSet.getLong(5)));
+          statement.setLong(3, resultSet.getLong(1));
+          statement.addBatch();
+          updated++;
+          if (++pending == getBatchSize()) {
+            statement.executeBatch();
+            pending = 0;
+          }
+        }
+      }
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+      return updated;
+    }
+  }
+
+  @Override
+  protected List<String> boundProperties() {
+    return List.of("lftScaled", "rgtScaled");
+  }
+}
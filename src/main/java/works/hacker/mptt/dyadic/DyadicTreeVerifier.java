@@ -0,0 +1,56 @@
+package works.hacker.mptt.dyadic;
+
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.TreeVerifier;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link TreeVerifier} for the dyadic fractions structure - the nesting is checked on the scaled bounds, which
+ * must match the fractions of the nodes. The bounds are not contiguous - removed nodes leave gaps - and the first
+ * child shares its lower bound with its parent.
+ */
+public class DyadicTreeVerifier extends TreeVerifier {
+  public DyadicTreeVerifier(DataSource dataSource, TreeTable table) {
+    super(dataSource, table);
+  }
+
+  @Override
+  protected List<String> boundProperties() {
+    return List.of("lftScaled", "rgtScaled");
+  }
+
+  @Override
+  protected List<String> extraProperties() {
+    return List.of("lftN", "lftD", "rgtN", "rgtD");
+  }
+
+  @Override
+  protected boolean contains(Node parent, Node node) {
+    var same = parent.getLft() == node.getLft() && node.getRgt() == parent.getRgt();
+    return parent.getLft() <= node.getLft() && node.getRgt() <= parent.getRgt() && !same;
+  }
+
+  @Override
+  protected void verifyNode(ResultSet resultSet, Node node, Report report) throws SQLException {
+    verifyBound(node, "lft", resultSet.getLong(6), resultSet.getLong(7), node.getLft(), report);
+    verifyBound(node, "rgt", resultSet.getLong(8), resultSet.getLong(9), node.getRgt(), report);
+    if (node.getRgt() <= node.getLft()) {
+      addViolation(report, node, String.format("Empty interval [%d, %d]", node.getLft(), node.getRgt()));
+    }
+  }
+
+  protected void verifyBound(Node node, String bound, long numerator, long denominator, long scaled,
+                             Report report) {
+    if (denominator <= 0 || denominator > DyadicEntity.SCALE || Long.bitCount(denominator) != 1) {
+      addViolation(report, node, String.format("%s denominator %d not a power of two up to 2^%d",
+          bound, denominator, DyadicEntity.SCALE_BITS));
+    } else if (DyadicEntity.toScaled(numerator, denominator) != scaled) {
+      addViolation(report, node, String.format("%s %d/%d not matching its scaled bound %d",
+          bound, numerator, denominator, scaled));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package works.hacker.mptt.farey;
+
+import works.hacker.mptt.TreeEntity;
+
+import javax.persistence.Column;
+import javax.persistence.MappedSuperclass;
+
+/**
+ * Nested intervals with Farey fractions as interval bounds.
+ * <p>
+ * The bounds of every interval are Farey neighbours - {@code rgtN * lftD - lftN * rgtD = 1}. The children of
+ * a node are carved out of its interval by mediants: the first child spans from the parent's {@code lft} to the
+ * mediant of the parent bounds, each next child spans from the right bound of its older sibling to the mediant
+ * of that bound and the parent's {@code rgt}.
+ * <p>
+ * Compared to the dyadic fractions the denominators grow linearly with the number of siblings (instead of
+ * doubling with every sibling), and the parent interval can be derived arithmetically from the child interval.
+ * <p>
+ * <b>NOTE:</b> Along a path the denominators multiply - the right denominator of the (k + 1)-th child is about
+ * {@code k + 1} times the one of its parent, so a path through the n-th children of their parents overflows
+ * {@code long} at about {@code 63 / log2(n + 1)} levels. Only chains of first children grow linearly and may get
+ * very deep, whereas chains of second children overflow at 46 levels, 10 children per level at about 19 levels
+ * and 100 children per level at about 10 levels. Then {@code addChild} throws an {@link ArithmeticException}.
+ * <p>
+ * The {@code Double} values of {@code lft} and {@code rgt} are used as an index-friendly pre-filter only; all
+ * decisions are taken on the exact numerators and denominators.
+ *
+ * @see FareyRepositoryImpl
+ */
+@MappedSuperclass
+public class FareyEntity extends TreeEntity<Double> {
+  public static final long START = 0;
+  public static final long END = 1;
+
+  @Column(nullable = false)
+  private long lftN;
+
+  @Column(nullable = false)
+  private long lftD;
+
+  @Column(nullable = false)
+  private long rgtN;
+
+  @Column(nullable = false)
+  private long rgtD;
+
+  public FareyEntity() {
+    super();
+  }
+
+  public FareyEntity(String name) {
+    super(name);
+  }
+
+  @Override
+  public void setDefaults() {
+    super.setDefaults();
+
+    this.lftN = START;
+    this.lftD = END;
+
+    this.rgtN = END;
+    this.rgtD = END;
+
+    updateHead();
+    updateTail();
+  }
+
+  @Override
+  public Double getStartLft() {
+    return (double) START;
+  }
+
+  @Override
+  public Double getStartRgt() {
+    return (double) END;
+  }
+
+  /**
+   * Compares two non-negative fractions exactly, i.e. without overflow of the cross products.
+   *
+   * @return a negative number, zero or a positive number as {@code n1 / d1} is less than, equal to or greater
+   * than {@code n2 / d2}
+   */
+  public static int compare(long n1, long d1, long n2, long d2) {
+    var high1 = Math.multiplyHigh(n1, d2);
+    var high2 = Math.multiplyHigh(n2, d1);
+    return high1 != high2 ? Long.compare(high1, high2) : Long.compareUnsigned(n1 * d2, n2 * d1);
+  }
+
+  /**
+   * Checks whether the interval of this node is nested within (or equal to) the interval of another node.
+   *
+   * @param other must not be null
+   * @return true, if {@code other.lft <= this.lft} and {@code this.rgt <= other.rgt}
+   */
+  public boolean isWithin(FareyEntity other) {
+    return compare(other.lftN, other.lftD, lftN, lftD) <= 0 && compare(rgtN, rgtD, other.rgtN, other.rgtD) <= 0;
+  }
+
+  private void updateHead() {
+    this.lft = (double) lftN / (double) lftD;
+  }
+
+  private void updateTail() {
+    this.rgt = (double) rgtN / (double) rgtD;
+  }
+
+  public long getLftN() {
+    return lftN;
+  }
+
+  public void setLftN(long lftN) {
+    this.lftN = lftN;
+    updateHead();
+  }
+
+  public long getLftD() {
+    return lftD;
+  }
+
+  public void setLftD(long lftD) {
+    if (lftD == 0) throw new IllegalArgumentException("Will lead to division by zero");
+    this.lftD = lftD;
+    updateHead();
+  }
+
+  public long getRgtN() {
+    return rgtN;
+  }
+
+  public void setRgtN(long rgtN) {
+    this.rgtN = rgtN;
+    updateTail();
+  }
+
+  public long getRgtD() {
+    return rgtD;
+  }
+
+  public void setRgtD(long rgtD) {
+    if (rgtD == 0) throw new IllegalArgumentException("Will lead to division by zero");
+    this.rgtD = rgtD;
+    updateTail();
+  }
+
+  @Override
+  protected String toNodeString() {
+    return String.format("[treeId: %d | lft: %d/%d | rgt: %d/%d]", treeId, lftN, lftD, rgtN, rgtD);
+  }
+}
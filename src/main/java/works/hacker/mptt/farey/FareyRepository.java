@@ -0,0 +1,36 @@
+package works.hacker.mptt.farey;
+
+import works.hacker.mptt.TreeRepository;
+
+import java.util.Optional;
+
+public interface FareyRepository<T extends FareyEntity> extends TreeRepository<T> {
+  /**
+   * <b>Internal method:</b> Finds the youngest / last-added child of a given node.
+   * <p>
+   * This method should not be called directly, but {@link FareyRepository#addChild} depends on it.
+   * <p>
+   * Given the following Farey fractions nested intervals representation:
+   * <pre>
+   * .
+   * └── root [lft: 0/1 | rgt: 1/1]
+   *     ├── child1 [lft: 0/1 | rgt: 1/2]
+   *     │   ├── subChild1 [lft: 0/1 | rgt: 1/3]
+   *     │   │   └── subSubChild [lft: 0/1 | rgt: 1/4]
+   *     │   └── subChild2 [lft: 1/3 | rgt: 2/5]
+   *     └── child2 [lft: 1/2 | rgt: 2/3]
+   *         └── lastSubChild [lft: 1/2 | rgt: 3/5]
+   * </pre>
+   * When {@code repo.findYoungestChild(child1)}, then the youngest child is
+   * {@code subChild-2 [lft: 1/3 | rgt: 2/5]}
+   * <p>
+   * When {@code repo.findYoungestChild(root)}, then the youngest child is
+   * {@code child2 [lft: 1/2 | rgt: 2/3]}
+   *
+   * @param parent the parent node for which to find the youngest child
+   * @return an optional of the youngest / last-added child; or empty optional, if there are no children
+   *
+   * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
+   */
+  Optional<T> findYoungestChild(T parent);
+}
@@ -0,0 +1,357 @@
+package works.hacker.mptt.farey;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Transactional
+public abstract class FareyRepositoryImpl<T extends FareyEntity> implements FareyRepository<T> {
+  @PersistenceContext
+  EntityManager entityManager;
+
+  protected Class<T> entityClass;
+
+  @Override
+  public void setEntityClass(Class<T> entityClass) {
+    this.entityClass = entityClass;
+  }
+
+  @Override
+  public T createNode(String name)
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
+      InstantiationException {
+    return entityClass.getDeclaredConstructor(String.class).newInstance(name);
+  }
+
+  @Override
+  public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var treeId = generateTreeId();
+    node.setDefaults();
+    node.setTreeId(treeId);
+
+    entityManager.persist(node);
+    return treeId;
+  }
+
+  protected void ensureNodeIsNotAttachedToAnyTree(T node) throws NodeAlreadyAttachedToTree {
+    if (node.hasTreeId()) {
+      throw new NodeAlreadyAttachedToTree(
+          String.format("Node already has treeId set to %d", node.getTreeId()));
+    }
+  }
+
+  protected Long generateTreeId() {
+    Long treeId = new Random().nextLong();
+    var query = String.format(
+        "SELECT node FROM %s node WHERE node.treeId = :treeId",
+        entityClass.getSimpleName());
+    try {
+      entityManager.createQuery(query, entityClass)
+          .setParameter("treeId", treeId)
+          .setMaxResults(1)
+          .getSingleResult();
+    } catch (NoResultException e) {
+      return treeId;
+    }
+    return generateTreeId();
+  }
+
+  @Override
+  public T findTreeRoot(Long treeId) throws NoResultException {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.lftN = 0 AND node.rgtN = 1 AND node.rgtD = 1",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", treeId)
+        .getSingleResult();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The pending changes are flushed first - then a managed node is refreshed in place, and for a detached node a
+   * managed instance is returned.
+   */
+  @Override
+  public T refresh(T node) throws NoResultException {
+    entityManager.flush();
+    if (entityManager.contains(node)) {
+      entityManager.refresh(node);
+      return node;
+    }
+    var refreshed = entityManager.find(entityClass, node.getId());
+    if (refreshed == null) {
+      throw new NoResultException(String.format("No node with id %d", node.getId()));
+    }
+    return refreshed;
+  }
+
+  @Override
+  public List<T> findTreeRoots(Collection<Long> treeIds) {
+    if (treeIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0 AND node.treeId IN :treeIds" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeIds", treeIds)
+        .getResultList();
+  }
+
+  @Override
+  public List<T> findAllRoots(Long afterTreeId, int maxResults) {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0%s" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName(), afterTreeId == null ? "" : " AND node.treeId > :afterTreeId");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setMaxResults(maxResults);
+    if (afterTreeId != null) {
+      typedQuery.setParameter("afterTreeId", afterTreeId);
+    }
+    return typedQuery.getResultList();
+  }
+
+  @Override
+  public List<T> findByDepth(long depth, Long... treeIds) {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = :depth%s" +
+            " ORDER BY node.treeId ASC, node.lft ASC",
+        entityClass.getSimpleName(), treeIds.length == 0 ? "" : " AND node.treeId IN :treeIds");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setParameter("depth", depth);
+    if (treeIds.length > 0) {
+      typedQuery.setParameter("treeIds", Arrays.asList(treeIds));
+    }
+    return typedQuery.getResultList();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The interval of the new child is computed from the parent and the youngest child only - no other node
+   * is touched.
+   *
+   * @throws ArithmeticException in case the numerators / denominators of the new interval overflow - see the
+   *                             limits of depth and fan-out of the {@link FareyEntity}
+   */
+  @Override
+  public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    ensureParentIsAttachedToTree(parent);
+    ensureNodeIsNotAttachedToAnyTree(child);
+
+    var youngest = findYoungestChild(parent);
+    if (youngest.isEmpty()) {
+      addFirstChild(parent, child);
+    } else {
+      addNextChild(parent, youngest.get(), child);
+    }
+
+    entityManager.persist(child);
+  }
+
+  protected void addFirstChild(T parent, T child) {
+    setChildInterval(parent, child, parent.getLftN(), parent.getLftD());
+  }
+
+  protected void addNextChild(T parent, T sibling, T child) {
+    setChildInterval(parent, child, sibling.getRgtN(), sibling.getRgtD());
+  }
+
+  protected void setChildInterval(T parent, T child, long lftN, long lftD) {
+    child.setTreeId(parent.getTreeId());
+    child.setParentId(parent.getId());
+    child.setDepth(parent.getDepth() + 1);
+    child.setLftN(lftN);
+    child.setLftD(lftD);
+    // the mediant of the left bound and the right bound of the parent
+    child.setRgtN(Math.addExact(lftN, parent.getRgtN()));
+    child.setRgtD(Math.addExact(lftD, parent.getRgtD()));
+  }
+
+  @Override
+  public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    ensureParentIsAttachedToTree(parent);
+    ensureChildOfParent(parent, child);
+
+    var removed = findSubTree(child);
+    removed.forEach(this::removeNode);
+    return removed;
+  }
+
+  protected void ensureParentIsAttachedToTree(T parent) throws NodeNotInTree {
+    if (!parent.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Parent node not attached to any tree: %s", parent));
+    }
+  }
+
+  protected void ensureChildOfParent(T parent, T child) throws NodeNotChildOfParent, NodeNotInTree {
+    if (child.isWithin(parent) && parent.getDepth() < child.getDepth()) {
+      if (child.getTreeId() != parent.getTreeId()) {
+        throw new NodeNotInTree(
+            String.format("Nodes not in same tree - parent: %s; child %s", parent, child));
+      }
+    } else {
+      throw new NodeNotChildOfParent(String.format("%s not parent of %s", parent, child));
+    }
+  }
+
+  protected void removeNode(T node) {
+    if (entityManager.contains(node)) {
+      entityManager.remove(node);
+    } else {
+      var attached = entityManager.find(entityClass, node);
+      entityManager.remove(attached);
+    }
+  }
+
+  /**
+   * Derives the interval of the parent from the interval of a child.
+   * <p>
+   * The (k + 1)-th child of a parent {@code [a/b, c/d]} spans {@code [(a + k*c)/(b + k*d), (a + (k+1)*c)/(b +
+   * (k+1)*d)]}, so the parent's {@code rgt} is the difference of the child bounds. As the left denominator of
+   * any non-root node is less than its right denominator, {@code k} is the integer quotient of the child's left
+   * denominator and the parent's right denominator.
+   *
+   * @return the parent interval as {@code [lftN, lftD, rgtN, rgtD]}
+   */
+  protected long[] parentInterval(long lftN, long lftD, long rgtN, long rgtD) {
+    var parentRgtN = rgtN - lftN;
+    var parentRgtD = rgtD - lftD;
+    if (parentRgtN == FareyEntity.END && parentRgtD == FareyEntity.END) {
+      return new long[]{FareyEntity.START, FareyEntity.END, FareyEntity.END, FareyEntity.END};
+    }
+    var k = lftD / parentRgtD;
+    return new long[]{lftN - k * parentRgtN, lftD - k * parentRgtD, parentRgtN, parentRgtD};
+  }
+
+  @Override
+  public Optional<T> findYoungestChild(T parent) {
+    var query = String.format(
+        "SELECT child" +
+            " FROM %s child" +
+            " WHERE child.treeId = :treeId" +
+            " AND child.parentId = :parentId" +
+            " ORDER BY child.rgtD DESC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", parent.getTreeId())
+        .setParameter("parentId", parent.getId())
+        .setMaxResults(1)
+        .getResultList().stream().findFirst();
+  }
+
+  @Override
+  public List<T> findChildren(T node) {
+    var query = String.format(
+        "SELECT child" +
+            " FROM %s child" +
+            " WHERE child.treeId = :treeId" +
+            " AND child.parentId = :parentId" +
+            " ORDER BY child.rgtD ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("parentId", node.getId())
+        .getResultList();
+  }
+
+  @Override
+  public List<T> findSubTree(T node) {
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND :lft <= node.lft AND node.rgt <= :rgt",
+        entityClass.getSimpleName());
+    // the rounded Double bounds may be off by a few ulps, so widen the range and filter exactly afterwards
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("lft", node.getLft() - 4 * Math.ulp(node.getLft()))
+        .setParameter("rgt", node.getRgt() + 4 * Math.ulp(node.getRgt()))
+        .getResultList().stream()
+        .filter(n -> n.isWithin(node))
+        .sorted(preOrder())
+        .collect(Collectors.toList());
+  }
+
+  protected Comparator<T> preOrder() {
+    return (n1, n2) -> {
+      var byLft = FareyEntity.compare(n1.getLftN(), n1.getLftD(), n2.getLftN(), n2.getLftD());
+      return byLft != 0 ? byLft : Long.compare(n1.getDepth(), n2.getDepth());
+    };
+  }
+
+  @Override
+  public List<T> findAncestors(T node) {
+    if (node.getDepth() == 0) {
+      return Collections.emptyList();
+    }
+
+    var ancestors = new ArrayList<long[]>();
+    var interval = new long[]{node.getLftN(), node.getLftD(), node.getRgtN(), node.getRgtD()};
+    for (var depth = node.getDepth(); depth > 0; depth--) {
+      interval = parentInterval(interval[0], interval[1], interval[2], interval[3]);
+      ancestors.add(interval);
+    }
+
+    var keys = IntStream.range(0, ancestors.size())
+        .mapToObj(i -> String.format("(node.rgtN = :rgtN%d AND node.rgtD = :rgtD%d)", i, i))
+        .collect(Collectors.joining(" OR "));
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND (%s)" +
+            " ORDER BY node.depth ASC",
+        entityClass.getSimpleName(), keys);
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId());
+    for (var i = 0; i < ancestors.size(); i++) {
+      typedQuery
+          .setParameter(String.format("rgtN%d", i), ancestors.get(i)[2])
+          .setParameter(String.format("rgtD%d", i), ancestors.get(i)[3]);
+    }
+    return typedQuery.getResultList();
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    if (node.getDepth() == 0) {
+      return Optional.empty();
+    }
+
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.rgtN = :rgtN AND node.rgtD = :rgtD",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("rgtN", node.getRgtN() - node.getLftN())
+        .setParameter("rgtD", node.getRgtD() - node.getLftD())
+        .getResultList().stream().findFirst();
+  }
+}
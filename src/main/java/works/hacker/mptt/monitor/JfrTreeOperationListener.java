@@ -0,0 +1,76 @@
+package works.hacker.mptt.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits every operation as a JDK Flight Recorder event - {@code works.hacker.mptt.TreeOperation} - thus the tree
+ * operations can be correlated with the GC, lock and I/O events of the same recording.
+ * <p>
+ * Enabled only while a recording with the event enabled is running; else the repositories skip the operations
+ * after a single check. Requires no dependency - the JFR API is part of the JDK.
+ */
+public class JfrTreeOperationListener implements TreeOperationListener {
+  private static final EventType EVENT_TYPE = EventType.getEventType(TreeOperationEvent.class);
+
+  @Override
+  public boolean isEnabled() {
+    return EVENT_TYPE.isEnabled();
+  }
+
+  @Override
+  public void onOperation(TreeOperation operation) {
+    var event = new TreeOperationEvent();
+    if (event.shouldCommit()) {
+      event.engine = operation.getEngine();
+      event.operation = operation.getOperation();
+      event.treeId = operation.getTreeId();
+      event.elapsed = operation.getNanos();
+      event.nodes = operation.getNodes();
+      event.queries = operation.getQueries();
+      event.shifted = operation.getShifted();
+      event.commit();
+    }
+  }
+
+  /**
+   * The event is committed once the operation completed, thus its own duration is that of the commit - the
+   * duration of the operation is {@code elapsed}.
+   */
+  @Name("works.hacker.mptt.TreeOperation")
+  @Label("Tree Operation")
+  @Description("A completed operation of a tree repository")
+  @Category({"MPTT"})
+  @StackTrace(false)
+  static class TreeOperationEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Tree Id")
+    long treeId;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Nodes")
+    @Description("The number of nodes found, added or removed")
+    long nodes;
+
+    @Label("Queries")
+    long queries;
+
+    @Label("Shifted")
+    @Description("The number of nodes renumbered by the classic engine")
+    long shifted;
+  }
+}
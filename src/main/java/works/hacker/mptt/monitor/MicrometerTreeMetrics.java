@@ -0,0 +1,62 @@
+package works.hacker.mptt.monitor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the operations of a repository as Micrometer metrics - tagged by {@code engine} and {@code operation}:
+ * <ul>
+ * <li><b>mptt.operation</b> timer of the operations</li>
+ * <li><b>mptt.operation.rows</b> distribution of the nodes found, added or removed per operation - i.e. of the
+ * sizes of the results and of the sub-trees removed, not of the trees themselves</li>
+ * <li><b>mptt.rows.shifted</b> counter of the nodes renumbered by the classic engine - a spike indicates
+ * inserts and removals in large trees, rather than slow queries</li>
+ * <li><b>mptt.dyadic.denominator.bits</b> distribution of the bits of the denominators of the nodes added by the
+ * dyadic engine - it supports up to {@link works.hacker.mptt.dyadic.DyadicEntity#SCALE_BITS}</li>
+ * </ul>
+ * <p>
+ * Micrometer is an optional dependency - add {@code io.micrometer:micrometer-core} to use this class.
+ */
+public class MicrometerTreeMetrics implements TreeOperationListener {
+  private final MeterRegistry registry;
+
+  /**
+   * Records to the global registry of Micrometer, i.e. {@link Metrics#globalRegistry}.
+   */
+  public MicrometerTreeMetrics() {
+    this(Metrics.globalRegistry);
+  }
+
+  public MicrometerTreeMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void onOperation(TreeOperation operation) {
+    var engine = operation.getEngine();
+    var name = operation.getOperation();
+
+    Timer.builder("mptt.operation")
+        .tags("engine", engine, "operation", name)
+        .register(registry)
+        .record(operation.getNanos(), TimeUnit.NANOSECONDS);
+    DistributionSummary.builder("mptt.operation.rows")
+        .tags("engine", engine, "operation", name)
+        .register(registry)
+        .record(operation.getNodes());
+    if (operation.getShifted() > 0) {
+      registry.counter("mptt.rows.shifted", "engine", engine, "operation", name)
+          .increment(operation.getShifted());
+    }
+    if (operation.getDenominatorBits() > 0) {
+      DistributionSummary.builder("mptt.dyadic.denominator.bits")
+          .tags("engine", engine)
+          .register(registry)
+          .record(operation.getDenominatorBits());
+    }
+  }
+}
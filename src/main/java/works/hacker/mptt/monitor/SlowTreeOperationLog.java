@@ -0,0 +1,60 @@
+package works.hacker.mptt.monitor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Logs the operations exceeding a latency or a rows-touched threshold as warnings - with the {@code treeId}, the
+ * size of the sub-tree found, added or removed and the number of nodes renumbered - thus the pathological trees
+ * can be told apart without logging all of the SQL.
+ * <p>
+ * The rows touched by an operation are the nodes found, added or removed plus the nodes renumbered.
+ */
+public class SlowTreeOperationLog implements TreeOperationListener {
+  private static final Logger LOG = LoggerFactory.getLogger(SlowTreeOperationLog.class);
+
+  private final long latencyThresholdNanos;
+  private final long rowsThreshold;
+
+  /**
+   * @param latencyThreshold operations taking at least as long are logged
+   * @param rowsThreshold    operations touching at least as many rows are logged; {@link Long#MAX_VALUE} to log
+   *                         by latency only
+   * @throws IllegalArgumentException in case a threshold is not positive
+   */
+  public SlowTreeOperationLog(Duration latencyThreshold, long rowsThreshold) {
+    if (latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+      throw new IllegalArgumentException(String.format("Latency threshold not positive: %s", latencyThreshold));
+    }
+    if (rowsThreshold < 1) {
+      throw new IllegalArgumentException(String.format("Rows threshold not positive: %d", rowsThreshold));
+    }
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+    this.rowsThreshold = rowsThreshold;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return LOG.isWarnEnabled();
+  }
+
+  @Override
+  public void onOperation(TreeOperation operation) {
+    if (isSlow(operation)) {
+      log(operation);
+    }
+  }
+
+  public boolean isSlow(TreeOperation operation) {
+    return operation.getNanos() >= latencyThresholdNanos ||
+        operation.getNodes() + operation.getShifted() >= rowsThreshold;
+  }
+
+  protected void log(TreeOperation operation) {
+    LOG.warn("Slow {} {} on tree {} - ms: {} | nodes: {} | shifted: {} | queries: {}",
+        operation.getEngine(), operation.getOperation(), operation.getTreeId(), operation.getMillis(),
+        operation.getNodes(), operation.getShifted(), operation.getQueries());
+  }
+}
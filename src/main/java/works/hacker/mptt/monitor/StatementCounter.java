@@ -0,0 +1,32 @@
+package works.hacker.mptt.monitor;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements prepared by Hibernate per thread - the queries as well as the inserts, updates and
+ * deletes flushed. The {@link TreeOperationMonitor} reports the statements prepared during an operation as its
+ * {@link TreeOperation#getQueries}.
+ * <p>
+ * Register it as the statement inspector of the session factory - e.g. by the JPA property
+ * {@code hibernate.session_factory.statement_inspector=works.hacker.mptt.monitor.StatementCounter}. Else no
+ * statements are counted.
+ */
+public class StatementCounter implements StatementInspector {
+  private static final long serialVersionUID = 1L;
+
+  // the number of statements prepared per thread
+  private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+  @Override
+  public String inspect(String sql) {
+    STATEMENTS.get()[0]++;
+    return sql;
+  }
+
+  /**
+   * @return the number of statements prepared on the current thread so far
+   */
+  public static long count() {
+    return STATEMENTS.get()[0];
+  }
+}
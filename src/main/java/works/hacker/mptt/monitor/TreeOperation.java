@@ -0,0 +1,85 @@
+package works.hacker.mptt.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A completed operation of a {@link works.hacker.mptt.TreeRepository} - as passed to a
+ * {@link TreeOperationListener}.
+ */
+public class TreeOperation {
+  private final String engine;
+  private final String operation;
+  private final long treeId;
+  private final long nanos;
+  private final long nodes;
+  private final long queries;
+  private final long shifted;
+  private final int denominatorBits;
+
+  /**
+   * @param engine          the engine of the repository, e.g. {@code classic}
+   * @param operation       the name of the repository method, e.g. {@code addChild}
+   * @param treeId          the tree operated on - or {@link works.hacker.mptt.TreeEntity#NO_TREE_ID} for the
+   *                        operations across trees, e.g. {@code findAllRoots}
+   * @param nanos           the duration of the operation
+   * @param nodes           the number of nodes found, added or removed
+   * @param queries         the number of SQL statements prepared during the operation, as counted by the
+   *                        {@link StatementCounter} - including the statements flushed meanwhile, e.g. the
+   *                        updates of the nodes renumbered by an earlier operation; 0 if it is not registered
+   * @param shifted         the number of nodes renumbered - by the classic engine; 0 otherwise
+   * @param denominatorBits the bits of the denominators of the added node - by the dyadic engine; 0 otherwise
+   */
+  public TreeOperation(String engine, String operation, long treeId, long nanos, long nodes, long queries,
+                       long shifted, int denominatorBits) {
+    this.engine = engine;
+    this.operation = operation;
+    this.treeId = treeId;
+    this.nanos = nanos;
+    this.nodes = nodes;
+    this.queries = queries;
+    this.shifted = shifted;
+    this.denominatorBits = denominatorBits;
+  }
+
+  public String getEngine() {
+    return engine;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public long getTreeId() {
+    return treeId;
+  }
+
+  public long getNanos() {
+    return nanos;
+  }
+
+  public long getMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  public long getNodes() {
+    return nodes;
+  }
+
+  public long getQueries() {
+    return queries;
+  }
+
+  public long getShifted() {
+    return shifted;
+  }
+
+  public int getDenominatorBits() {
+    return denominatorBits;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s [treeId: %d | ms: %d | nodes: %d | queries: %d | shifted: %d]",
+        engine, operation, treeId, getMillis(), nodes, queries, shifted);
+  }
+}
@@ -0,0 +1,77 @@
+package works.hacker.mptt.monitor;
+
+import java.util.List;
+
+/**
+ * Listens to the completed operations of a {@link works.hacker.mptt.TreeRepository} - e.g. to record metrics.
+ * <p>
+ * Called synchronously on the thread of the operation, after it completed successfully - thus listeners should be
+ * fast and must not throw.
+ *
+ * @see works.hacker.mptt.classic.MpttRepository#setTreeOperationListener
+ * @see works.hacker.mptt.dyadic.DyadicRepository#setTreeOperationListener
+ */
+@FunctionalInterface
+public interface TreeOperationListener {
+  /**
+   * Ignores all operations - the default of the repositories. Not enabled, thus the repositories skip creating
+   * the {@link TreeOperation}s.
+   */
+  TreeOperationListener NOOP = new TreeOperationListener() {
+    @Override
+    public void onOperation(TreeOperation operation) {
+    }
+
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+  };
+
+  void onOperation(TreeOperation operation);
+
+  /**
+   * Checked before every operation is passed to the listener - thus a disabled listener costs no more than this
+   * check.
+   *
+   * @return true, if the listener records the operations; true by default
+   */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * @return a listener passing every operation to all of the given listeners, which are enabled, in order
+   */
+  static TreeOperationListener all(TreeOperationListener... listeners) {
+    var all = List.of(listeners);
+    return new TreeOperationListener() {
+      @Override
+      public void onOperation(TreeOperation operation) {
+        all.stream()
+            .filter(TreeOperationListener::isEnabled)
+            .forEach(listener -> listener.onOperation(operation));
+      }
+
+      @Override
+      public boolean isEnabled() {
+        return all.stream().anyMatch(TreeOperationListener::isEnabled);
+      }
+    };
+  }
+
+  /**
+   * @return a {@link MicrometerTreeMetrics} on the global registry of Micrometer, in case Micrometer is on the
+   * classpath; else {@link #NOOP}
+   */
+  static TreeOperationListener micrometerIfPresent() {
+    try {
+      Class.forName("io.micrometer.core.instrument.MeterRegistry");
+      return (TreeOperationListener) Class.forName("works.hacker.mptt.monitor.MicrometerTreeMetrics")
+          .getConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return NOOP;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package works.hacker.mptt.monitor;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Passes the completed operations of a repository to its {@link TreeOperationListener} - with the duration and
+ * the number of statements counted by the {@link StatementCounter} since the operation started.
+ * <p>
+ * The statements are counted per thread and never reset - thus nested operations, e.g. a finder called by a
+ * mutator, are counted for both, and a stream reported when closed counts the statements prepared on its thread
+ * until then.
+ */
+public class TreeOperationMonitor {
+  private final String engine;
+
+  private TreeOperationListener listener = TreeOperationListener.NOOP;
+
+  /**
+   * @param engine the engine of the repository, e.g. {@code classic}
+   */
+  public TreeOperationMonitor(String engine) {
+    this.engine = engine;
+  }
+
+  /**
+   * @param listener the listener; must not be null
+   */
+  public void setListener(TreeOperationListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * @return the start of an operation
+   */
+  public Start start() {
+    return new Start(System.nanoTime(), StatementCounter.count());
+  }
+
+  /**
+   * Passes a completed operation to the listener - unless it is not enabled, e.g. the
+   * {@link TreeOperationListener#NOOP}.
+   */
+  public void monitor(String operation, long treeId, Start start, long nodes, long shifted) {
+    monitor(operation, treeId, start, nodes, shifted, 0);
+  }
+
+  public void monitor(String operation, long treeId, Start start, long nodes, long shifted, int denominatorBits) {
+    if (listener.isEnabled()) {
+      listener.onOperation(new TreeOperation(engine, operation, treeId, System.nanoTime() - start.nanos, nodes,
+          StatementCounter.count() - start.statements, shifted, denominatorBits));
+    }
+  }
+
+  public <R extends Collection<?>> R monitor(String operation, long treeId, Start start, R nodes) {
+    monitor(operation, treeId, start, nodes.size(), 0);
+    return nodes;
+  }
+
+  public <K, V extends Collection<?>> Map<K, V> monitor(String operation, long treeId, Start start,
+                                                        Map<K, V> nodes) {
+    monitor(operation, treeId, start, nodes.values().stream().mapToLong(Collection::size).sum(), 0);
+    return nodes;
+  }
+
+  /**
+   * The start time and the statements counted at the start of an operation.
+   */
+  public static final class Start {
+    private final long nanos;
+    private final long statements;
+
+    private Start(long nanos, long statements) {
+      this.nanos = nanos;
+      this.statements = statements;
+    }
+  }
+}
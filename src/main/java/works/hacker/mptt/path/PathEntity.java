@@ -0,0 +1,87 @@
+package works.hacker.mptt.path;
+
+import works.hacker.mptt.TreeEntity;
+
+import javax.persistence.Column;
+import javax.persistence.MappedSuperclass;
+
+/**
+ * Materialized path of fixed-width segments as tree structure.
+ * <p>
+ * The {@code path} of a node is the path of its parent followed by one segment - the ordinal of the node
+ * amongst its siblings, encoded in base 36 and left-padded to {@link #SEGMENT_LENGTH} characters. As all
+ * segments have the same width, no separator is needed and the lexicographical order of the paths is the
+ * pre-order of the tree:
+ * <ul>
+ * <li>the sub-tree of a node is the range of paths starting with its path</li>
+ * <li>the ancestors of a node are the prefixes of its path</li>
+ * </ul>
+ * <p>
+ * There are no nested intervals to maintain, so {@code lft} holds the ordinal of the node amongst its siblings
+ * and {@code rgt} mirrors it.
+ * <p>
+ * Entities should declare an index on {@code (treeId, path)}, see {@code PathNode}.
+ *
+ * @see PathRepositoryImpl
+ */
+@MappedSuperclass
+public class PathEntity extends TreeEntity<Long> {
+  public static final int SEGMENT_LENGTH = 4;
+  public static final int SEGMENT_RADIX = 36;
+  public static final long MAX_ORDINAL = (long) Math.pow(SEGMENT_RADIX, SEGMENT_LENGTH) - 1;
+  public static final int MAX_PATH_LENGTH = 252;
+
+  @Column(nullable = false, length = MAX_PATH_LENGTH)
+  private String path;
+
+  public PathEntity() {
+    super();
+  }
+
+  public PathEntity(String name) {
+    super(name);
+  }
+
+  @Override
+  public void setDefaults() {
+    super.setDefaults();
+    this.path = segment(getStartLft());
+  }
+
+  @Override
+  public Long getStartLft() {
+    return 1L;
+  }
+
+  @Override
+  public Long getStartRgt() {
+    return 1L;
+  }
+
+  /**
+   * Encodes the ordinal of a node amongst its siblings as a path segment.
+   *
+   * @param ordinal must be between 1 and {@link #MAX_ORDINAL}
+   * @return the fixed-width base 36 representation of the ordinal
+   */
+  public static String segment(long ordinal) {
+    if (ordinal < 1 || ordinal > MAX_ORDINAL) {
+      throw new IllegalArgumentException(String.format("Ordinal out of range: %d", ordinal));
+    }
+    var digits = Long.toString(ordinal, SEGMENT_RADIX);
+    return "0".repeat(SEGMENT_LENGTH - digits.length()) + digits;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  @Override
+  protected String toNodeString() {
+    return String.format("[treeId: %d | path: %s]", treeId, path);
+  }
+}
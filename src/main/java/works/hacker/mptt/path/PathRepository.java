@@ -0,0 +1,36 @@
+package works.hacker.mptt.path;
+
+import works.hacker.mptt.TreeRepository;
+
+import java.util.Optional;
+
+public interface PathRepository<T extends PathEntity> extends TreeRepository<T> {
+  /**
+   * <b>Internal method:</b> Finds the youngest / last-added child of a given node.
+   * <p>
+   * This method should not be called directly, but {@link PathRepository#addChild} depends on it.
+   * <p>
+   * Given the following materialized path representation:
+   * <pre>
+   * .
+   * └── root [path: 0001]
+   *     ├── child1 [path: 00010001]
+   *     │   ├── subChild1 [path: 000100010001]
+   *     │   │   └── subSubChild [path: 0001000100010001]
+   *     │   └── subChild2 [path: 000100010002]
+   *     └── child2 [path: 00010002]
+   *         └── lastSubChild [path: 000100020001]
+   * </pre>
+   * When {@code repo.findYoungestChild(child1)}, then the youngest child is
+   * {@code subChild-2 [path: 000100010002]}
+   * <p>
+   * When {@code repo.findYoungestChild(root)}, then the youngest child is
+   * {@code child2 [path: 00010002]}
+   *
+   * @param parent the parent node for which to find the youngest child
+   * @return an optional of the youngest / last-added child; or empty optional, if there are no children
+   *
+   * @see <a href="https://github.com/hacker-works/mptt-jpa">README</a>
+   */
+  Optional<T> findYoungestChild(T parent);
+}
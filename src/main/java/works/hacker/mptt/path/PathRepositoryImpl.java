@@ -0,0 +1,323 @@
+package works.hacker.mptt.path;
+
+import works.hacker.mptt.StreamingQueries;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.transaction.Transactional;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@Transactional
+public abstract class PathRepositoryImpl<T extends PathEntity> implements PathRepository<T> {
+  private static final String ANY_SEGMENT = "_".repeat(PathEntity.SEGMENT_LENGTH);
+  private static final String ANY_SUFFIX = "%";
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  protected Class<T> entityClass;
+
+  @Override
+  public void setEntityClass(Class<T> entityClass) {
+    this.entityClass = entityClass;
+  }
+
+  @Override
+  public T createNode(String name)
+      throws NoSuchMethodException, IllegalAccessException, InvocationTargetException,
+      InstantiationException {
+    return entityClass.getDeclaredConstructor(String.class).newInstance(name);
+  }
+
+  @Override
+  public Long startTree(T node) throws NodeAlreadyAttachedToTree {
+    ensureNodeIsNotAttachedToAnyTree(node);
+
+    var treeId = generateTreeId();
+    node.setDefaults();
+    node.setTreeId(treeId);
+
+    entityManager.persist(node);
+    return treeId;
+  }
+
+  protected void ensureNodeIsNotAttachedToAnyTree(T node) throws NodeAlreadyAttachedToTree {
+    if (node.hasTreeId()) {
+      throw new NodeAlreadyAttachedToTree(
+          String.format("Node already has treeId set to %d", node.getTreeId()));
+    }
+  }
+
+  protected Long generateTreeId() {
+    Long treeId = new Random().nextLong();
+    var query = String.format(
+        "SELECT node FROM %s node WHERE node.treeId = :treeId",
+        entityClass.getSimpleName());
+    try {
+      entityManager.createQuery(query, entityClass)
+          .setParameter("treeId", treeId)
+          .setMaxResults(1)
+          .getSingleResult();
+    } catch (NoResultException e) {
+      return treeId;
+    }
+    return generateTreeId();
+  }
+
+  @Override
+  public T findTreeRoot(Long treeId) throws NoResultException {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.treeId = :treeId AND node.path = :path",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", treeId)
+        .setParameter("path", PathEntity.segment(1L))
+        .getSingleResult();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The pending changes are flushed first - then a managed node is refreshed in place, and for a detached node a
+   * managed instance is returned.
+   */
+  @Override
+  public T refresh(T node) throws NoResultException {
+    entityManager.flush();
+    if (entityManager.contains(node)) {
+      entityManager.refresh(node);
+      return node;
+    }
+    var refreshed = entityManager.find(entityClass, node.getId());
+    if (refreshed == null) {
+      throw new NoResultException(String.format("No node with id %d", node.getId()));
+    }
+    return refreshed;
+  }
+
+  @Override
+  public List<T> findTreeRoots(Collection<Long> treeIds) {
+    if (treeIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0 AND node.treeId IN :treeIds" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeIds", treeIds)
+        .getResultList();
+  }
+
+  @Override
+  public List<T> findAllRoots(Long afterTreeId, int maxResults) {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = 0%s" +
+            " ORDER BY node.treeId ASC",
+        entityClass.getSimpleName(), afterTreeId == null ? "" : " AND node.treeId > :afterTreeId");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setMaxResults(maxResults);
+    if (afterTreeId != null) {
+      typedQuery.setParameter("afterTreeId", afterTreeId);
+    }
+    return typedQuery.getResultList();
+  }
+
+  @Override
+  public List<T> findByDepth(long depth, Long... treeIds) {
+    var query = String.format(
+        "SELECT node FROM %s node" +
+            " WHERE node.depth = :depth%s" +
+            " ORDER BY node.treeId ASC, node.path ASC",
+        entityClass.getSimpleName(), treeIds.length == 0 ? "" : " AND node.treeId IN :treeIds");
+    var typedQuery = entityManager.createQuery(query, entityClass)
+        .setParameter("depth", depth);
+    if (treeIds.length > 0) {
+      typedQuery.setParameter("treeIds", Arrays.asList(treeIds));
+    }
+    return typedQuery.getResultList();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Only the new child is written - its path is the path of the parent followed by the next ordinal.
+   *
+   * @throws IllegalStateException in case the parent has the maximum number of children or the maximum depth
+   */
+  @Override
+  public void addChild(T parent, T child) throws NodeNotInTree, NodeAlreadyAttachedToTree {
+    ensureParentIsAttachedToTree(parent);
+    ensureNodeIsNotAttachedToAnyTree(child);
+
+    var ordinal = findYoungestChild(parent).map(youngest -> youngest.getLft() + 1).orElse(1L);
+    if (ordinal > PathEntity.MAX_ORDINAL) {
+      throw new IllegalStateException(String.format("Maximum number of children reached: %s", parent));
+    }
+    if (parent.getPath().length() + PathEntity.SEGMENT_LENGTH > PathEntity.MAX_PATH_LENGTH) {
+      throw new IllegalStateException(String.format("Maximum depth reached: %s", parent));
+    }
+
+    child.setTreeId(parent.getTreeId());
+    child.setParentId(parent.getId());
+    child.setDepth(parent.getDepth() + 1);
+    child.setLft(ordinal);
+    child.setRgt(ordinal);
+    child.setPath(parent.getPath() + PathEntity.segment(ordinal));
+
+    entityManager.persist(child);
+  }
+
+  @Override
+  public List<T> removeChild(T parent, T child) throws NodeNotInTree, NodeNotChildOfParent {
+    ensureParentIsAttachedToTree(parent);
+    ensureChildOfParent(parent, child);
+
+    var removed = findSubTree(child);
+    removed.forEach(this::removeNode);
+    return removed;
+  }
+
+  protected void ensureParentIsAttachedToTree(T parent) throws NodeNotInTree {
+    if (!parent.hasTreeId()) {
+      throw new NodeNotInTree(String.format("Parent node not attached to any tree: %s", parent));
+    }
+  }
+
+  protected void ensureChildOfParent(T parent, T child) throws NodeNotChildOfParent, NodeNotInTree {
+    if (child.getPath().startsWith(parent.getPath()) && parent.getDepth() < child.getDepth()) {
+      if (child.getTreeId() != parent.getTreeId()) {
+        throw new NodeNotInTree(
+            String.format("Nodes not in same tree - parent: %s; child %s", parent, child));
+      }
+    } else {
+      throw new NodeNotChildOfParent(String.format("%s not parent of %s", parent, child));
+    }
+  }
+
+  protected void removeNode(T node) {
+    if (entityManager.contains(node)) {
+      entityManager.remove(node);
+    } else {
+      var attached = entityManager.find(entityClass, node);
+      entityManager.remove(attached);
+    }
+  }
+
+  @Override
+  public Optional<T> findYoungestChild(T parent) {
+    var query = String.format(
+        "SELECT child" +
+            " FROM %s child" +
+            " WHERE child.treeId = :treeId" +
+            " AND child.path LIKE :path" +
+            " ORDER BY child.path DESC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", parent.getTreeId())
+        .setParameter("path", parent.getPath() + ANY_SEGMENT)
+        .setMaxResults(1)
+        .getResultList().stream().findFirst();
+  }
+
+  @Override
+  public List<T> findChildren(T node) {
+    var query = String.format(
+        "SELECT child" +
+            " FROM %s child" +
+            " WHERE child.treeId = :treeId" +
+            " AND child.path LIKE :path" +
+            " ORDER BY child.path ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("path", node.getPath() + ANY_SEGMENT)
+        .getResultList();
+  }
+
+  @Override
+  public List<T> findSubTree(T node) {
+    return createSubTreeQuery(node).getResultList();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The nodes are streamed ordered by {@code path}.
+   * <p>
+   * The nodes are read by {@link StreamingQueries#streamDetached} - thus the memory is bounded by the fetch size,
+   * not by the size of the sub-tree. The nodes managed before, e.g. the ones held by the caller, stay managed.
+   */
+  @Override
+  public Stream<T> streamSubTree(T node) {
+    return StreamingQueries.streamDetached(entityManager, createSubTreeQuery(node));
+  }
+
+  protected TypedQuery<T> createSubTreeQuery(T node) {
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.path LIKE :path" +
+            " ORDER BY node.path ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("path", node.getPath() + ANY_SUFFIX);
+  }
+
+  @Override
+  public List<T> findAncestors(T node) {
+    if (node.getDepth() == 0) {
+      return Collections.emptyList();
+    }
+
+    var paths = IntStream.range(1, node.getPath().length() / PathEntity.SEGMENT_LENGTH)
+        .mapToObj(i -> node.getPath().substring(0, i * PathEntity.SEGMENT_LENGTH))
+        .collect(Collectors.toList());
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.path IN :paths" +
+            " ORDER BY node.path ASC",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("paths", paths)
+        .getResultList();
+  }
+
+  @Override
+  public Optional<T> findParent(T node) {
+    if (node.getDepth() == 0) {
+      return Optional.empty();
+    }
+
+    var query = String.format(
+        "SELECT node" +
+            " FROM %s node" +
+            " WHERE node.treeId = :treeId" +
+            " AND node.path = :path",
+        entityClass.getSimpleName());
+    return entityManager.createQuery(query, entityClass)
+        .setParameter("treeId", node.getTreeId())
+        .setParameter("path", node.getPath().substring(0, node.getPath().length() - PathEntity.SEGMENT_LENGTH))
+        .getResultList().stream().findFirst();
+  }
+}
@@ -0,0 +1,464 @@
+package works.hacker.mptt.snapshot;
+
+import works.hacker.mptt.TreeEntity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent in-memory tree for read-mostly workloads - e.g. a configuration tree served to many readers and
+ * changed a few times a minute.
+ * <p>
+ * The tree is an immutable {@link Version} - the nodes in pre-order in primitive columns - behind an
+ * {@link AtomicReference}. Readers never block: they read the current version, which is a consistent nested set
+ * for as long as they hold it. Writers are serialised; every write copies the columns it changes into a new
+ * version and publishes it atomically. Columns not affected by a write are shared with the previous version -
+ * e.g. {@link #rename} copies only the names. As adding or removing a node renumbers all following nodes, these
+ * copy the structural columns - {@code O(n)} per write, by {@link System#arraycopy}.
+ * <p>
+ * The {@code id}s of the nodes are given by the caller - typically the {@code id}s of the persisted nodes, loaded
+ * via {@link #load}.
+ * <p>
+ * Given the following tree representation:
+ * <pre>
+ * .
+ * └── root
+ *     ├── child1
+ *     │   └── subChild1
+ *     └── child2
+ * </pre>
+ * When {@code tree.current()}, then the nodes of the version are {@code root, child1, subChild1, child2} - with
+ * the same {@code lft} and {@code rgt} as in the classic MPTT structure.
+ *
+ * @see TreeSnapshot
+ */
+public class CopyOnWriteTree {
+  public static final int NO_PARENT = TreeSnapshot.NO_PARENT;
+
+  private final AtomicReference<Version> current;
+  private final Object writeLock = new Object();
+
+  public CopyOnWriteTree(long rootId, String rootName) {
+    this.current = new AtomicReference<>(new Version(
+        1, new long[]{rootId}, new int[]{NO_PARENT}, new int[]{0}, new int[]{1}, new String[]{rootName},
+        new long[]{rootId}, new int[]{0}));
+  }
+
+  protected CopyOnWriteTree(Version version) {
+    this.current = new AtomicReference<>(version);
+  }
+
+  /**
+   * Loads a tree from the nodes of a sub-tree in pre-order - e.g. from {@link
+   * works.hacker.mptt.TreeRepository#streamSubTree}. The first node becomes the root.
+   *
+   * @param subTree the nodes of a sub-tree in pre-order - every node is followed by its sub-tree
+   * @return the tree
+   * @throws IllegalArgumentException in case there are no nodes, or they are not in pre-order
+   */
+  @SuppressWarnings("rawtypes")
+  public static <T extends TreeEntity> CopyOnWriteTree load(Stream<T> subTree) {
+    var columns = new Columns();
+    // the indices of the nodes, which sub-tree is not complete yet
+    var open = new ArrayDeque<Integer>();
+    long rootDepth = 0;
+    for (Iterator<T> nodes = subTree.iterator(); nodes.hasNext(); ) {
+      var node = nodes.next();
+      if (columns.size == 0) {
+        rootDepth = node.getDepth();
+      } else if (node.getDepth() <= rootDepth || node.getDepth() > rootDepth + open.size()) {
+        throw new IllegalArgumentException(String.format("Node not in pre-order: %s", node));
+      }
+      var depth = (int) (node.getDepth() - rootDepth);
+      while (open.size() > depth) {
+        var closed = open.pop();
+        columns.subTreeSize[closed] = columns.size - closed;
+      }
+      columns.add(node.getId(), open.isEmpty() ? NO_PARENT : open.peek(), depth, node.getName());
+      open.push(columns.size - 1);
+    }
+    if (columns.size == 0) {
+      throw new IllegalArgumentException("No nodes to load");
+    }
+    while (!open.isEmpty()) {
+      var closed = open.pop();
+      columns.subTreeSize[closed] = columns.size - closed;
+    }
+    return new CopyOnWriteTree(columns.toVersion());
+  }
+
+  /**
+   * @return the current version of the tree; never blocks
+   */
+  public Version current() {
+    return current.get();
+  }
+
+  /**
+   * Adds a node as the right-most child of a given parent node.
+   *
+   * @param parentId the id of the parent node
+   * @param id       the id of the new node; must be unique in the tree
+   * @param name     the name of the new node
+   * @return the new version of the tree
+   * @throws IllegalArgumentException in case there's no such parent, or the id is already in the tree
+   */
+  public Version addChild(long parentId, long id, String name) {
+    synchronized (writeLock) {
+      var version = current.get();
+      var parent = version.indexOf(parentId);
+      if (version.findById(id).isPresent()) {
+        throw new IllegalArgumentException(String.format("Node with id %d already in tree", id));
+      }
+      var index = parent + version.subTreeSize[parent];
+      var size = version.size + 1;
+
+      var ids = insert(version.ids, version.size, index, id);
+      var depth = insert(version.depth, version.size, index, version.depth[parent] + 1);
+      var names = insert(version.names, version.size, index, name);
+      var parents = insert(version.parent, version.size, index, parent);
+      for (var i = index + 1; i < size; i++) {
+        if (parents[i] >= index) {
+          parents[i]++;
+        }
+      }
+      var subTreeSize = insert(version.subTreeSize, version.size, index, 1);
+      for (var ancestor = parent; ancestor != NO_PARENT; ancestor = parents[ancestor]) {
+        subTreeSize[ancestor]++;
+      }
+
+      var sorted = -Arrays.binarySearch(version.sortedIds, 0, version.size, id) - 1;
+      var sortedIds = insert(version.sortedIds, version.size, sorted, id);
+      var byId = insert(version.byId, version.size, sorted, index);
+      for (var i = 0; i < size; i++) {
+        if (i != sorted && byId[i] >= index) {
+          byId[i]++;
+        }
+      }
+
+      return publish(new Version(size, ids, parents, depth, subTreeSize, names, sortedIds, byId));
+    }
+  }
+
+  /**
+   * Removes a node and its sub-tree.
+   *
+   * @param id the id of the node; must not be the root
+   * @return the new version of the tree
+   * @throws IllegalArgumentException in case there's no such node, or it is the root
+   */
+  public Version removeChild(long id) {
+    synchronized (writeLock) {
+      var version = current.get();
+      var index = version.indexOf(id);
+      if (index == 0) {
+        throw new IllegalArgumentException(String.format("Can not remove the root: %d", id));
+      }
+      var count = version.subTreeSize[index];
+      var size = version.size - count;
+
+      var ids = remove(version.ids, version.size, index, count);
+      var depth = remove(version.depth, version.size, index, count);
+      var names = remove(version.names, version.size, index, count);
+      var parents = remove(version.parent, version.size, index, count);
+      for (var i = index; i < size; i++) {
+        if (parents[i] >= index) {
+          parents[i] -= count;
+        }
+      }
+      var subTreeSize = remove(version.subTreeSize, version.size, index, count);
+      for (var ancestor = version.parent[index]; ancestor != NO_PARENT; ancestor = parents[ancestor]) {
+        subTreeSize[ancestor] -= count;
+      }
+
+      var sortedIds = new long[size];
+      var byId = new int[size];
+      var sorted = 0;
+      for (var i = 0; i < version.size; i++) {
+        var position = version.byId[i];
+        if (position < index) {
+          sortedIds[sorted] = version.sortedIds[i];
+          byId[sorted++] = position;
+        } else if (position >= index + count) {
+          sortedIds[sorted] = version.sortedIds[i];
+          byId[sorted++] = position - count;
+        }
+      }
+
+      return publish(new Version(size, ids, parents, depth, subTreeSize, names, sortedIds, byId));
+    }
+  }
+
+  /**
+   * Renames a node - only the names are copied, the structure is shared with the previous version.
+   *
+   * @param id   the id of the node
+   * @param name the new name
+   * @return the new version of the tree
+   * @throws IllegalArgumentException in case there's no such node
+   */
+  public Version rename(long id, String name) {
+    synchronized (writeLock) {
+      var version = current.get();
+      var names = Arrays.copyOf(version.names, version.size);
+      names[version.indexOf(id)] = name;
+      return publish(new Version(version.size, version.ids, version.parent, version.depth,
+          version.subTreeSize, names, version.sortedIds, version.byId));
+    }
+  }
+
+  protected Version publish(Version version) {
+    current.set(version);
+    return version;
+  }
+
+  private static long[] insert(long[] column, int size, int index, long value) {
+    var copy = new long[size + 1];
+    System.arraycopy(column, 0, copy, 0, index);
+    System.arraycopy(column, index, copy, index + 1, size - index);
+    copy[index] = value;
+    return copy;
+  }
+
+  private static int[] insert(int[] column, int size, int index, int value) {
+    var copy = new int[size + 1];
+    System.arraycopy(column, 0, copy, 0, index);
+    System.arraycopy(column, index, copy, index + 1, size - index);
+    copy[index] = value;
+    return copy;
+  }
+
+  private static String[] insert(String[] column, int size, int index, String value) {
+    var copy = new String[size + 1];
+    System.arraycopy(column, 0, copy, 0, index);
+    System.arraycopy(column, index, copy, index + 1, size - index);
+    copy[index] = value;
+    return copy;
+  }
+
+  private static long[] remove(long[] column, int size, int index, int count) {
+    var copy = new long[size - count];
+    System.arraycopy(column, 0, copy, 0, index);
+    System.arraycopy(column, index + count, copy, index, size - index - count);
+    return copy;
+  }
+
+  private static int[] remove(int[] column, int size, int index, int count) {
+    var copy = new int[size - count];
+    System.arraycopy(column, 0, copy, 0, index);
+    System.arraycopy(column, index + count, copy, index, size - index - count);
+    return copy;
+  }
+
+  private static String[] remove(String[] column, int size, int index, int count) {
+    var copy = new String[size - count];
+    System.arraycopy(column, 0, copy, 0, index);
+    System.arraycopy(column, index + count, copy, index, size - index - count);
+    return copy;
+  }
+
+  /**
+   * Growable columns to load a tree into.
+   */
+  private static class Columns {
+    private int size = 0;
+    private long[] ids = new long[16];
+    private int[] parent = new int[16];
+    private int[] depth = new int[16];
+    private int[] subTreeSize = new int[16];
+    private String[] names = new String[16];
+
+    private void add(long id, int parentIndex, int nodeDepth, String name) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        parent = Arrays.copyOf(parent, size * 2);
+        depth = Arrays.copyOf(depth, size * 2);
+        subTreeSize = Arrays.copyOf(subTreeSize, size * 2);
+        names = Arrays.copyOf(names, size * 2);
+      }
+      ids[size] = id;
+      parent[size] = parentIndex;
+      depth[size] = nodeDepth;
+      names[size] = name;
+      size++;
+    }
+
+    private Version toVersion() {
+      var sortedIds = Arrays.copyOf(ids, size);
+      Arrays.sort(sortedIds);
+      for (var i = 1; i < size; i++) {
+        if (sortedIds[i] == sortedIds[i - 1]) {
+          throw new IllegalArgumentException(String.format("Node with id %d loaded twice", sortedIds[i]));
+        }
+      }
+      var byId = new int[size];
+      for (var i = 0; i < size; i++) {
+        byId[Arrays.binarySearch(sortedIds, ids[i])] = i;
+      }
+      return new Version(size, Arrays.copyOf(ids, size), Arrays.copyOf(parent, size), Arrays.copyOf(depth, size),
+          Arrays.copyOf(subTreeSize, size), Arrays.copyOf(names, size), sortedIds, byId);
+    }
+  }
+
+  /**
+   * Immutable version of the tree - the nodes in pre-order, with the {@code id}s sorted together with the indices
+   * of the nodes for the look-up by {@code id}.
+   * <p>
+   * The {@code lft} of a node in pre-order is derived from its index and depth, thus the columns hold no
+   * {@code lft} or {@code rgt} to renumber.
+   */
+  public static final class Version {
+    private final int size;
+    private final long[] ids;
+    private final int[] parent;
+    private final int[] depth;
+    private final int[] subTreeSize;
+    private final String[] names;
+    private final long[] sortedIds;
+    private final int[] byId;
+
+    private Version(int size, long[] ids, int[] parent, int[] depth, int[] subTreeSize, String[] names,
+                    long[] sortedIds, int[] byId) {
+      this.size = size;
+      this.ids = ids;
+      this.parent = parent;
+      this.depth = depth;
+      this.subTreeSize = subTreeSize;
+      this.names = names;
+      this.sortedIds = sortedIds;
+      this.byId = byId;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public Node getRoot() {
+      return new Node(0);
+    }
+
+    /**
+     * Finds a node by its {@code id} - a binary search on the sorted {@code id}s.
+     *
+     * @param id the id of the node
+     * @return optional of the node; or empty optional, if there's no such node in this version
+     */
+    public Optional<Node> findById(long id) {
+      var sorted = Arrays.binarySearch(sortedIds, 0, size, id);
+      return sorted < 0 ? Optional.empty() : Optional.of(new Node(byId[sorted]));
+    }
+
+    private int indexOf(long id) {
+      var sorted = Arrays.binarySearch(sortedIds, 0, size, id);
+      if (sorted < 0) {
+        throw new IllegalArgumentException(String.format("No node with id %d in tree", id));
+      }
+      return byId[sorted];
+    }
+
+    /**
+     * @see works.hacker.mptt.TreeRepository#findChildren
+     */
+    public List<Node> findChildren(Node node) {
+      var children = new ArrayList<Node>();
+      var end = node.index + subTreeSize[node.index];
+      for (var child = node.index + 1; child < end; child += subTreeSize[child]) {
+        children.add(new Node(child));
+      }
+      return children;
+    }
+
+    /**
+     * @see works.hacker.mptt.TreeRepository#findSubTree
+     */
+    public List<Node> findSubTree(Node node) {
+      var subTree = new ArrayList<Node>(subTreeSize[node.index]);
+      for (var index = node.index; index < node.index + subTreeSize[node.index]; index++) {
+        subTree.add(new Node(index));
+      }
+      return subTree;
+    }
+
+    /**
+     * @see works.hacker.mptt.TreeRepository#findAncestors
+     */
+    public List<Node> findAncestors(Node node) {
+      var ancestors = new ArrayList<Node>();
+      for (var ancestor = parent[node.index]; ancestor != NO_PARENT; ancestor = parent[ancestor]) {
+        ancestors.add(new Node(ancestor));
+      }
+      Collections.reverse(ancestors);
+      return ancestors;
+    }
+
+    /**
+     * @see works.hacker.mptt.TreeRepository#findParent
+     */
+    public Optional<Node> findParent(Node node) {
+      var parentIndex = parent[node.index];
+      return parentIndex == NO_PARENT ? Optional.empty() : Optional.of(new Node(parentIndex));
+    }
+
+    /**
+     * Node of a version - immutable, as the version is.
+     */
+    public final class Node {
+      private final int index;
+
+      private Node(int index) {
+        this.index = index;
+      }
+
+      public long getId() {
+        return ids[index];
+      }
+
+      public String getName() {
+        return names[index];
+      }
+
+      public long getDepth() {
+        return depth[index];
+      }
+
+      /**
+       * @return the {@code lft} of the node in the classic MPTT structure - all nodes before it in pre-order,
+       * except its ancestors, are closed
+       */
+      public long getLft() {
+        return 2L * index - depth[index] + 1;
+      }
+
+      public long getRgt() {
+        return getLft() + 2L * subTreeSize[index] - 1;
+      }
+
+      @Override
+      public int hashCode() {
+        return Objects.hash(index);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        return o instanceof Node && ((Node) o).index == index && ((Node) o).version() == Version.this;
+      }
+
+      private Version version() {
+        return Version.this;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("%s (id: %d) [lft: %d | rgt: %d]", getName(), getId(), getLft(), getRgt());
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package works.hacker.mptt.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Read-only tree, memory-mapped from a compact columnar snapshot file written by {@link TreeSnapshotWriter}.
+ * <p>
+ * The nodes are stored in pre-order, so the index of a node in the file serves as its {@code lft} and the
+ * index past its last descendant as its {@code rgt}. The file consists of:
+ * <ul>
+ * <li>a header - magic number, version, number of nodes, number of name bytes and the {@code treeId}</li>
+ * <li>the {@code id}s of the nodes, and the {@code id}s sorted together with the indices of the nodes</li>
+ * <li>the index of the parent, the {@code depth}, the {@code rgt} and the offset of the name of the nodes</li>
+ * <li>the UTF-8 encoded names</li>
+ * </ul>
+ * Nothing is deserialised on {@link #open} - the queries read the mapped columns directly, and a {@link Node} is
+ * a flyweight of the snapshot and an index. Thus a service can warm up from a snapshot without querying the
+ * database. A snapshot is limited to 2GB.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @see TreeSnapshotWriter
+ */
+public class TreeSnapshot {
+  public static final int MAGIC = 0x4D505453;
+  public static final int VERSION = 1;
+  public static final int NO_PARENT = -1;
+
+  static final int HEADER_BYTES = 32;
+  static final int NODE_BYTES = 2 * Long.BYTES + 5 * Integer.BYTES;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final long treeId;
+
+  private final int sortedIdOffset;
+  private final int byIdOffset;
+  private final int parentOffset;
+  private final int depthOffset;
+  private final int rgtOffset;
+  private final int nameOffsetOffset;
+  private final int namesOffset;
+
+  protected TreeSnapshot(ByteBuffer buffer) {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not a tree snapshot");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException(String.format("Unsupported snapshot version: %d", buffer.getInt(4)));
+    }
+    this.size = buffer.getInt(8);
+    this.treeId = buffer.getLong(16);
+
+    this.sortedIdOffset = HEADER_BYTES + size * Long.BYTES;
+    this.byIdOffset = sortedIdOffset + size * Long.BYTES;
+    this.parentOffset = byIdOffset + size * Integer.BYTES;
+    this.depthOffset = parentOffset + size * Integer.BYTES;
+    this.rgtOffset = depthOffset + size * Integer.BYTES;
+    this.nameOffsetOffset = rgtOffset + size * Integer.BYTES;
+    this.namesOffset = nameOffsetOffset + (size + 1) * Integer.BYTES;
+  }
+
+  /**
+   * Memory-maps a snapshot file.
+   *
+   * @param file the snapshot file written by {@link TreeSnapshotWriter}
+   * @return the snapshot
+   * @throws IllegalArgumentException in case the file is not a snapshot
+   */
+  public static TreeSnapshot open(Path file) throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      return new TreeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getTreeId() {
+    return treeId;
+  }
+
+  public Node getRoot() {
+    return new Node(0);
+  }
+
+  /**
+   * Finds a node by its {@code id} - a binary search on the sorted {@code id}s.
+   *
+   * @param id the id of the node
+   * @return optional of the node; or empty optional, if there's no such node in the snapshot
+   */
+  public Optional<Node> findById(long id) {
+    var low = 0;
+    var high = size - 1;
+    while (low <= high) {
+      var middle = (low + high) >>> 1;
+      var middleId = buffer.getLong(sortedIdOffset + middle * Long.BYTES);
+      if (middleId < id) {
+        low = middle + 1;
+      } else if (middleId > id) {
+        high = middle - 1;
+      } else {
+        return Optional.of(new Node(buffer.getInt(byIdOffset + middle * Integer.BYTES)));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @see works.hacker.mptt.TreeRepository#findChildren
+   */
+  public List<Node> findChildren(Node node) {
+    var children = new ArrayList<Node>();
+    for (var child = node.index + 1; child < node.getRgt(); child = new Node(child).getRgt()) {
+      children.add(new Node(child));
+    }
+    return children;
+  }
+
+  /**
+   * @see works.hacker.mptt.TreeRepository#findSubTree
+   */
+  public List<Node> findSubTree(Node node) {
+    var subTree = new ArrayList<Node>(node.getRgt() - node.index);
+    for (var index = node.index; index < node.getRgt(); index++) {
+      subTree.add(new Node(index));
+    }
+    return subTree;
+  }
+
+  /**
+   * @see works.hacker.mptt.TreeRepository#findAncestors
+   */
+  public List<Node> findAncestors(Node node) {
+    var ancestors = new ArrayList<Node>();
+    for (var parent = node.getParentIndex(); parent != NO_PARENT; parent = new Node(parent).getParentIndex()) {
+      ancestors.add(new Node(parent));
+    }
+    Collections.reverse(ancestors);
+    return ancestors;
+  }
+
+  /**
+   * @see works.hacker.mptt.TreeRepository#findParent
+   */
+  public Optional<Node> findParent(Node node) {
+    var parent = node.getParentIndex();
+    return parent == NO_PARENT ? Optional.empty() : Optional.of(new Node(parent));
+  }
+
+  /**
+   * Flyweight of a node in the snapshot - the values are read from the mapped columns on access.
+   */
+  public final class Node {
+    private final int index;
+
+    private Node(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException(String.format("No node at index %d", index));
+      }
+      this.index = index;
+    }
+
+    /**
+     * @return the index of the node in pre-order - analogical to {@code lft}
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * @return the index past the last node of the sub-tree - analogical to {@code rgt}
+     */
+    public int getRgt() {
+      return buffer.getInt(rgtOffset + index * Integer.BYTES);
+    }
+
+    public long getId() {
+      return buffer.getLong(HEADER_BYTES + index * Long.BYTES);
+    }
+
+    public long getDepth() {
+      return buffer.getInt(depthOffset + index * Integer.BYTES);
+    }
+
+    public String getName() {
+      var start = buffer.getInt(nameOffsetOffset + index * Integer.BYTES);
+      var end = buffer.getInt(nameOffsetOffset + (index + 1) * Integer.BYTES);
+      var bytes = new byte[end - start];
+      buffer.duplicate().position(namesOffset + start).get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getParentIndex() {
+      return buffer.getInt(parentOffset + index * Integer.BYTES);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Node && ((Node) o).index == index && ((Node) o).snapshot() == TreeSnapshot.this;
+    }
+
+    private TreeSnapshot snapshot() {
+      return TreeSnapshot.this;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s (id: %d) [treeId: %d | depth: %d]", getName(), getId(), treeId, getDepth());
+    }
+  }
+}
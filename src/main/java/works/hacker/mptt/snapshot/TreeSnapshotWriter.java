@@ -0,0 +1,149 @@
+package works.hacker.mptt.snapshot;
+
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Writes the sub-tree of a node into a {@link TreeSnapshot} file.
+ * <p>
+ * The nodes are read in one ordered pass via {@link TreeRepository#streamSubTree}, thus the snapshot can be
+ * produced from any of the repositories - and it has to be written within a transaction. While reading, only
+ * primitive columns are kept in memory.
+ *
+ * @param <T> the entity type of the nodes
+ * @see TreeSnapshot
+ */
+@SuppressWarnings("rawtypes")
+public class TreeSnapshotWriter<T extends TreeEntity> {
+  private final TreeRepository<T> treeRepo;
+
+  public TreeSnapshotWriter(TreeRepository<T> treeRepo) {
+    this.treeRepo = treeRepo;
+  }
+
+  /**
+   * Writes the sub-tree of a node into a snapshot file.
+   *
+   * @param node the root of the snapshot; must not be null; must be part of a tree
+   * @param file the snapshot file; created or overwritten
+   */
+  public void write(T node, Path file) throws IOException {
+    try (var subTree = treeRepo.streamSubTree(node)) {
+      write(subTree, file);
+    }
+  }
+
+  /**
+   * Writes nodes in pre-order into a snapshot file.
+   *
+   * @param subTree the nodes of a sub-tree in pre-order - every node is followed by its sub-tree
+   * @param file    the snapshot file; created or overwritten
+   * @throws IllegalArgumentException in case the nodes are empty or not in pre-order
+   */
+  public void write(Stream<T> subTree, Path file) throws IOException {
+    var columns = new Columns();
+    var names = new ByteArrayOutputStream();
+    // the indices of the nodes, whose sub-trees are not complete yet
+    var open = new ArrayDeque<Integer>();
+    long treeId = 0;
+
+    for (Iterator<T> nodes = subTree.iterator(); nodes.hasNext(); ) {
+      var node = nodes.next();
+      var index = columns.size;
+      var depth = (int) node.getDepth();
+      while (!open.isEmpty() && columns.depth[open.peek()] >= depth) {
+        columns.end[open.pop()] = index;
+      }
+      if (index == 0) {
+        treeId = node.getTreeId();
+      } else if (open.isEmpty() || depth != columns.depth[open.peek()] + 1) {
+        throw new IllegalArgumentException(String.format("Node not in pre-order: %s", node));
+      }
+
+      columns.add(node.getId(), open.isEmpty() ? TreeSnapshot.NO_PARENT : open.peek(), depth, names.size());
+      names.writeBytes(node.getName().getBytes(StandardCharsets.UTF_8));
+      open.push(index);
+    }
+    if (columns.size == 0) {
+      throw new IllegalArgumentException("No nodes to write");
+    }
+    while (!open.isEmpty()) {
+      columns.end[open.pop()] = columns.size;
+    }
+
+    write(file, treeId, columns, names.toByteArray());
+  }
+
+  protected void write(Path file, long treeId, Columns columns, byte[] names) throws IOException {
+    var size = columns.size;
+    var byId = IntStream.range(0, size).boxed()
+        .sorted(Comparator.comparingLong(i -> columns.id[i]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+
+    var length = TreeSnapshot.HEADER_BYTES + (long) size * TreeSnapshot.NODE_BYTES + Integer.BYTES + names.length;
+    try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+      buffer.putInt(TreeSnapshot.MAGIC);
+      buffer.putInt(TreeSnapshot.VERSION);
+      buffer.putInt(size);
+      buffer.putInt(names.length);
+      buffer.putLong(treeId);
+      buffer.putLong(0L);
+
+      // the 8-byte columns first, to keep all columns aligned
+      Arrays.stream(columns.id, 0, size).forEach(buffer::putLong);
+      Arrays.stream(byId).forEach(i -> buffer.putLong(columns.id[i]));
+      Arrays.stream(byId).forEach(buffer::putInt);
+      Arrays.stream(columns.parent, 0, size).forEach(buffer::putInt);
+      Arrays.stream(columns.depth, 0, size).forEach(buffer::putInt);
+      Arrays.stream(columns.end, 0, size).forEach(buffer::putInt);
+      Arrays.stream(columns.nameOffset, 0, size).forEach(buffer::putInt);
+      buffer.putInt(names.length);
+      buffer.put(names);
+      buffer.force();
+    }
+  }
+
+  /**
+   * Growable primitive columns of the nodes, by pre-order index.
+   */
+  protected static class Columns {
+    private int size;
+    private long[] id = new long[1024];
+    private int[] parent = new int[1024];
+    private int[] depth = new int[1024];
+    private int[] end = new int[1024];
+    private int[] nameOffset = new int[1024];
+
+    void add(long id, int parent, int depth, int nameOffset) {
+      if (size == this.id.length) {
+        var capacity = size * 2;
+        this.id = Arrays.copyOf(this.id, capacity);
+        this.parent = Arrays.copyOf(this.parent, capacity);
+        this.depth = Arrays.copyOf(this.depth, capacity);
+        this.end = Arrays.copyOf(this.end, capacity);
+        this.nameOffset = Arrays.copyOf(this.nameOffset, capacity);
+      }
+      this.id[size] = id;
+      this.parent[size] = parent;
+      this.depth[size] = depth;
+      this.nameOffset[size] = nameOffset;
+      size++;
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package works.hacker.repo.closure;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import works.hacker.model.closure.ClosureNode;
+
+public interface ClosureNodeRepository extends JpaRepository<ClosureNode, Long>,
+    ClosureNodeRepositoryCustom {
+  ClosureNode findByName(String name);
+}
@@ -0,0 +1,8 @@
+package works.hacker.repo.closure;
+
+import works.hacker.model.closure.ClosureNode;
+import works.hacker.model.closure.ClosureNodeRelation;
+import works.hacker.mptt.closure.ClosureRepository;
+
+public interface ClosureNodeRepositoryCustom extends ClosureRepository<ClosureNode, ClosureNodeRelation> {
+}
@@ -0,0 +1,11 @@
+package works.hacker.repo.closure;
+
+import org.springframework.stereotype.Repository;
+import works.hacker.model.closure.ClosureNode;
+import works.hacker.model.closure.ClosureNodeRelation;
+import works.hacker.mptt.closure.ClosureRepositoryImpl;
+
+@Repository
+public class ClosureNodeRepositoryImpl extends ClosureRepositoryImpl<ClosureNode, ClosureNodeRelation> implements
+    ClosureNodeRepositoryCustom {
+}
@@ -0,0 +1,9 @@
+package works.hacker.repo.farey;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import works.hacker.model.farey.FareyNode;
+
+public interface FareyNodeRepository extends JpaRepository<FareyNode, Long>,
+    FareyNodeRepositoryCustom {
+  FareyNode findByName(String name);
+}
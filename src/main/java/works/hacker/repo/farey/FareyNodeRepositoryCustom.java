@@ -0,0 +1,7 @@
+package works.hacker.repo.farey;
+
+import works.hacker.model.farey.FareyNode;
+import works.hacker.mptt.farey.FareyRepository;
+
+public interface FareyNodeRepositoryCustom extends FareyRepository<FareyNode> {
+}
@@ -0,0 +1,10 @@
+package works.hacker.repo.farey;
+
+import org.springframework.stereotype.Repository;
+import works.hacker.model.farey.FareyNode;
+import works.hacker.mptt.farey.FareyRepositoryImpl;
+
+@Repository
+public class FareyNodeRepositoryImpl extends FareyRepositoryImpl<FareyNode> implements
+    FareyNodeRepositoryCustom {
+}
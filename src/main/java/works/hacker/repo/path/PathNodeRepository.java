@@ -0,0 +1,9 @@
+package works.hacker.repo.path;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import works.hacker.model.path.PathNode;
+
+public interface PathNodeRepository extends JpaRepository<PathNode, Long>,
+    PathNodeRepositoryCustom {
+  PathNode findByName(String name);
+}
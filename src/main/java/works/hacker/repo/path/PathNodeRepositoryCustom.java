@@ -0,0 +1,7 @@
+package works.hacker.repo.path;
+
+import works.hacker.model.path.PathNode;
+import works.hacker.mptt.path.PathRepository;
+
+public interface PathNodeRepositoryCustom extends PathRepository<PathNode> {
+}
@@ -0,0 +1,10 @@
+package works.hacker.repo.path;
+
+import org.springframework.stereotype.Repository;
+import works.hacker.model.path.PathNode;
+import works.hacker.mptt.path.PathRepositoryImpl;
+
+@Repository
+public class PathNodeRepositoryImpl extends PathRepositoryImpl<PathNode> implements
+    PathNodeRepositoryCustom {
+}
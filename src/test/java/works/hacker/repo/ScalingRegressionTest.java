@@ -0,0 +1,272 @@
+package works.hacker.repo;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeImporter;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.classic.MpttTreeImporter;
+import works.hacker.mptt.dyadic.DyadicTreeImporter;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Measures the SQL statements executed, the rows read and the rows written per operation, as reported by the
+ * Hibernate {@link Statistics}, on trees of growing size - and asserts that the costs grow no faster than the
+ * complexity expected of the engine, e.g. an {@code O(n)} operation does not turn into {@code O(n²)}.
+ * <p>
+ * The operations are executed on a sub-tree of a fixed size - {@code child-1} with three children - while the
+ * rest of the tree grows, thus the costs of an operation touching the sub-tree only stay the same.
+ * <p>
+ * The costs are reported to {@code target/scaling-report.csv} and {@code target/scaling-report.md}.
+ * <p>
+ * <b>NOTE:</b> The rows written are the entities inserted, updated and deleted - the rows affected by bulk JPQL
+ * statements ({@code executeUpdate}) are not reported by the {@link Statistics}. Thus only the classic and the
+ * dyadic engine are measured, as they write entity by entity; the bulk statements of the closure engine would
+ * count as statements only, and a regression in the rows they write would pass unnoticed.
+ * <p>
+ * <b>NOTE:</b> Not transactional - every operation runs in a transaction of its own, so its statements are
+ * executed before the statistics are read.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class ScalingRegressionTest {
+  protected static final int[] SIZES = {100, 200, 400, 800};
+  protected static final Path REPORT_DIR = Path.of("target");
+
+  protected static final List<Cost> costs = new ArrayList<>();
+
+  @Resource
+  MpttNodeRepository mpttRepo;
+
+  @Resource
+  DyadicNodeRepository dyadicRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  @Resource
+  EntityManagerFactory entityManagerFactory;
+
+  protected Statistics statistics;
+
+  @Before
+  public void init() {
+    mpttRepo.setEntityClass(MpttNode.class);
+    dyadicRepo.setEntityClass(DyadicNode.class);
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @After
+  public void cleanup() {
+    mpttRepo.deleteAll();
+    dyadicRepo.deleteAll();
+  }
+
+  @AfterClass
+  public static void writeReport() throws IOException {
+    Files.createDirectories(REPORT_DIR);
+
+    var csv = new StringBuilder("engine,operation,size,statements,rowsRead,rowsWritten\n");
+    costs.forEach(cost -> csv.append(String.format("%s,%s,%d,%d,%d,%d\n",
+        cost.engine, cost.operation, cost.size, cost.statements, cost.rowsRead, cost.rowsWritten)));
+    Files.writeString(REPORT_DIR.resolve("scaling-report.csv"), csv);
+
+    var markdown = new StringBuilder(
+        "| engine | operation | size | statements | rows read | rows written |\n" +
+            "|--------|-----------|-----:|-----------:|----------:|-------------:|\n");
+    costs.forEach(cost -> markdown.append(String.format("| %s | %s | %d | %d | %d | %d |\n",
+        cost.engine, cost.operation, cost.size, cost.statements, cost.rowsRead, cost.rowsWritten)));
+    Files.writeString(REPORT_DIR.resolve("scaling-report.md"), markdown);
+  }
+
+  @Test
+  public void givenGrowingClassicTree_whenOperations_thenWithinComplexity() throws Exception {
+    var actual = measure("classic", mpttRepo, mpttRepo, new MpttTreeImporter(dataSource, new TreeTable("MpttNode")));
+
+    assertComplexity(actual.get("findChildren"), Complexity.CONSTANT);
+    assertComplexity(actual.get("findSubTree"), Complexity.CONSTANT);
+    assertComplexity(actual.get("findAncestors"), Complexity.CONSTANT);
+    assertComplexity(actual.get("findParent"), Complexity.CONSTANT);
+    // the nodes to the right are renumbered
+    assertComplexity(actual.get("addChild"), Complexity.LINEAR);
+    assertComplexity(actual.get("removeChild"), Complexity.LINEAR);
+  }
+
+  @Test
+  public void givenGrowingDyadicTree_whenOperations_thenWithinComplexity() throws Exception {
+    var actual = measure("dyadic", dyadicRepo, dyadicRepo,
+        new DyadicTreeImporter(dataSource, new TreeTable("DyadicNode")));
+
+    assertComplexity(actual.get("findChildren"), Complexity.CONSTANT);
+    assertComplexity(actual.get("findSubTree"), Complexity.CONSTANT);
+    assertComplexity(actual.get("findAncestors"), Complexity.CONSTANT);
+    assertComplexity(actual.get("findParent"), Complexity.CONSTANT);
+    assertComplexity(actual.get("addChild"), Complexity.CONSTANT);
+    assertComplexity(actual.get("removeChild"), Complexity.CONSTANT);
+  }
+
+  /**
+   * Measures every operation on a tree of every size in {@link #SIZES}.
+   *
+   * @return map of the operations to their costs, ordered by size
+   */
+  protected Map<String, List<Cost>> measure(String engine, TreeRepository treeRepo, JpaRepository jpaRepo,
+                                            TreeImporter importer) throws Exception {
+    var measured = new ArrayList<Cost>();
+    for (var size : SIZES) {
+      var treeId = importer.importTree(records(size).iterator());
+      var root = treeRepo.findTreeRoot(treeId);
+      var child1 = (TreeEntity) treeRepo.findChildren(root).get(0);
+      var subChild1 = (TreeEntity) treeRepo.findChildren(child1).get(0);
+
+      measured.add(measure(engine, "findChildren", size, () -> treeRepo.findChildren(child1)));
+      measured.add(measure(engine, "findSubTree", size, () -> treeRepo.findSubTree(child1)));
+      measured.add(measure(engine, "findAncestors", size, () -> treeRepo.findAncestors(subChild1)));
+      measured.add(measure(engine, "findParent", size, () -> treeRepo.findParent(subChild1)));
+
+      var added = treeRepo.createNode("added");
+      var parent = jpaRepo.findById(child1.getId()).orElseThrow();
+      measured.add(measure(engine, "addChild", size, () -> {
+        treeRepo.addChild((TreeEntity) parent, added);
+        return null;
+      }));
+
+      var freshParent = jpaRepo.findById(child1.getId()).orElseThrow();
+      var freshAdded = jpaRepo.findById(((TreeEntity) added).getId()).orElseThrow();
+      measured.add(measure(engine, "removeChild", size,
+          () -> treeRepo.removeChild((TreeEntity) freshParent, (TreeEntity) freshAdded)));
+
+      jpaRepo.deleteAll();
+    }
+    costs.addAll(measured);
+    return measured.stream()
+        .collect(Collectors.groupingBy(cost -> cost.operation, LinkedHashMap::new, Collectors.toList()));
+  }
+
+  protected Cost measure(String engine, String operation, int size, Callable<?> call) throws Exception {
+    statistics.clear();
+    call.call();
+    return new Cost(engine, operation, size,
+        statistics.getPrepareStatementCount(),
+        statistics.getEntityLoadCount(),
+        statistics.getEntityInsertCount() + statistics.getEntityUpdateCount() +
+            statistics.getEntityDeleteCount());
+  }
+
+  /**
+   * Asserts that the costs at the largest size grow no faster than expected from the costs at the smallest size.
+   */
+  protected void assertComplexity(List<Cost> measured, Complexity complexity) {
+    var smallest = measured.get(0);
+    var largest = measured.get(measured.size() - 1);
+    var growth = (double) largest.size / smallest.size;
+
+    assertThat(String.format("statements of %s", largest), largest.statements,
+        is(lessThanOrEqualTo(complexity.bound(smallest.statements, growth))));
+    assertThat(String.format("rows read of %s", largest), largest.rowsRead,
+        is(lessThanOrEqualTo(complexity.bound(smallest.rowsRead, growth))));
+    assertThat(String.format("rows written of %s", largest), largest.rowsWritten,
+        is(lessThanOrEqualTo(complexity.bound(smallest.rowsWritten, growth))));
+  }
+
+  /**
+   * The records of a tree of a given size - the root, {@code child-1} with three children, and {@code child-2}
+   * with the rest of the nodes as a complete binary tree below it (which keeps the denominators of the dyadic
+   * engine small).
+   */
+  protected List<TreeImporter.Record> records(int size) {
+    var records = new ArrayList<TreeImporter.Record>();
+    records.add(new TreeImporter.Record("root", null, "root"));
+    records.add(new TreeImporter.Record("child-1", "root", "child-1"));
+    for (var i = 1; i <= 3; i++) {
+      records.add(new TreeImporter.Record("subChild-" + i, "child-1", "subChild-" + i));
+    }
+    addBinaryTree(records, 0, size - records.size(), "root");
+    return records;
+  }
+
+  protected void addBinaryTree(List<TreeImporter.Record> records, int index, int size, String parentId) {
+    if (index >= size) {
+      return;
+    }
+    var id = index == 0 ? "child-2" : "filler-" + index;
+    records.add(new TreeImporter.Record(id, parentId, id));
+    addBinaryTree(records, 2 * index + 1, size, id);
+    addBinaryTree(records, 2 * index + 2, size, id);
+  }
+
+  protected enum Complexity {
+    CONSTANT {
+      @Override
+      long bound(long smallest, double growth) {
+        return smallest;
+      }
+    },
+    LINEAR {
+      @Override
+      long bound(long smallest, double growth) {
+        // some slack for the constant part of the costs, but far below the growth of O(n²)
+        return (long) Math.ceil(smallest * growth * 1.5);
+      }
+    };
+
+    abstract long bound(long smallest, double growth);
+  }
+
+  protected static class Cost {
+    final String engine;
+    final String operation;
+    final int size;
+    final long statements;
+    final long rowsRead;
+    final long rowsWritten;
+
+    Cost(String engine, String operation, int size, long statements, long rowsRead, long rowsWritten) {
+      this.engine = engine;
+      this.operation = operation;
+      this.size = size;
+      this.statements = statements;
+      this.rowsRead = rowsRead;
+      this.rowsWritten = rowsWritten;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s %s on %d nodes", engine, operation, size);
+    }
+  }
+}
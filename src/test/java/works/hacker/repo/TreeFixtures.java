@@ -0,0 +1,318 @@
+package works.hacker.repo;
+
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+/**
+ * The trees shared by the repository tests of the engines, which do not renumber the existing nodes - thus the
+ * bounds of each node are the same in all the trees.
+ * <p>
+ * The expected trees are printed with the bounds given by node name, i.e. {@code root}, {@code child-1},
+ * {@code child-2}, {@code subChild-1}, {@code subChild-2}, {@code subSubChild-1} and {@code lastSubChild}.
+ */
+public class TreeFixtures {
+  private TreeFixtures() {
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class TreeWithNoChildren<T extends TreeEntity> {
+    public T root;
+
+    public Long treeId;
+
+    protected final TreeRepository<T> repo;
+    protected final TreeUtils<T> utils;
+    protected final Map<String, String> bounds;
+
+    public TreeWithNoChildren(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      this.repo = repo;
+      this.utils = utils;
+      this.bounds = bounds;
+
+      try {
+        setupTree();
+      } catch (Exception e) {
+        // do nothing
+      }
+    }
+
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, InvocationTargetException,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        TreeRepository.NodeNotInTree {
+      root = repo.createNode("root");
+
+      this.treeId = repo.startTree(root);
+    }
+
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"));
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class TreeWithOneChild<T extends TreeEntity> extends TreeWithNoChildren<T> {
+    public T child1;
+
+    public TreeWithOneChild(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      super(repo, utils, bounds);
+    }
+
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        InvocationTargetException, NoSuchMethodException, InstantiationException,
+        IllegalAccessException {
+      super.setupTree();
+      child1 = repo.createNode("child-1");
+      repo.addChild(root, child1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n"+
+          "    └── child-1 (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"));
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class TreeWithTwoChildren<T extends TreeEntity> extends TreeWithOneChild<T> {
+    public T child2;
+
+    public TreeWithTwoChildren(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      super(repo, utils, bounds);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        InvocationTargetException {
+      super.setupTree();
+      child2 = repo.createNode("child-2");
+      repo.addChild(root, child2);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          child2.getId(), child2.getTreeId(), bounds.get("child-2"));
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class TreeWithChildAndSubChild<T extends TreeEntity> extends TreeWithOneChild<T> {
+    public T subChild1;
+
+    public TreeWithChildAndSubChild(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      super(repo, utils, bounds);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        InvocationTargetException {
+      super.setupTree();
+      subChild1 = repo.createNode("subChild-1");
+      repo.addChild(child1, subChild1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "        └── subChild-1 (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          subChild1.getId(), subChild1.getTreeId(), bounds.get("subChild-1"));
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class ComplexTree1<T extends TreeEntity> extends TreeWithTwoChildren<T> {
+    public T subChild1;
+
+    public ComplexTree1(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      super(repo, utils, bounds);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        InvocationTargetException, NoSuchMethodException, InstantiationException,
+        IllegalAccessException {
+      super.setupTree();
+      subChild1 = repo.createNode("subChild-1");
+      repo.addChild(child1, subChild1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │   └── subChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          subChild1.getId(), subChild1.getTreeId(), bounds.get("subChild-1"),
+          child2.getId(), child2.getTreeId(), bounds.get("child-2"));
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class ComplexTree2<T extends TreeEntity> extends ComplexTree1<T> {
+    public T subSubChild1;
+
+    public ComplexTree2(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      super(repo, utils, bounds);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        NoSuchMethodException, InstantiationException, IllegalAccessException,
+        InvocationTargetException {
+      super.setupTree();
+      subSubChild1 = repo.createNode("subSubChild-1");
+      repo.addChild(subChild1, subSubChild1);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │   └── subChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │       └── subSubChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          subChild1.getId(), subChild1.getTreeId(), bounds.get("subChild-1"),
+          subSubChild1.getId(), subSubChild1.getTreeId(), bounds.get("subSubChild-1"),
+          child2.getId(), child2.getTreeId(), bounds.get("child-2"));
+      // @formatter:on
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  public static class ComplexTree3<T extends TreeEntity> extends ComplexTree2<T> {
+    public T subChild2;
+    public T lastSubChild;
+
+    public ComplexTree3(TreeRepository<T> repo, TreeUtils<T> utils, Map<String, String> bounds) {
+      super(repo, utils, bounds);
+    }
+
+    @Override
+    protected void setupTree()
+        throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree,
+        InvocationTargetException, NoSuchMethodException, InstantiationException,
+        IllegalAccessException {
+      super.setupTree();
+      subChild2 = repo.createNode("subChild-2");
+      repo.addChild(child1, subChild2);
+      lastSubChild = repo.createNode("lastSubChild");
+      repo.addChild(child2, lastSubChild);
+    }
+
+    @Override
+    public String getExpected() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    ├── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │   ├── subChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │   │   └── subSubChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │   └── subChild-2 (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | %s]\n" +
+          "        └── lastSubChild (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          subChild1.getId(), subChild1.getTreeId(), bounds.get("subChild-1"),
+          subSubChild1.getId(), subSubChild1.getTreeId(), bounds.get("subSubChild-1"),
+          subChild2.getId(), subChild2.getTreeId(), bounds.get("subChild-2"),
+          child2.getId(), child2.getTreeId(), bounds.get("child-2"),
+          lastSubChild.getId(), lastSubChild.getTreeId(), bounds.get("lastSubChild"));
+      // @formatter:on
+    }
+
+    public String getExpectedPartial() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "    ├── subChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    │   └── subSubChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "    └── subChild-2 (id: %d) [treeId: %d | %s]",
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          subChild1.getId(), subChild1.getTreeId(), bounds.get("subChild-1"),
+          subSubChild1.getId(), subSubChild1.getTreeId(), bounds.get("subSubChild-1"),
+          subChild2.getId(), subChild2.getTreeId(), bounds.get("subChild-2"));
+      // @formatter:on
+    }
+
+    public String getExpectedAfterChild1Removal() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-2 (id: %d) [treeId: %d | %s]\n" +
+          "        └── lastSubChild (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child2.getId(), child2.getTreeId(), bounds.get("child-2"),
+          lastSubChild.getId(), lastSubChild.getTreeId(), bounds.get("lastSubChild"));
+      // @formatter:on
+    }
+
+    public String getExpectedAfterChild2Removal() {
+      // @formatter:off
+      return String.format(
+          ".\n" +
+          "└── root (id: %d) [treeId: %d | %s]\n" +
+          "    └── child-1 (id: %d) [treeId: %d | %s]\n" +
+          "        ├── subChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "        │   └── subSubChild-1 (id: %d) [treeId: %d | %s]\n" +
+          "        └── subChild-2 (id: %d) [treeId: %d | %s]",
+          root.getId(), root.getTreeId(), bounds.get("root"),
+          child1.getId(), child1.getTreeId(), bounds.get("child-1"),
+          subChild1.getId(), subChild1.getTreeId(), bounds.get("subChild-1"),
+          subSubChild1.getId(), subSubChild1.getTreeId(), bounds.get("subSubChild-1"),
+          subChild2.getId(), subChild2.getTreeId(), bounds.get("subChild-2"));
+      // @formatter:on
+    }
+  }
+}
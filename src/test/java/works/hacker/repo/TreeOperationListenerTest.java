@@ -0,0 +1,259 @@
+package works.hacker.repo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.monitor.JfrTreeOperationListener;
+import works.hacker.mptt.monitor.MicrometerTreeMetrics;
+import works.hacker.mptt.monitor.SlowTreeOperationLog;
+import works.hacker.mptt.monitor.TreeOperation;
+import works.hacker.mptt.monitor.TreeOperationListener;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@Transactional
+@DirtiesContext
+public class TreeOperationListenerTest {
+  @Resource
+  MpttNodeRepository mpttRepo;
+
+  @Resource
+  DyadicNodeRepository dyadicRepo;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  protected List<TreeOperation> operations;
+
+  @Before
+  public void init() {
+    mpttRepo.setEntityClass(MpttNode.class);
+    dyadicRepo.setEntityClass(DyadicNode.class);
+    operations = new ArrayList<>();
+  }
+
+  @After
+  public void cleanup() {
+    mpttRepo.setTreeOperationListener(TreeOperationListener.NOOP);
+    dyadicRepo.setTreeOperationListener(TreeOperationListener.NOOP);
+  }
+
+  @Test
+  public void givenClassicTree_whenOperations_thenListenerNotified() throws Exception {
+    mpttRepo.setTreeOperationListener(operations::add);
+
+    var root = new MpttNode("root");
+    var treeId = mpttRepo.startTree(root);
+    var child1 = new MpttNode("child-1");
+    mpttRepo.addChild(root, child1);
+    mpttRepo.addChild(root, new MpttNode("child-2"));
+    mpttRepo.addChild(child1, new MpttNode("subChild-1"));
+    mpttRepo.findChildren(root);
+    mpttRepo.removeChild(root, child1);
+
+    assertThat(getNames(operations),
+        contains("startTree", "addChild", "addChild", "addChild", "findChildren", "removeChild"));
+    assertThat(operations.stream().allMatch(operation -> operation.getTreeId() == treeId), is(true));
+    assertThat(operations.stream().allMatch(operation -> operation.getEngine().equals("classic")), is(true));
+    // root, child-1 and child-2 are renumbered
+    assertThat(operations.get(3).getShifted(), is(3L));
+    assertThat(operations.get(4).getNodes(), is(2L));
+    assertThat(operations.get(5).getNodes(), is(2L));
+    assertThat(operations.get(5).getShifted(), is(2L));
+    // the sub-tree, the nodes to the right by lft, the update of child-2's lft flushed before the last query -
+    // the nodes to the right by rgt; the later updates and deletes are flushed after the operation
+    assertThat(operations.get(5).getQueries(), is(4L));
+  }
+
+  @Test
+  public void givenDyadicTree_whenAddChild_thenDenominatorBitsReported() throws Exception {
+    dyadicRepo.setTreeOperationListener(operations::add);
+
+    var root = new DyadicNode("root");
+    dyadicRepo.startTree(root);
+    var child1 = new DyadicNode("child-1");
+    dyadicRepo.addChild(root, child1);
+    dyadicRepo.addChild(root, new DyadicNode("child-2"));
+    dyadicRepo.addChild(child1, new DyadicNode("subChild-1"));
+
+    assertThat(getNames(operations), contains("startTree", "addChild", "addChild", "addChild"));
+    assertThat(operations.stream().map(TreeOperation::getDenominatorBits).collect(Collectors.toList()),
+        contains(0, 1, 2, 2));
+    assertThat(operations.stream().allMatch(operation -> operation.getShifted() == 0), is(true));
+  }
+
+  @Test
+  public void givenClassicTrees_whenBatchedAndStreamedFinders_thenListenerNotified() throws Exception {
+    var root = new MpttNode("root");
+    var treeId = mpttRepo.startTree(root);
+    var child1 = new MpttNode("child-1");
+    mpttRepo.addChild(root, child1);
+    mpttRepo.addChild(root, new MpttNode("child-2"));
+    var otherRoot = new MpttNode("other-root");
+    mpttRepo.startTree(otherRoot);
+    mpttRepo.setTreeOperationListener(operations::add);
+
+    mpttRepo.findChildren(List.of(root, child1));
+    mpttRepo.findSubTrees(List.of(root, otherRoot));
+    mpttRepo.findAllRoots(null, 10);
+    mpttRepo.findSubTreeProjected(root);
+    try (var subTree = mpttRepo.streamSubTree(root)) {
+      assertThat(subTree.collect(Collectors.toList()), hasSize(3));
+    }
+
+    assertThat(getNames(operations),
+        contains("findChildren", "findSubTrees", "findAllRoots", "findSubTreeProjected", "streamSubTree"));
+    assertThat(operations.get(0).getTreeId(), is(treeId));
+    assertThat(operations.get(0).getNodes(), is(2L));
+    assertThat(operations.get(1).getTreeId(), is(TreeEntity.NO_TREE_ID));
+    assertThat(operations.get(1).getNodes(), is(4L));
+    assertThat(operations.get(2).getTreeId(), is(TreeEntity.NO_TREE_ID));
+    assertThat(operations.get(3).getNodes(), is(3L));
+    assertThat(operations.get(4).getNodes(), is(3L));
+    assertThat(operations.get(4).getQueries(), is(1L));
+  }
+
+  @Test
+  public void givenMicrometerTreeMetrics_whenOperations_thenRecorded() throws Exception {
+    var registry = new SimpleMeterRegistry();
+    mpttRepo.setTreeOperationListener(new MicrometerTreeMetrics(registry));
+
+    var root = new MpttNode("root");
+    mpttRepo.startTree(root);
+    mpttRepo.addChild(root, new MpttNode("child-1"));
+    mpttRepo.addChild(root, new MpttNode("child-2"));
+    mpttRepo.findSubTree(root);
+
+    assertThat(registry.get("mptt.operation").tags("engine", "classic", "operation", "addChild").timer().count(),
+        is(2L));
+    assertThat(registry.get("mptt.rows.shifted").tags("engine", "classic", "operation", "addChild").counter()
+        .count(), is(2.0));
+    assertThat(registry.get("mptt.operation.rows").tags("engine", "classic", "operation", "findSubTree").summary()
+        .max(), is(3.0));
+  }
+
+  @Test
+  public void givenMicrometerOnClasspath_whenMicrometerIfPresent_thenMicrometerTreeMetrics() {
+    assertThat(TreeOperationListener.micrometerIfPresent(), is(instanceOf(MicrometerTreeMetrics.class)));
+  }
+
+  @Test
+  public void givenJfrListenerWithoutRecording_whenOperations_thenNotEnabled() {
+    assertThat(new JfrTreeOperationListener().isEnabled(), is(false));
+    assertThat(TreeOperationListener.all(TreeOperationListener.NOOP, new JfrTreeOperationListener()).isEnabled(),
+        is(false));
+    assertThat(TreeOperationListener.all(TreeOperationListener.NOOP, operations::add).isEnabled(), is(true));
+  }
+
+  @Test
+  public void givenJfrRecording_whenOperations_thenEventsRecorded() throws Exception {
+    mpttRepo.setTreeOperationListener(new JfrTreeOperationListener());
+
+    List<RecordedEvent> events;
+    var file = Files.createTempFile("mptt", ".jfr");
+    try (var recording = new Recording()) {
+      recording.enable("works.hacker.mptt.TreeOperation");
+      recording.start();
+
+      var root = new MpttNode("root");
+      mpttRepo.startTree(root);
+      mpttRepo.addChild(root, new MpttNode("child-1"));
+      // else the pending update of the root is flushed by - and counted for - findSubTree
+      entityManager.flush();
+      mpttRepo.findSubTree(root);
+
+      recording.stop();
+      recording.dump(file);
+      events = RecordingFile.readAllEvents(file);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+
+    assertThat(events.stream().map(event -> event.getString("operation")).collect(Collectors.toList()),
+        contains("startTree", "addChild", "findSubTree"));
+    var findSubTree = events.get(2);
+    assertThat(findSubTree.getString("engine"), is("classic"));
+    assertThat(findSubTree.getLong("nodes"), is(2L));
+    assertThat(findSubTree.getLong("queries"), is(1L));
+    assertThat(findSubTree.getLong("elapsed"), is(greaterThan(0L)));
+  }
+
+  @Test
+  public void givenSlowTreeOperationLog_whenOperationsTouchManyRows_thenLogged() throws Exception {
+    var logged = new ArrayList<TreeOperation>();
+    mpttRepo.setTreeOperationListener(new SlowTreeOperationLog(Duration.ofHours(1), 4) {
+      @Override
+      protected void log(TreeOperation operation) {
+        logged.add(operation);
+      }
+    });
+
+    var root = new MpttNode("root");
+    mpttRepo.startTree(root);
+    var child1 = new MpttNode("child-1");
+    mpttRepo.addChild(root, child1);
+    mpttRepo.addChild(root, new MpttNode("child-2"));
+    mpttRepo.addChild(child1, new MpttNode("subChild-1"));
+    mpttRepo.findChildren(root);
+    mpttRepo.findSubTree(root);
+
+    // subChild-1 renumbers root, child-1 and child-2
+    assertThat(getNames(logged), contains("addChild", "findSubTree"));
+    assertThat(logged.get(0).getShifted(), is(3L));
+    assertThat(logged.get(1).getNodes(), is(4L));
+  }
+
+  @Test
+  public void givenSlowTreeOperationLog_whenLatencyExceeded_thenSlow() {
+    var log = new SlowTreeOperationLog(Duration.ofMillis(100), Long.MAX_VALUE);
+
+    assertThat(log.isSlow(new TreeOperation("classic", "findSubTree", 1L, 100_000_000L, 1000, 1, 0, 0)),
+        is(true));
+    assertThat(log.isSlow(new TreeOperation("classic", "findSubTree", 1L, 99_999_999L, 1000, 1, 0, 0)),
+        is(false));
+  }
+
+  @Test
+  public void givenZeroLatencyThreshold_whenSlowTreeOperationLog_thenIllegalArgumentException() {
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("Latency threshold not positive: PT0S");
+    new SlowTreeOperationLog(Duration.ZERO, 1000);
+  }
+
+  protected List<String> getNames(List<TreeOperation> operations) {
+    return operations.stream().map(TreeOperation::getOperation).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,187 @@
+package works.hacker.repo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeRebuilder;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.classic.MpttTreeImporter;
+import works.hacker.mptt.classic.MpttTreeVerifier;
+import works.hacker.mptt.dyadic.DyadicTreeImporter;
+import works.hacker.mptt.dyadic.DyadicTreeVerifier;
+import works.hacker.repo.classic.MpttNodeRepository;
+import works.hacker.repo.dyadic.DyadicNodeRepository;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The trees are corrupted and rebuilt via JDBC, which commits on a connection of its own, so the test is not
+ * transactional and cleans up after itself.
+ */
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class TreeRebuilderTest {
+  @Resource
+  MpttNodeRepository mpttRepo;
+
+  @Resource
+  DyadicNodeRepository dyadicRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected MpttTreeImporter mpttImporter;
+
+  protected DyadicTreeImporter dyadicImporter;
+
+  @Before
+  public void init() {
+    mpttRepo.setEntityClass(MpttNode.class);
+    dyadicRepo.setEntityClass(DyadicNode.class);
+    mpttImporter = new MpttTreeImporter(dataSource, new TreeTable("MpttNode"));
+    dyadicImporter = new DyadicTreeImporter(dataSource, new TreeTable("DyadicNode"));
+  }
+
+  @After
+  public void cleanup() {
+    mpttRepo.deleteAll();
+    dyadicRepo.deleteAll();
+  }
+
+  protected List<Record> complexTree3() {
+    return List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "2", "subChild-1"),
+        new Record("4", "3", "subSubChild-1"),
+        new Record("5", "2", "subChild-2"),
+        new Record("6", "1", "child-2"),
+        new Record("7", "6", "lastSubChild"));
+  }
+
+  @Test
+  public void givenCorruptedClassicTree_whenRebuild_thenValid() throws SQLException {
+    var treeId = mpttImporter.importTree(complexTree3().iterator());
+    update("UPDATE MpttNode SET lft = lft * 10, rgt = rgt * 10 + 1, depth = 0");
+
+    var rebuilt = new TreeRebuilder(mpttImporter).rebuild(treeId);
+
+    assertThat(rebuilt, is(7L));
+    assertThat(new MpttTreeVerifier(dataSource, new TreeTable("MpttNode")).verify(treeId).isValid(), is(true));
+    var lastSubChild = mpttRepo.findByName("lastSubChild");
+    assertThat(lastSubChild.getLft(), is(11L));
+    assertThat(lastSubChild.getRgt(), is(12L));
+    assertThat(lastSubChild.getDepth(), is(2L));
+  }
+
+  @Test
+  public void givenMovedParentId_whenRebuild_thenNodeMovedInOrderOfIntervals() throws SQLException {
+    var treeId = mpttImporter.importTree(complexTree3().iterator());
+    update(String.format("UPDATE MpttNode SET parentId = %d WHERE name = 'subChild-2'",
+        mpttRepo.findByName("child-2").getId()));
+
+    new TreeRebuilder(mpttImporter).rebuild(treeId);
+
+    var child2 = mpttRepo.findByName("child-2");
+    assertThat(mpttRepo.findChildren(child2),
+        contains(mpttRepo.findByName("subChild-2"), mpttRepo.findByName("lastSubChild")));
+    assertThat(mpttRepo.findByName("child-1").getRgt(), is(7L));
+    assertThat(new MpttTreeVerifier(dataSource, new TreeTable("MpttNode")).verify(treeId).isValid(), is(true));
+  }
+
+  @Test
+  public void givenCycleOfParentIds_whenRebuild_thenNothingWritten() throws SQLException {
+    var treeId = mpttImporter.importTree(complexTree3().iterator());
+    update("UPDATE MpttNode SET depth = 7 WHERE name = 'lastSubChild'");
+    update(String.format("UPDATE MpttNode SET parentId = %d WHERE name = 'child-1'",
+        mpttRepo.findByName("subChild-1").getId()));
+
+    IllegalStateException actual = null;
+    try {
+      new TreeRebuilder(mpttImporter).rebuild(treeId);
+    } catch (IllegalStateException e) {
+      actual = e;
+    }
+    assertThat(actual, is(notNullValue()));
+    assertThat(actual.getMessage(), is(String.format("4 of 7 nodes of tree %d not reachable from its root", treeId)));
+    assertThat(mpttRepo.findByName("lastSubChild").getDepth(), is(7L));
+  }
+
+  @Test
+  public void givenCorruptedDyadicTree_whenRebuild_thenSameAsImport() throws SQLException {
+    var treeId = dyadicImporter.importTree(complexTree3().iterator());
+    update("UPDATE DyadicNode SET lftN = 0, lftD = 1, rgtN = 1, rgtD = 1, depth = 3 WHERE name = 'subChild-2'");
+
+    var rebuilt = new TreeRebuilder(dyadicImporter).rebuild(treeId);
+
+    assertThat(rebuilt, is(7L));
+    assertThat(new DyadicTreeVerifier(dataSource, new TreeTable("DyadicNode")).verify(treeId).isValid(), is(true));
+    var subChild2 = dyadicRepo.findByName("subChild-2");
+    assertThat(subChild2.getLftN(), is(1L));
+    assertThat(subChild2.getLftD(), is(4L));
+    assertThat(subChild2.getRgtN(), is(3L));
+    assertThat(subChild2.getRgtD(), is(8L));
+    assertThat(subChild2.getDepth(), is(2L));
+  }
+
+  @Test
+  public void givenLossyDoubleBoundsOfDyadicTree_whenRebuild_thenOrderedByScaledBounds() throws SQLException {
+    var treeId = dyadicImporter.importTree(complexTree3().iterator());
+    // the Double bounds out of the order of the exact ones
+    update("UPDATE DyadicNode SET lft = 0.75 WHERE name IN ('child-1', 'subChild-1')");
+    update("UPDATE DyadicNode SET lft = 0.25 WHERE name IN ('child-2', 'subChild-2')");
+
+    new TreeRebuilder(dyadicImporter).rebuild(treeId);
+
+    var root = dyadicRepo.findTreeRoot(treeId);
+    assertThat(dyadicRepo.findChildren(root),
+        contains(dyadicRepo.findByName("child-1"), dyadicRepo.findByName("child-2")));
+    assertThat(dyadicRepo.findChildren(dyadicRepo.findByName("child-1")),
+        contains(dyadicRepo.findByName("subChild-1"), dyadicRepo.findByName("subChild-2")));
+    assertThat(new DyadicTreeVerifier(dataSource, new TreeTable("DyadicNode")).verify(treeId).isValid(), is(true));
+  }
+
+  @Test
+  public void givenBatchSizeSmallerThanSiblings_whenRebuild_thenChildrenReadInBatches() throws SQLException {
+    var treeId = mpttImporter.importTree(complexTree3().iterator());
+    update("UPDATE MpttNode SET lft = lft * 10, rgt = rgt * 10 + 1, depth = 0");
+    update(String.format("UPDATE MpttNode SET parentId = %d WHERE name IN ('subChild-1', 'subChild-2')",
+        mpttRepo.findTreeRoot(treeId).getId()));
+
+    var rebuilder = new TreeRebuilder(mpttImporter);
+    rebuilder.setBatchSize(2);
+    var rebuilt = rebuilder.rebuild(treeId);
+
+    assertThat(rebuilt, is(7L));
+    assertThat(new MpttTreeVerifier(dataSource, new TreeTable("MpttNode")).verify(treeId).isValid(), is(true));
+    assertThat(mpttRepo.findChildren(mpttRepo.findTreeRoot(treeId)),
+        contains(mpttRepo.findByName("child-1"), mpttRepo.findByName("subChild-1"),
+            mpttRepo.findByName("subChild-2"), mpttRepo.findByName("child-2")));
+    assertThat(mpttRepo.findChildren(mpttRepo.findByName("subChild-1")),
+        contains(mpttRepo.findByName("subSubChild-1")));
+    assertThat(mpttRepo.findByName("lastSubChild").getDepth(), is(2L));
+  }
+
+  protected void update(String update) throws SQLException {
+    try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+      statement.executeUpdate(update);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package works.hacker.repo.classic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.AsyncSiblingTreeRepository;
+import works.hacker.mptt.AsyncTreeRepository;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs against the JPA repository - every operation runs in a transaction of its own on a thread of the executor,
+ * so the test is not transactional and cleans up after itself.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class AsyncMpttNodeRepositoryTest {
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  protected ExecutorService executor;
+
+  protected AsyncSiblingTreeRepository<MpttNode> asyncRepo;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(MpttNode.class);
+    executor = AsyncTreeRepository.newBoundedExecutor(8, 1_000);
+    asyncRepo = new AsyncSiblingTreeRepository<>(treeRepo, executor);
+  }
+
+  @After
+  public void cleanup() {
+    executor.shutdownNow();
+    treeRepo.deleteAll();
+  }
+
+  @Test
+  public void givenManyWritesOfOneTree_whenAddChild_thenParentReReadPerWrite() throws Exception {
+    var root = new MpttNode("root");
+    var treeId = asyncRepo.startTree(root).get();
+
+    var futures = new ArrayList<CompletableFuture<Void>>();
+    var names = new ArrayList<String>();
+    for (var i = 0; i < 50; i++) {
+      var child = new MpttNode(String.format("child-%d", i));
+      names.add(child.getName());
+      // the same detached root for all writes - stale after the first one
+      futures.add(asyncRepo.addChild(root, child));
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+
+    var actualRoot = treeRepo.findTreeRoot(treeId);
+    assertThat(actualRoot.getLft(), is(1L));
+    assertThat(actualRoot.getRgt(), is(102L));
+    var children = treeRepo.findChildren(actualRoot);
+    assertThat(children.stream().map(MpttNode::getName).collect(Collectors.toList()), is(names));
+    for (var i = 0; i < children.size(); i++) {
+      assertThat(children.get(i).getLft(), is(2L * i + 2));
+      assertThat(children.get(i).getRgt(), is(2L * i + 3));
+    }
+  }
+
+  @Test
+  public void givenStaleSibling_whenInsertBeforeAndAfter_thenSiblingReRead() throws Exception {
+    var root = new MpttNode("root");
+    var treeId = asyncRepo.startTree(root).get();
+    var child1 = new MpttNode("child-1");
+    var child2 = new MpttNode("child-2");
+    asyncRepo.addChild(root, child1).get();
+    asyncRepo.addChild(root, child2).get();
+
+    // child-2 is stale after the first insert
+    var before = asyncRepo.insertBefore(child2, new MpttNode("before-2"));
+    var after = asyncRepo.insertAfter(child2, new MpttNode("after-2"));
+    CompletableFuture.allOf(before, after).get();
+
+    var children = treeRepo.findChildren(treeRepo.findTreeRoot(treeId));
+    assertThat(children.stream().map(MpttNode::getName).collect(Collectors.toList()),
+        contains("child-1", "before-2", "child-2", "after-2"));
+    assertThat(treeRepo.findTreeRoot(treeId).getRgt(), is(10L));
+  }
+}
@@ -0,0 +1,209 @@
+package works.hacker.repo.classic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.AsyncSiblingTreeRepository;
+import works.hacker.mptt.AsyncTreeRepository;
+import works.hacker.mptt.TreeNodeView;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.classic.InMemoryMpttRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs against the {@link InMemoryMpttRepository} - the writes of a tree are serialised by the facade, and the
+ * reads do not run concurrently with writes.
+ */
+@SuppressWarnings("OptionalGetWithoutIsPresent")
+public class AsyncTreeRepositoryTest {
+  InMemoryMpttRepository<MpttNode> treeRepo;
+
+  protected TreeUtils<MpttNode> utils;
+
+  protected ExecutorService executor;
+
+  protected AsyncSiblingTreeRepository<MpttNode> asyncRepo;
+
+  @Before
+  public void init() {
+    treeRepo = new InMemoryMpttRepository<>();
+    treeRepo.setEntityClass(MpttNode.class);
+    utils = new TreeUtils<>(treeRepo);
+    executor = AsyncTreeRepository.newBoundedExecutor(8, 1_000);
+    asyncRepo = new AsyncSiblingTreeRepository<>(treeRepo, executor);
+  }
+
+  @After
+  public void cleanup() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void givenManyWritesOfOneTree_whenAddChild_thenExecutedInOrder() throws Exception {
+    var root = new MpttNode("root");
+    asyncRepo.startTree(root).get();
+
+    var futures = new ArrayList<CompletableFuture<Void>>();
+    var children = new ArrayList<MpttNode>();
+    for (var i = 0; i < 200; i++) {
+      var child = new MpttNode(String.format("child-%d", i));
+      children.add(child);
+      futures.add(asyncRepo.addChild(root, child));
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+
+    assertThat(root.getRgt(), is(402L));
+    assertThat(asyncRepo.findChildren(root).get(), is(children));
+    for (var i = 0; i < children.size(); i++) {
+      assertThat(children.get(i).getLft(), is(2L * i + 2));
+    }
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindAncestorsOfManyNodes_thenFannedOut() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var nodes = treeRepo.findSubTree(tree.root);
+
+    var futures = nodes.stream()
+        .map(asyncRepo::findAncestors)
+        .collect(Collectors.toList());
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+
+    for (var i = 0; i < nodes.size(); i++) {
+      assertThat(futures.get(i).get(), is(treeRepo.findAncestors(nodes.get(i))));
+    }
+    assertThat(asyncRepo.findParent(tree.subSubChild1).get().get(), is(tree.subChild1));
+    assertThat(asyncRepo.findTreeRoot(tree.treeId).get(), is(tree.root));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindAncestorsOfManyNodesAtOnce_thenOK() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    var actual = asyncRepo.findAncestors(List.of(tree.subSubChild1, tree.lastSubChild)).get();
+
+    assertThat(actual.get(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+    assertThat(actual.get(tree.lastSubChild), contains(tree.root, tree.child2));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindRootsAndByDepth_thenOK() throws Exception {
+    var tree1 = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var tree2 = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+
+    var roots = asyncRepo.findAllRoots(null, 10).get();
+
+    assertThat(roots, containsInAnyOrder(tree1.root, tree2.root));
+    assertThat(asyncRepo.findTreeRoots(List.of(tree1.treeId, tree2.treeId)).get(), is(roots));
+    assertThat(asyncRepo.findByDepth(1, tree1.treeId).get(), contains(tree1.child1, tree1.child2));
+    assertThat(asyncRepo.findByDepth(3).get(), contains(tree1.subSubChild1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindProjected_thenViews() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    assertThat(asyncRepo.findChildrenProjected(tree.child1).get(),
+        contains(TreeNodeView.of(tree.subChild1), TreeNodeView.of(tree.subChild2)));
+    assertThat(asyncRepo.findSubTreeProjected(tree.child2).get(),
+        contains(TreeNodeView.of(tree.child2), TreeNodeView.of(tree.lastSubChild)));
+    assertThat(asyncRepo.findAncestorsProjected(tree.subSubChild1).get(),
+        is(TreeNodeView.of(List.of(tree.root, tree.child1, tree.subChild1))));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTreeToDepth_thenOK() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    assertThat(asyncRepo.findSubTree(tree.root, 1).get(), contains(tree.root, tree.child1, tree.child2));
+    assertThat(asyncRepo.findDescendantsAtDepth(tree.root, 2).get(),
+        contains(tree.subChild1, tree.subChild2, tree.lastSubChild));
+  }
+
+  @Test
+  public void givenComplexTree3_whenInsertSiblings_thenOrderedAndFound() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var first = new MpttNode("first");
+    var middle = new MpttNode("middle");
+
+    var before = asyncRepo.insertBefore(tree.child1, first);
+    var after = asyncRepo.insertAfter(tree.child1, middle);
+    CompletableFuture.allOf(before, after).get();
+
+    assertThat(asyncRepo.findChildren(tree.root).get(), contains(first, tree.child1, middle, tree.child2));
+    assertThat(asyncRepo.findNextSibling(tree.child1).get().get(), is(middle));
+    assertThat(asyncRepo.findPreviousSibling(tree.child1).get().get(), is(first));
+    assertThat(asyncRepo.findPreviousSibling(first).get().isPresent(), is(false));
+  }
+
+  @Test
+  public void givenParentNotInTree_whenAddChild_thenCompletedExceptionally() throws InterruptedException {
+    var parent = new MpttNode("parent");
+
+    ExecutionException actual = null;
+    try {
+      asyncRepo.addChild(parent, new MpttNode("child")).get();
+    } catch (ExecutionException e) {
+      actual = e;
+    }
+    assertThat(actual, is(notNullValue()));
+    assertThat(actual.getCause(), is(instanceOf(TreeRepository.NodeNotInTree.class)));
+  }
+
+  @Test
+  public void givenFailedWrite_whenNextWriteOfSameTree_thenExecuted() throws Exception {
+    var tree = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+
+    var failed = asyncRepo.removeChild(tree.child1, tree.root);
+    var child2 = new MpttNode("child-2");
+    asyncRepo.addChild(tree.root, child2).get();
+
+    assertThat(failed.isCompletedExceptionally(), is(true));
+    assertThat(treeRepo.findChildren(tree.root), contains(tree.child1, child2));
+  }
+
+  @Test
+  public void givenSaturatedExecutor_whenFindChildren_thenRejected() throws Exception {
+    var tree = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+    var blocked = new CountDownLatch(1);
+    var saturated = AsyncTreeRepository.newBoundedExecutor(1, 1);
+    try {
+      saturated.execute(() -> {
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      saturated.execute(() -> {
+      });
+
+      var actual = new AsyncTreeRepository<>(treeRepo, saturated).findChildren(tree.root);
+
+      assertThat(actual.isCompletedExceptionally(), is(true));
+      ExecutionException error = null;
+      try {
+        actual.get();
+      } catch (ExecutionException e) {
+        error = e;
+      }
+      assertThat(error.getCause(), is(instanceOf(RejectedExecutionException.class)));
+    } finally {
+      blocked.countDown();
+      saturated.shutdown();
+    }
+  }
+}
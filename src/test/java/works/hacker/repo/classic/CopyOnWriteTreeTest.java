@@ -0,0 +1,187 @@
+package works.hacker.repo.classic;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.classic.InMemoryMpttRepository;
+import works.hacker.mptt.snapshot.CopyOnWriteTree;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SuppressWarnings("OptionalGetWithoutIsPresent")
+public class CopyOnWriteTreeTest {
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  InMemoryMpttRepository<MpttNode> treeRepo;
+
+  protected TreeUtils<MpttNode> utils;
+
+  @Before
+  public void init() {
+    treeRepo = new InMemoryMpttRepository<>();
+    treeRepo.setEntityClass(MpttNode.class);
+    utils = new TreeUtils<>(treeRepo);
+  }
+
+  protected List<Long> ids(List<CopyOnWriteTree.Version.Node> nodes) {
+    return nodes.stream().map(CopyOnWriteTree.Version.Node::getId).collect(Collectors.toList());
+  }
+
+  protected List<Long> ids(MpttNode... nodes) {
+    return Stream.of(nodes).map(MpttNode::getId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void givenComplexTree3_whenLoad_thenSameAsRepository() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var version = CopyOnWriteTree.load(treeRepo.streamSubTree(tree.root)).current();
+
+    assertThat(version.size(), is(7));
+    for (var node : treeRepo.findSubTree(tree.root)) {
+      var actual = version.findById(node.getId()).get();
+      assertThat(actual.getName(), is(node.getName()));
+      assertThat(actual.getDepth(), is(node.getDepth()));
+      assertThat(actual.getLft(), is(node.getLft()));
+      assertThat(actual.getRgt(), is(node.getRgt()));
+    }
+
+    var root = version.getRoot();
+    var child1 = version.findById(tree.child1.getId()).get();
+    var subSubChild1 = version.findById(tree.subSubChild1.getId()).get();
+    assertThat(ids(version.findChildren(root)), is(ids(tree.child1, tree.child2)));
+    assertThat(ids(version.findSubTree(child1)),
+        is(ids(tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2)));
+    assertThat(ids(version.findAncestors(subSubChild1)), is(ids(tree.root, tree.child1, tree.subChild1)));
+    assertThat(version.findParent(root), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenAddChild_thenNewVersionLikeRepository() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var cowTree = CopyOnWriteTree.load(treeRepo.streamSubTree(tree.root));
+    var before = cowTree.current();
+
+    var newChild = new MpttNode("newChild");
+    treeRepo.addChild(tree.subChild1, newChild);
+    var after = cowTree.addChild(tree.subChild1.getId(), newChild.getId(), newChild.getName());
+
+    assertThat(after, is(cowTree.current()));
+    assertThat(after.size(), is(8));
+    for (var node : treeRepo.findSubTree(tree.root)) {
+      var actual = after.findById(node.getId()).get();
+      assertThat(actual.getLft(), is(node.getLft()));
+      assertThat(actual.getRgt(), is(node.getRgt()));
+      assertThat(after.findParent(actual).map(CopyOnWriteTree.Version.Node::getId),
+          is(Optional.ofNullable(node.getParentId())));
+    }
+
+    // the previous version is unchanged
+    assertThat(before.size(), is(7));
+    assertThat(before.findById(newChild.getId()), is(Optional.empty()));
+    assertThat(before.getRoot().getRgt(), is(14L));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild_thenNewVersionLikeRepository() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var cowTree = CopyOnWriteTree.load(treeRepo.streamSubTree(tree.root));
+
+    treeRepo.removeChild(tree.root, tree.child1);
+    var after = cowTree.removeChild(tree.child1.getId());
+
+    assertThat(after.size(), is(3));
+    assertThat(after.findById(tree.subChild1.getId()), is(Optional.empty()));
+    for (var node : treeRepo.findSubTree(tree.root)) {
+      var actual = after.findById(node.getId()).get();
+      assertThat(actual.getLft(), is(node.getLft()));
+      assertThat(actual.getRgt(), is(node.getRgt()));
+    }
+    assertThat(ids(after.findChildren(after.getRoot())), is(ids(tree.child2)));
+  }
+
+  @Test
+  public void givenTree_whenRename_thenOnlyNewVersionRenamed() {
+    var cowTree = new CopyOnWriteTree(1L, "root");
+    cowTree.addChild(1L, 2L, "child");
+    var before = cowTree.current();
+
+    var after = cowTree.rename(2L, "renamed");
+
+    assertThat(after.findById(2L).get().getName(), is("renamed"));
+    assertThat(before.findById(2L).get().getName(), is("child"));
+  }
+
+  @Test
+  public void givenTree_whenRemoveRoot_thenError() {
+    var cowTree = new CopyOnWriteTree(1L, "root");
+
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("Can not remove the root");
+    cowTree.removeChild(1L);
+  }
+
+  @Test
+  public void givenTree_whenAddChildWithUsedId_thenError() {
+    var cowTree = new CopyOnWriteTree(1L, "root");
+    cowTree.addChild(1L, 2L, "child");
+
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("Node with id 2 already in tree");
+    cowTree.addChild(1L, 2L, "child");
+  }
+
+  @Test
+  public void givenConcurrentReaders_whenWrite_thenReadersSeeConsistentVersions() throws InterruptedException {
+    var cowTree = new CopyOnWriteTree(0L, "root");
+    var done = new AtomicBoolean(false);
+    var errors = new ConcurrentLinkedQueue<String>();
+
+    var readers = new Thread[4];
+    for (var r = 0; r < readers.length; r++) {
+      readers[r] = new Thread(() -> {
+        while (!done.get()) {
+          var version = cowTree.current();
+          var root = version.getRoot();
+          if (root.getRgt() != 2L * version.size()) {
+            errors.add(String.format("root %s of %d nodes", root, version.size()));
+          }
+          var subTree = version.findSubTree(root);
+          for (var i = 1; i < subTree.size(); i++) {
+            var node = subTree.get(i);
+            var parent = version.findParent(node).get();
+            if (!(parent.getLft() < node.getLft() && node.getRgt() < parent.getRgt())) {
+              errors.add(String.format("%s not within %s", node, parent));
+            }
+          }
+        }
+      });
+      readers[r].start();
+    }
+
+    for (long id = 1; id <= 500; id++) {
+      cowTree.addChild(id % 7 == 0 ? 0L : id - 1, id, "node-" + id);
+      if (id % 50 == 0) {
+        cowTree.removeChild(id - 10);
+      }
+    }
+    done.set(true);
+    for (var reader : readers) {
+      reader.join();
+    }
+
+    assertThat(errors, is(empty()));
+    assertThat(cowTree.current().getRoot().getRgt(), is(2L * cowTree.current().size()));
+  }
+}
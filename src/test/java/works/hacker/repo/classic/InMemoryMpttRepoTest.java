@@ -0,0 +1,376 @@
+package works.hacker.repo.classic;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.classic.InMemoryMpttRepository;
+
+import javax.persistence.NoResultException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs the scenarios of {@link MpttNodeRepoTest} against the {@link InMemoryMpttRepository} - no Spring context
+ * and no database needed.
+ */
+@SuppressWarnings("OptionalGetWithoutIsPresent")
+public class InMemoryMpttRepoTest {
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  InMemoryMpttRepository<MpttNode> treeRepo;
+
+  protected TreeUtils<MpttNode> utils;
+
+  @Before
+  public void init() {
+    treeRepo = new InMemoryMpttRepository<>();
+    treeRepo.setEntityClass(MpttNode.class);
+    utils = new TreeUtils<>(treeRepo);
+  }
+
+  @Test
+  public void givenNoTree_whenStartTree_thenOK() {
+    var tree = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+
+    assertThat(treeRepo.count(), is(1L));
+
+    var actual = treeRepo.findById(tree.root.getId()).get();
+    assertThat(actual.getTreeId(), not(TreeEntity.NO_TREE_ID));
+    assertThat(actual.getTreeId(), is(tree.treeId));
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+  }
+
+  @Test
+  public void givenTree_whenStartTreeWithUsedRootNode_thenError()
+      throws TreeRepository.NodeAlreadyAttachedToTree {
+    var tree = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+
+    exceptionRule.expect(TreeRepository.NodeAlreadyAttachedToTree.class);
+    exceptionRule.expectMessage(String.format("Node already has treeId set to %d", tree.treeId));
+    treeRepo.startTree(tree.root);
+  }
+
+  @Test
+  public void givenNoTree_whenFindTreeRoot_thenError() {
+    exceptionRule.expect(NoResultException.class);
+    treeRepo.findTreeRoot(42L);
+  }
+
+  @Test
+  public void givenParentNodeNotAttachedToTree_whenAddChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeAlreadyAttachedToTree {
+    var parent = new MpttNode("parent");
+    var child = new MpttNode("child");
+
+    exceptionRule.expect(TreeRepository.NodeNotInTree.class);
+    exceptionRule.expectMessage(String.format("Parent node not attached to any tree: %s", parent));
+    treeRepo.addChild(parent, child);
+  }
+
+  @Test
+  public void givenChildIsTreeRoot_whenAddChild_thenError()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var parent = new MpttNode("parent");
+    var child = new MpttNode("child");
+
+    treeRepo.startTree(parent);
+    var treeId = treeRepo.startTree(child);
+
+    exceptionRule.expect(TreeRepository.NodeAlreadyAttachedToTree.class);
+    exceptionRule.expectMessage(String.format("Node already has treeId set to %d", treeId));
+    treeRepo.addChild(parent, child);
+  }
+
+  @Test
+  public void givenTrees_whenPrintTree_thenSameAsJpa() {
+    var tree1 = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+    assertThat(utils.printTree(tree1.root), is(tree1.getExpected()));
+
+    var tree2 = new MpttNodeRepoTest.TreeWithChildAndSubChild<>(treeRepo, utils);
+    assertThat(utils.printTree(tree2.root), is(tree2.getExpected()));
+
+    var tree3 = new MpttNodeRepoTest.ComplexTree2<>(treeRepo, utils);
+    assertThat(utils.printTree(tree3.root), is(tree3.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenPrintTree_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(utils.printTree(tree.root), is(tree.getExpected()));
+    assertThat(utils.printTree(tree.child1), is(tree.getExpectedPartial()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindRightMostChild_thenOK() throws TreeRepository.NodeAlreadyAttachedToTree {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findRightMostChild(tree.root), is(tree.child2));
+    assertThat(treeRepo.findRightMostChild(tree.child1), is(tree.subChild2));
+    assertThat(treeRepo.findRightMostChild(tree.lastSubChild), is(nullValue()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindChildren_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findChildren(tree.root), contains(tree.child1, tree.child2));
+    assertThat(treeRepo.findChildren(tree.child1), contains(tree.subChild1, tree.subChild2));
+    assertThat(treeRepo.findChildren(tree.subSubChild1), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTree_thenPreOrder() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findSubTree(tree.root),
+        contains(tree.root, tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2, tree.child2,
+            tree.lastSubChild));
+    assertThat(treeRepo.findSubTree(tree.child2), contains(tree.child2, tree.lastSubChild));
+  }
+
+  @Test
+  public void givenParentAndChildInDifferentTrees_whenRemoveChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree1 = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+    var tree2 = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+
+    exceptionRule.expect(TreeRepository.NodeNotInTree.class);
+    exceptionRule.expectMessage(
+        String.format("Nodes not in same tree - parent: %s; child %s", tree1.root, tree2.child1));
+    treeRepo.removeChild(tree1.root, tree2.child1);
+  }
+
+  @Test
+  public void givenParentAndChild_whenRemoveChildReverseParentAndChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+
+    exceptionRule.expect(TreeRepository.NodeNotChildOfParent.class);
+    treeRepo.removeChild(tree.child1, tree.root);
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new MpttNodeRepoTest.TreeWithTwoChildren<>(treeRepo, utils);
+
+    var removed = treeRepo.removeChild(tree.root, tree.child1);
+
+    assertThat(tree.root.getLft(), is(1L));
+    assertThat(tree.root.getRgt(), is(4L));
+    assertThat(tree.child2.getLft(), is(2L));
+    assertThat(tree.child2.getRgt(), is(3L));
+    assertThat(treeRepo.findChildren(tree.root), contains(tree.child2));
+    assertThat(treeRepo.count(), is(2L));
+    assertThat(removed, contains(tree.child1));
+    assertThat(treeRepo.findById(tree.child1.getId()), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild1_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    var removed = treeRepo.removeChild(tree.root, tree.child1);
+
+    assertThat(utils.printTree(tree.root), is(tree.getExpectedAfterChild1Removal()));
+    assertThat(removed, contains(tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2));
+    assertThat(treeRepo.count(), is(3L));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild2_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    treeRepo.removeChild(tree.root, tree.child2);
+
+    assertThat(utils.printTree(tree.root), is(tree.getExpectedAfterChild2Removal()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveAndAddChild_thenOK() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    treeRepo.removeChild(tree.root, tree.subChild1);
+    var newChild = new MpttNode("newChild");
+    treeRepo.addChild(tree.child1, newChild);
+
+    assertThat(treeRepo.findChildren(tree.child1), contains(tree.subChild2, newChild));
+    assertThat(newChild.getLft(), is(5L));
+    assertThat(newChild.getRgt(), is(6L));
+    assertThat(tree.child2.getLft(), is(8L));
+    assertThat(tree.root.getRgt(), is(12L));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindTreeRoot_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findTreeRoot(tree.treeId), is(tree.root));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindAncestors_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findAncestors(tree.root), is(empty()));
+    assertThat(treeRepo.findAncestors(tree.subChild2), contains(tree.root, tree.child1));
+    assertThat(treeRepo.findAncestors(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindParent_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child2).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.subSubChild1).get(), is(tree.subChild1));
+    assertThat(treeRepo.findParent(tree.lastSubChild).get(), is(tree.child2));
+    assertThat(tree.subChild2.getParentId(), is(tree.child1.getId()));
+  }
+
+  @Test
+  public void givenManyChildren_whenAddChild_thenArraysGrow() throws Exception {
+    var tree = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+    MpttNode parent = tree.root;
+    for (int i = 0; i < 100; i++) {
+      var child = new MpttNode(String.format("child-%d", i));
+      treeRepo.addChild(i % 2 == 0 ? tree.root : parent, child);
+      parent = child;
+    }
+
+    assertThat(treeRepo.count(), is(101L));
+    assertThat(tree.root.getRgt(), is(202L));
+    var subTree = treeRepo.findSubTree(tree.root);
+    for (var i = 1; i < subTree.size(); i++) {
+      assertThat(subTree.get(i).getLft() > subTree.get(i - 1).getLft(), is(true));
+    }
+  }
+
+  @Test
+  public void givenManyTrees_whenFindTreeRoots_thenOrderedByTreeId() {
+    var tree1 = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var tree2 = new MpttNodeRepoTest.TreeWithTwoChildren<>(treeRepo, utils);
+    var tree3 = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+
+    var expected = new TreeMap<>(Map.of(tree1.treeId, tree1.root, tree3.treeId, tree3.root));
+    assertThat(treeRepo.findTreeRoots(List.of(tree3.treeId, tree1.treeId, 42L)),
+        is(new ArrayList<>(expected.values())));
+    assertThat(treeRepo.findTreeRoots(List.of()), is(empty()));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindAllRoots_thenPagedByTreeId() {
+    var tree1 = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var tree2 = new MpttNodeRepoTest.TreeWithTwoChildren<>(treeRepo, utils);
+    var tree3 = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+    var roots = new ArrayList<>(
+        new TreeMap<>(Map.of(tree1.treeId, tree1.root, tree2.treeId, tree2.root, tree3.treeId, tree3.root))
+            .values());
+
+    var page1 = treeRepo.findAllRoots(null, 2);
+    assertThat(page1, is(roots.subList(0, 2)));
+    var page2 = treeRepo.findAllRoots(page1.get(1).getTreeId(), 2);
+    assertThat(page2, is(roots.subList(2, 3)));
+    assertThat(treeRepo.findAllRoots(page2.get(0).getTreeId(), 2), is(empty()));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindByDepth_thenOrderedByTreeIdAndLeftToRight() {
+    var tree1 = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var tree2 = new MpttNodeRepoTest.TreeWithTwoChildren<>(treeRepo, utils);
+    var tree3 = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+
+    var expected = tree1.treeId < tree2.treeId ?
+        List.of(tree1.child1, tree1.child2, tree2.child1, tree2.child2) :
+        List.of(tree2.child1, tree2.child2, tree1.child1, tree1.child2);
+    assertThat(treeRepo.findByDepth(1), is(expected));
+    assertThat(treeRepo.findByDepth(2, tree1.treeId), contains(tree1.subChild1, tree1.subChild2, tree1.lastSubChild));
+    assertThat(treeRepo.findByDepth(1, tree2.treeId, tree3.treeId), contains(tree2.child1, tree2.child2));
+    assertThat(treeRepo.findByDepth(0, tree3.treeId), contains(tree3.root));
+  }
+
+  @Test
+  public void givenComplexTree3_whenCountDescendantsAndIsLeaf_thenFromLftAndRgt() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    assertThat(tree.root.countDescendants(), is(6L));
+    assertThat(tree.child1.countDescendants(), is(3L));
+    assertThat(tree.subSubChild1.countDescendants(), is(0L));
+    assertThat(tree.root.isLeaf(), is(false));
+    assertThat(tree.subSubChild1.isLeaf(), is(true));
+    assertThat(tree.subSubChild1.isDescendantOf(tree.root), is(true));
+    assertThat(tree.subSubChild1.isDescendantOf(tree.child2), is(false));
+    assertThat(tree.child1.isAncestorOf(tree.subChild2), is(true));
+    assertThat(tree.child1.isAncestorOf(tree.child1), is(false));
+  }
+
+  @Test
+  public void givenNodesOfDifferentTrees_whenIsDescendantOf_thenFalse() {
+    var tree1 = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var tree2 = new MpttNodeRepoTest.TreeWithChildAndSubChild<>(treeRepo, utils);
+
+    assertThat(tree2.subChild1.isDescendantOf(tree1.root), is(false));
+    assertThat(tree1.root.isAncestorOf(tree2.subChild1), is(false));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindLeaves_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findLeaves(tree.root), contains(tree.subSubChild1, tree.subChild2, tree.lastSubChild));
+    assertThat(treeRepo.findLeaves(tree.child1), contains(tree.subSubChild1, tree.subChild2));
+    assertThat(treeRepo.findLeaves(tree.lastSubChild), is(empty()));
+  }
+
+  @Test
+  public void givenStaleNode_whenRefresh_thenFresh() throws Exception {
+    var tree = new MpttNodeRepoTest.TreeWithOneChild<>(treeRepo, utils);
+    var stale = new MpttNode(tree.child1.getName());
+    stale.setId(tree.child1.getId());
+    stale.setTreeId(tree.child1.getTreeId());
+    stale.setLft(tree.child1.getLft());
+    stale.setRgt(tree.child1.getRgt());
+
+    treeRepo.addChild(tree.child1, new MpttNode("subChild-1"));
+    var actual = treeRepo.refresh(stale);
+
+    assertThat(stale.isLeaf(), is(true));
+    assertThat(actual.isLeaf(), is(false));
+    assertThat(actual.countDescendants(), is(1L));
+  }
+
+  @Test
+  public void givenComplexTree3_whenDepthLimitedQueries_thenOK() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findSubTree(tree.child1, 1), contains(tree.child1, tree.subChild1, tree.subChild2));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.root, 2),
+        contains(tree.subChild1, tree.subChild2, tree.lastSubChild));
+  }
+
+  @Test
+  public void givenComplexTree3_whenInsertSiblings_thenOK() throws Exception {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var before = new MpttNode("before");
+    var after = new MpttNode("after");
+
+    treeRepo.insertBefore(tree.child1, before);
+    treeRepo.insertAfter(tree.subChild1, after);
+
+    assertThat(treeRepo.findChildren(tree.root), contains(before, tree.child1, tree.child2));
+    assertThat(treeRepo.findChildren(tree.child1), contains(tree.subChild1, after, tree.subChild2));
+    assertThat(treeRepo.findNextSibling(tree.subChild1), is(Optional.of(after)));
+    assertThat(treeRepo.findPreviousSibling(tree.child1), is(Optional.of(before)));
+    assertThat(tree.root.getRgt(), is(18L));
+    assertThat(treeRepo.findSubTree(tree.root).size(), is(9));
+  }
+}
@@ -0,0 +1,160 @@
+package works.hacker.repo.classic;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeExporter;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeUtils;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@Transactional
+@DirtiesContext
+public class MpttTreeExporterTest {
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  protected TreeUtils<MpttNode> utils;
+
+  protected TreeExporter<MpttNode> exporter;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(MpttNode.class);
+    utils = new TreeUtils<>(treeRepo);
+    exporter = new TreeExporter<>(treeRepo);
+  }
+
+  protected String writeJson(MpttNode node) throws IOException {
+    var out = new ByteArrayOutputStream();
+    exporter.writeJson(node, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void givenComplexTree3_whenStreamSubTree_thenPreOrder() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    try (var subTree = treeRepo.streamSubTree(tree.root)) {
+      assertThat(subTree.collect(Collectors.toList()),
+          contains(tree.root, tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2, tree.child2,
+              tree.lastSubChild));
+    }
+  }
+
+  @Test
+  public void givenComplexTree3_whenStreamSubTree_thenStreamedNodesDetached() {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    entityManager.flush();
+    entityManager.clear();
+    var root = treeRepo.findTreeRoot(tree.root.getTreeId());
+
+    try (var subTree = treeRepo.streamSubTree(root)) {
+      var streamed = subTree.collect(Collectors.toList());
+      assertThat(streamed.size(), is(7));
+      // the root was managed before
+      assertThat(entityManager.contains(streamed.get(0)), is(true));
+      assertThat(streamed.stream().skip(1).noneMatch(entityManager::contains), is(true));
+    }
+  }
+
+  @Test
+  public void givenTreeWithNoChildren_whenWriteJson_thenOK() throws IOException {
+    var tree = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+    assertThat(writeJson(tree.root), is(String.format("{\"id\":%d,\"name\":\"root\"}", tree.root.getId())));
+  }
+
+  @Test
+  public void givenComplexTree3_whenWriteJson_thenNested() throws IOException {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    // @formatter:off
+    var expected = String.format(
+        "{\"id\":%d,\"name\":\"root\",\"children\":[" +
+            "{\"id\":%d,\"name\":\"child-1\",\"children\":[" +
+                "{\"id\":%d,\"name\":\"subChild-1\",\"children\":[" +
+                    "{\"id\":%d,\"name\":\"subSubChild-1\"}]}," +
+                "{\"id\":%d,\"name\":\"subChild-2\"}]}," +
+            "{\"id\":%d,\"name\":\"child-2\",\"children\":[" +
+                "{\"id\":%d,\"name\":\"lastSubChild\"}]}]}",
+        tree.root.getId(), tree.child1.getId(), tree.subChild1.getId(), tree.subSubChild1.getId(),
+        tree.subChild2.getId(), tree.child2.getId(), tree.lastSubChild.getId());
+    // @formatter:on
+    assertThat(writeJson(tree.root), is(expected));
+  }
+
+  @Test
+  public void givenComplexTree3_whenWriteJsonOfSubTree_thenOK() throws IOException {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    // @formatter:off
+    var expected = String.format(
+        "{\"id\":%d,\"name\":\"child-1\",\"children\":[" +
+            "{\"id\":%d,\"name\":\"subChild-1\",\"children\":[" +
+                "{\"id\":%d,\"name\":\"subSubChild-1\"}]}," +
+            "{\"id\":%d,\"name\":\"subChild-2\"}]}",
+        tree.child1.getId(), tree.subChild1.getId(), tree.subSubChild1.getId(), tree.subChild2.getId());
+    // @formatter:on
+    assertThat(writeJson(tree.child1), is(expected));
+  }
+
+  @Test
+  public void givenComplexTree3_whenWriteNdJson_thenOneLinePerNode() throws IOException {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    var out = new ByteArrayOutputStream();
+    exporter.writeNdJson(tree.child2, out);
+
+    // @formatter:off
+    var expected = String.format(
+        "{\"id\":%d,\"name\":\"child-2\",\"depth\":1,\"parentId\":%d}\n" +
+        "{\"id\":%d,\"name\":\"lastSubChild\",\"depth\":2,\"parentId\":%d}\n",
+        tree.child2.getId(), tree.root.getId(), tree.lastSubChild.getId(), tree.child2.getId());
+    // @formatter:on
+    assertThat(out.toString(StandardCharsets.UTF_8), is(expected));
+  }
+
+  @Test
+  public void givenSpecialCharacters_whenWriteJson_thenEscaped()
+      throws IOException, TreeRepository.NodeAlreadyAttachedToTree {
+    var root = new MpttNode("\"quoted\"\\ \n\t\u0001 ünïcode");
+    treeRepo.startTree(root);
+
+    assertThat(writeJson(root),
+        is(String.format("{\"id\":%d,\"name\":\"\\\"quoted\\\"\\\\ \\n\\t\\u0001 ünïcode\"}", root.getId())));
+  }
+
+  @Test
+  public void givenNodesNotInPreOrder_whenWriteJson_thenError() throws IOException {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+
+    exceptionRule.expect(IllegalArgumentException.class);
+    exporter.writeJson(Stream.of(tree.root, tree.subChild1), new ByteArrayOutputStream());
+  }
+}
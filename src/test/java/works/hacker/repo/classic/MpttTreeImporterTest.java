@@ -0,0 +1,205 @@
+package works.hacker.repo.classic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeImporter;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.classic.MpttTreeImporter;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The importer commits on a connection of its own, so the test is not transactional and cleans up after itself.
+ */
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class MpttTreeImporterTest {
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected TreeUtils<MpttNode> utils;
+
+  protected TreeImporter<?> importer;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(MpttNode.class);
+    utils = new TreeUtils<>(treeRepo);
+    importer = new MpttTreeImporter(dataSource, new TreeTable("MpttNode"));
+  }
+
+  @After
+  public void cleanup() {
+    treeRepo.deleteAll();
+  }
+
+  protected List<Record> complexTree3() {
+    return List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "2", "subChild-1"),
+        new Record("4", "3", "subSubChild-1"),
+        new Record("5", "2", "subChild-2"),
+        new Record("6", "1", "child-2"),
+        new Record("7", "6", "lastSubChild"));
+  }
+
+  @Test
+  public void givenComplexTree3_whenImportTree_thenSameAsAddChild() throws SQLException {
+    var treeId = importer.importTree(complexTree3().iterator());
+
+    var root = treeRepo.findTreeRoot(treeId);
+    // @formatter:off
+    var expected = String.format(
+        ".\n" +
+        "└── root (id: %d) [treeId: %d | lft: 1 | rgt: 14]\n" +
+        "    ├── child-1 (id: %d) [treeId: %d | lft: 2 | rgt: 9]\n" +
+        "    │   ├── subChild-1 (id: %d) [treeId: %d | lft: 3 | rgt: 6]\n" +
+        "    │   │   └── subSubChild-1 (id: %d) [treeId: %d | lft: 4 | rgt: 5]\n" +
+        "    │   └── subChild-2 (id: %d) [treeId: %d | lft: 7 | rgt: 8]\n" +
+        "    └── child-2 (id: %d) [treeId: %d | lft: 10 | rgt: 13]\n" +
+        "        └── lastSubChild (id: %d) [treeId: %d | lft: 11 | rgt: 12]",
+        root.getId(), treeId,
+        treeRepo.findByName("child-1").getId(), treeId,
+        treeRepo.findByName("subChild-1").getId(), treeId,
+        treeRepo.findByName("subSubChild-1").getId(), treeId,
+        treeRepo.findByName("subChild-2").getId(), treeId,
+        treeRepo.findByName("child-2").getId(), treeId,
+        treeRepo.findByName("lastSubChild").getId(), treeId);
+    // @formatter:on
+    assertThat(utils.printTree(root), is(expected));
+  }
+
+  @Test
+  public void givenComplexTree3_whenImportTree_thenParentIdsSet() throws SQLException {
+    var treeId = importer.importTree(complexTree3().iterator());
+
+    var root = treeRepo.findTreeRoot(treeId);
+    var child1 = treeRepo.findByName("child-1");
+    var subChild1 = treeRepo.findByName("subChild-1");
+    assertThat(root.getParentId(), is(nullValue()));
+    assertThat(child1.getParentId(), is(root.getId()));
+    assertThat(subChild1.getParentId(), is(child1.getId()));
+    assertThat(treeRepo.findByName("subSubChild-1").getParentId(), is(subChild1.getId()));
+    assertThat(treeRepo.findByName("subChild-2").getParentId(), is(child1.getId()));
+    assertThat(treeRepo.findByName("lastSubChild").getParentId(),
+        is(treeRepo.findByName("child-2").getId()));
+  }
+
+  @Test
+  public void givenImportedTree_whenAddChild_thenOK() throws Exception {
+    var treeId = importer.importTree(complexTree3().iterator());
+
+    var child2 = treeRepo.findByName("child-2");
+    treeRepo.addChild(child2, new MpttNode("newChild"));
+
+    var root = treeRepo.findTreeRoot(treeId);
+    assertThat(root.getRgt(), is(16L));
+    assertThat(treeRepo.findChildren(treeRepo.findByName("child-2")),
+        contains(treeRepo.findByName("lastSubChild"), treeRepo.findByName("newChild")));
+  }
+
+  @Test
+  public void givenCsv_whenImportTree_thenOK() throws SQLException {
+    var csv = "1,,root\n" +
+        "2,1,child-1\n" +
+        "\n" +
+        "3,1,child, with comma\n";
+    var treeId = importer.importTree(TreeImporter.readCsv(new BufferedReader(new StringReader(csv))));
+
+    var root = treeRepo.findTreeRoot(treeId);
+    assertThat(root.getRgt(), is(6L));
+    assertThat(treeRepo.findChildren(root),
+        contains(treeRepo.findByName("child-1"), treeRepo.findByName("child, with comma")));
+  }
+
+  @Test
+  public void givenRecordsNotInPreOrder_whenImportTree_thenErrorAndNothingImported() throws SQLException {
+    var records = List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "1", "child-2"),
+        new Record("4", "2", "subChild-1"));
+
+    IllegalArgumentException actual = null;
+    try {
+      importer.importTree(records.iterator());
+    } catch (IllegalArgumentException e) {
+      actual = e;
+    }
+    assertThat(actual, is(notNullValue()));
+    assertThat(actual.getMessage(), containsString("not in pre-order"));
+    assertThat(treeRepo.count(), is(0L));
+  }
+
+  @Test
+  public void givenFirstRecordNotRoot_whenImportTree_thenError() throws SQLException {
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("First record is not a root");
+    importer.importTree(List.of(new Record("2", "1", "child-1")).iterator());
+  }
+
+  @Test
+  public void givenLargeRandomTree_whenImportTree_thenConsistent() throws SQLException {
+    var random = new Random(42);
+    var records = new ArrayList<Record>();
+    records.add(new Record("0", null, "node-0"));
+    var path = new ArrayList<Integer>();
+    path.add(0);
+    for (int i = 1; i < 2_000; i++) {
+      // go up a random number of levels, then add a child of the node reached
+      var up = random.nextInt(Math.min(path.size(), 3));
+      for (int j = 0; j < up; j++) {
+        path.remove(path.size() - 1);
+      }
+      records.add(new Record(String.valueOf(i), String.valueOf(path.get(path.size() - 1)), "node-" + i));
+      path.add(i);
+    }
+    importer.setBatchSize(128);
+
+    var treeId = importer.importTree(records.iterator());
+
+    var root = treeRepo.findTreeRoot(treeId);
+    assertThat(root.getRgt(), is(4_000L));
+    var subTree = treeRepo.findSubTree(root);
+    assertThat(subTree.size(), is(2_000));
+    for (var node : subTree) {
+      assertThat(node.getRgt() > node.getLft(), is(true));
+      if (node.getParentId() != null) {
+        var parent = treeRepo.findParent(node).get();
+        assertThat(parent.getDepth(), is(node.getDepth() - 1));
+        assertThat(parent.getLft() < node.getLft() && node.getRgt() < parent.getRgt(), is(true));
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package works.hacker.repo.classic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.classic.MpttTreeImporter;
+import works.hacker.mptt.classic.MpttTreeMigration;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The migration commits on a connection of its own, so the test is not transactional and cleans up after itself.
+ */
+@SuppressWarnings("OptionalGetWithoutIsPresent")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class MpttTreeMigrationTest {
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected MpttTreeImporter importer;
+
+  protected MpttTreeMigration migration;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(MpttNode.class);
+    var table = new TreeTable("MpttNode");
+    importer = new MpttTreeImporter(dataSource, table);
+    migration = new MpttTreeMigration(dataSource, table);
+  }
+
+  @After
+  public void cleanup() {
+    treeRepo.deleteAll();
+  }
+
+  protected List<Record> complexTree3(String prefix) {
+    return List.of(
+        new Record("1", null, prefix + "root"),
+        new Record("2", "1", prefix + "child-1"),
+        new Record("3", "2", prefix + "subChild-1"),
+        new Record("4", "3", prefix + "subSubChild-1"),
+        new Record("5", "2", prefix + "subChild-2"),
+        new Record("6", "1", prefix + "child-2"),
+        new Record("7", "6", prefix + "lastSubChild"));
+  }
+
+  protected void removeParentIds() throws SQLException {
+    // as created before the parentId column was introduced
+    try (var connection = dataSource.getConnection();
+         var statement = connection.createStatement()) {
+      statement.executeUpdate("UPDATE MpttNode SET parentId = NULL");
+    }
+  }
+
+  @Test
+  public void givenTreeWithoutParentIds_whenUpdateParentIds_thenFindParentAndChildrenOK() throws SQLException {
+    var treeId = importer.importTree(complexTree3("").iterator());
+    removeParentIds();
+    var child1 = treeRepo.findByName("child-1");
+    assertThat(treeRepo.findParent(child1).isPresent(), is(false));
+
+    var updated = migration.updateParentIds(treeId);
+
+    assertThat(updated, is(6));
+    child1 = treeRepo.findByName("child-1");
+    var root = treeRepo.findTreeRoot(treeId);
+    assertThat(root.getParentId(), is(nullValue()));
+    assertThat(treeRepo.findParent(child1).get().getId(), is(root.getId()));
+    assertThat(treeRepo.findChildren(child1),
+        contains(treeRepo.findByName("subChild-1"), treeRepo.findByName("subChild-2")));
+    assertThat(treeRepo.findByName("lastSubChild").getParentId(), is(treeRepo.findByName("child-2").getId()));
+    assertThat(migration.updateParentIds(treeId), is(0));
+  }
+
+  @Test
+  public void givenTreesWithoutParentIds_whenUpdateParentIdsOfAllTrees_thenFindParentAndChildrenOK()
+      throws SQLException {
+    var treeId1 = importer.importTree(complexTree3("1-").iterator());
+    var treeId2 = importer.importTree(complexTree3("2-").iterator());
+    removeParentIds();
+
+    migration.setBatchSize(4);
+    var updated = migration.updateParentIds();
+
+    assertThat(updated, is(12));
+    assertThat(treeRepo.findChildren(treeRepo.findTreeRoot(treeId1)),
+        contains(treeRepo.findByName("1-child-1"), treeRepo.findByName("1-child-2")));
+    assertThat(treeRepo.findChildren(treeRepo.findTreeRoot(treeId2)),
+        contains(treeRepo.findByName("2-child-1"), treeRepo.findByName("2-child-2")));
+    assertThat(treeRepo.findParent(treeRepo.findByName("2-subSubChild-1")).get(),
+        is(treeRepo.findByName("2-subChild-1")));
+    assertThat(migration.updateParentIds(), is(0));
+  }
+}
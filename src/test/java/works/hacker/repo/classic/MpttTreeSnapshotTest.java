@@ -0,0 +1,141 @@
+package works.hacker.repo.classic;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.snapshot.TreeSnapshot;
+import works.hacker.mptt.snapshot.TreeSnapshotWriter;
+
+import javax.annotation.Resource;
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@Transactional
+@DirtiesContext
+public class MpttTreeSnapshotTest {
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  protected TreeUtils<MpttNode> utils;
+
+  protected TreeSnapshotWriter<MpttNode> writer;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(MpttNode.class);
+    utils = new TreeUtils<>(treeRepo);
+    writer = new TreeSnapshotWriter<>(treeRepo);
+  }
+
+  protected TreeSnapshot writeAndOpen(MpttNode node) throws IOException {
+    var file = folder.newFile().toPath();
+    writer.write(node, file);
+    return TreeSnapshot.open(file);
+  }
+
+  protected List<Long> ids(List<TreeSnapshot.Node> nodes) {
+    return nodes.stream().map(TreeSnapshot.Node::getId).collect(Collectors.toList());
+  }
+
+  protected List<Long> ids(MpttNode... nodes) {
+    return Stream.of(nodes).map(MpttNode::getId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void givenComplexTree3_whenSnapshot_thenSameAsRepository() throws IOException {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var snapshot = writeAndOpen(tree.root);
+
+    assertThat(snapshot.size(), is(7));
+    assertThat(snapshot.getTreeId(), is(tree.root.getTreeId()));
+
+    var root = snapshot.getRoot();
+    assertThat(root.getId(), is(tree.root.getId()));
+    assertThat(root.getName(), is("root"));
+    assertThat(root.getDepth(), is(0L));
+
+    var child1 = snapshot.findById(tree.child1.getId()).get();
+    var subSubChild1 = snapshot.findById(tree.subSubChild1.getId()).get();
+    var lastSubChild = snapshot.findById(tree.lastSubChild.getId()).get();
+
+    assertThat(ids(snapshot.findChildren(root)), is(ids(tree.child1, tree.child2)));
+    assertThat(ids(snapshot.findChildren(child1)), is(ids(tree.subChild1, tree.subChild2)));
+    assertThat(snapshot.findChildren(subSubChild1), is(empty()));
+
+    assertThat(ids(snapshot.findSubTree(root)), is(ids(treeRepo.findSubTree(tree.root).toArray(MpttNode[]::new))));
+    assertThat(ids(snapshot.findSubTree(child1)),
+        is(ids(tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2)));
+
+    assertThat(ids(snapshot.findAncestors(subSubChild1)), is(ids(tree.root, tree.child1, tree.subChild1)));
+    assertThat(snapshot.findAncestors(root), is(empty()));
+
+    assertThat(snapshot.findParent(lastSubChild).get().getName(), is("child-2"));
+    assertThat(snapshot.findParent(root), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenSubTree_whenSnapshot_thenOnlySubTree() throws IOException {
+    var tree = new MpttNodeRepoTest.ComplexTree3<>(treeRepo, utils);
+    var snapshot = writeAndOpen(tree.child2);
+
+    assertThat(snapshot.size(), is(2));
+    assertThat(snapshot.getRoot().getName(), is("child-2"));
+    assertThat(snapshot.findParent(snapshot.getRoot()), is(Optional.empty()));
+    assertThat(snapshot.findById(tree.root.getId()), is(Optional.empty()));
+    assertThat(ids(snapshot.findChildren(snapshot.getRoot())), is(ids(tree.lastSubChild)));
+  }
+
+  @Test
+  public void givenManyChildren_whenFindById_thenFound() throws Exception {
+    var tree = new MpttNodeRepoTest.TreeWithNoChildren<>(treeRepo, utils);
+    for (int i = 0; i < 100; i++) {
+      var child = new MpttNode(String.format("child-ünïcode-%d", i));
+      treeRepo.addChild(tree.root, child);
+    }
+    var snapshot = writeAndOpen(tree.root);
+
+    for (var node : treeRepo.findSubTree(tree.root)) {
+      var actual = snapshot.findById(node.getId()).get();
+      assertThat(actual.getName(), is(node.getName()));
+      assertThat(actual.getDepth(), is(node.getDepth()));
+    }
+    assertThat(snapshot.findChildren(snapshot.getRoot()).size(), is(100));
+  }
+
+  @Test
+  public void givenNoSnapshotFile_whenOpen_thenError() throws IOException {
+    var file = folder.newFile().toPath();
+    Files.write(file, new byte[64]);
+
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("Not a tree snapshot");
+    TreeSnapshot.open(file);
+  }
+}
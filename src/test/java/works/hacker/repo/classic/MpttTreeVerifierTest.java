@@ -0,0 +1,156 @@
+package works.hacker.repo.classic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.classic.MpttNode;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.TreeVerifier;
+import works.hacker.mptt.TreeVerifier.Violation;
+import works.hacker.mptt.classic.MpttTreeImporter;
+import works.hacker.mptt.classic.MpttTreeVerifier;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The trees are corrupted via JDBC, which commits on a connection of its own, so the test is not transactional
+ * and cleans up after itself.
+ */
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class MpttTreeVerifierTest {
+  @Resource
+  MpttNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected TreeVerifier verifier;
+
+  protected Long treeId;
+
+  @Before
+  public void init() throws SQLException {
+    treeRepo.setEntityClass(MpttNode.class);
+    verifier = new MpttTreeVerifier(dataSource, new TreeTable("MpttNode"));
+    treeId = new MpttTreeImporter(dataSource, new TreeTable("MpttNode")).importTree(List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "2", "subChild-1"),
+        new Record("4", "3", "subSubChild-1"),
+        new Record("5", "2", "subChild-2"),
+        new Record("6", "1", "child-2"),
+        new Record("7", "6", "lastSubChild")).iterator());
+  }
+
+  @After
+  public void cleanup() {
+    treeRepo.deleteAll();
+  }
+
+  @Test
+  public void givenComplexTree3_whenVerify_thenValid() throws SQLException {
+    var report = verifier.verify(treeId);
+
+    assertThat(report.isValid(), is(true));
+    assertThat(report.getNodes(), is(7L));
+    assertThat(report.getViolations(), is(empty()));
+  }
+
+  @Test
+  public void givenTreeAfterAddAndRemove_whenVerify_thenValid() throws Exception {
+    treeRepo.addChild(treeRepo.findByName("subChild-1"), new MpttNode("added"));
+    treeRepo.removeChild(treeRepo.findByName("root"), treeRepo.findByName("child-1"));
+
+    var report = verifier.verify(treeId);
+
+    assertThat(report.getViolations(), is(empty()));
+    assertThat(report.getNodes(), is(3L));
+  }
+
+  @Test
+  public void givenWrongDepth_whenVerify_thenViolation() throws SQLException {
+    update("UPDATE MpttNode SET depth = 3 WHERE name = 'subChild-2'");
+
+    var report = verifier.verify(treeId);
+
+    assertThat(getMessages(report.getViolations()), contains("Depth 3 instead of 2"));
+    assertThat(report.getViolations().get(0).getNodeId(), is(treeRepo.findByName("subChild-2").getId()));
+  }
+
+  @Test
+  public void givenWrongParentId_whenVerify_thenViolation() throws SQLException {
+    var child1 = treeRepo.findByName("child-1");
+    var child2 = treeRepo.findByName("child-2");
+    update(String.format("UPDATE MpttNode SET parentId = %d WHERE name = 'lastSubChild'", child1.getId()));
+
+    var report = verifier.verify(treeId);
+
+    assertThat(getMessages(report.getViolations()),
+        contains(String.format("parentId %d instead of %d", child1.getId(), child2.getId())));
+  }
+
+  @Test
+  public void givenGap_whenVerify_thenViolation() throws SQLException {
+    update("UPDATE MpttNode SET rgt = 15 WHERE name = 'root'");
+
+    var report = verifier.verify(treeId);
+
+    assertThat(getMessages(report.getViolations()), contains("rgt 15 instead of 14"));
+  }
+
+  @Test
+  public void givenOverlappingIntervals_whenVerify_thenViolations() throws SQLException {
+    update("UPDATE MpttNode SET rgt = 14 WHERE name = 'lastSubChild'");
+
+    var report = verifier.verify(treeId);
+
+    assertThat(report.isValid(), is(false));
+    assertThat(getMessages(report.getViolations()), hasItem(
+        String.format("Interval overlaps the interval of node %d", treeRepo.findByName("child-2").getId())));
+  }
+
+  @Test
+  public void givenMaxViolations_whenVerify_thenViolationsLimited() throws SQLException {
+    update("UPDATE MpttNode SET depth = 5 WHERE name <> 'root'");
+    verifier.setMaxViolations(2);
+
+    var report = verifier.verify(treeId);
+
+    assertThat(report.getViolations().size(), is(2));
+    assertThat(report.getViolationCount(), is(6L));
+  }
+
+  @Test
+  public void givenUnknownTree_whenVerify_thenViolation() throws SQLException {
+    var report = verifier.verify(treeId + 1);
+
+    assertThat(getMessages(report.getViolations()), contains("No nodes in tree"));
+  }
+
+  protected void update(String update) throws SQLException {
+    try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+      statement.executeUpdate(update);
+    }
+  }
+
+  protected List<String> getMessages(List<Violation> violations) {
+    return violations.stream().map(Violation::getMessage).collect(Collectors.toList());
+  }
+}
@@ -14,6 +14,7 @@ import org.springframework.test.context.support.AnnotationConfigContextLoader;
 import works.hacker.config.TreesJpaConfig;
 import works.hacker.model.dyadic.DyadicNode;
 import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeNodeView;
 import works.hacker.mptt.TreeRepository;
 import works.hacker.mptt.TreeUtils;
 import works.hacker.mptt.classic.MpttRepository;
@@ -22,7 +23,12 @@ import works.hacker.mptt.dyadic.DyadicEntity;
 import javax.annotation.Resource;
 import javax.transaction.Transactional;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -504,6 +510,64 @@ public class DyadicNodeRepoTest {
         containsInRelativeOrder(tree.root, tree.child1, tree.subChild1));
   }
 
+  @Test
+  public void givenComplexTree3_whenFindAncestorsOfManyNodes_thenSameAsOneByOne() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    var nodes = List.of(tree.subSubChild1, tree.root, tree.lastSubChild, tree.subChild2);
+
+    var actual = treeRepo.findAncestors(nodes);
+
+    assertThat(actual.keySet(), contains(tree.subSubChild1, tree.root, tree.lastSubChild, tree.subChild2));
+    assertThat(actual.get(tree.subSubChild1), contains(tree.root, tree.child1, tree.subChild1));
+    assertThat(actual.get(tree.root), is(empty()));
+    assertThat(actual.get(tree.lastSubChild), contains(tree.root, tree.child2));
+    assertThat(actual.get(tree.subChild2), contains(tree.root, tree.child1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindChildrenOfManyNodes_thenSameAsOneByOne() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    var nodes = List.of(tree.child1, tree.root, tree.subSubChild1, tree.child2);
+
+    var actual = treeRepo.findChildren(nodes);
+
+    assertThat(actual.keySet(), contains(tree.child1, tree.root, tree.subSubChild1, tree.child2));
+    assertThat(actual.get(tree.child1), contains(tree.subChild1, tree.subChild2));
+    assertThat(actual.get(tree.root), contains(tree.child1, tree.child2));
+    assertThat(actual.get(tree.subSubChild1), is(empty()));
+    assertThat(actual.get(tree.child2), contains(tree.lastSubChild));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTreesOfManyNodes_thenSameAsOneByOne() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    var nodes = List.of(tree.child1, tree.lastSubChild, tree.root);
+
+    var actual = treeRepo.findSubTrees(nodes);
+
+    assertThat(actual.get(tree.child1), contains(tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2));
+    assertThat(actual.get(tree.lastSubChild), contains(tree.lastSubChild));
+    assertThat(actual.get(tree.root), is(treeRepo.findSubTree(tree.root)));
+  }
+
+  @Test
+  public void givenTwoTrees_whenFindChildrenOfManyNodes_thenNotMixed() {
+    var tree1 = new TreeWithTwoChildren<>(treeRepo, utils);
+    var tree2 = new TreeWithOneChild<>(treeRepo, utils);
+
+    var actual = treeRepo.findChildren(List.of(tree1.root, tree2.root));
+
+    assertThat(actual.get(tree1.root), contains(tree1.child1, tree1.child2));
+    assertThat(actual.get(tree2.root), contains(tree2.child1));
+  }
+
+  @Test
+  public void givenNoNodes_whenFindManyNodes_thenEmptyMap() {
+    assertThat(treeRepo.findAncestors(List.<DyadicNode>of()).isEmpty(), is(true));
+    assertThat(treeRepo.findChildren(List.<DyadicNode>of()).isEmpty(), is(true));
+    assertThat(treeRepo.findSubTrees(List.<DyadicNode>of()).isEmpty(), is(true));
+  }
+
   @Test
   public void givenRoot_whenFindParentOfRoot_thenNull() throws TreeRepository.NodeAlreadyAttachedToTree {
     var root = new DyadicNode("root");
@@ -546,6 +610,247 @@ public class DyadicNodeRepoTest {
     assertThat(treeRepo.findParent(tree.lastSubChild).get(), is(tree.child2));
   }
 
+  @Test
+  public void givenComplexTree3_whenStreamSubTree_thenPreOrder() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    try (var subTree = treeRepo.streamSubTree(tree.root)) {
+      assertThat(subTree.collect(Collectors.toList()),
+          contains(tree.root, tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2, tree.child2,
+              tree.lastSubChild));
+    }
+  }
+
+  @Test
+  public void givenComplexTree3_whenAddChild_thenParentIdSet() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    assertThat(treeRepo.findByName(tree.root.getName()).getParentId(), is(nullValue()));
+    assertThat(treeRepo.findByName(tree.child1.getName()).getParentId(), is(tree.root.getId()));
+    assertThat(treeRepo.findByName(tree.child2.getName()).getParentId(), is(tree.root.getId()));
+    assertThat(treeRepo.findByName(tree.subChild1.getName()).getParentId(), is(tree.child1.getId()));
+    assertThat(treeRepo.findByName(tree.subChild2.getName()).getParentId(), is(tree.child1.getId()));
+    assertThat(treeRepo.findByName(tree.subSubChild1.getName()).getParentId(), is(tree.subChild1.getId()));
+    assertThat(treeRepo.findByName(tree.lastSubChild.getName()).getParentId(), is(tree.child2.getId()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenAddChildToLastSubChild_thenNestedInLastSubChild()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+
+    var child = new DyadicNode("lastSubSubChild");
+    treeRepo.addChild(tree.lastSubChild, child);
+
+    assertThat(child.getLftN(), is(1L));
+    assertThat(child.getLftD(), is(2L));
+    assertThat(child.getRgtN(), is(9L));
+    assertThat(child.getRgtD(), is(16L));
+
+    assertThat(treeRepo.findParent(child).get(), is(tree.lastSubChild));
+    assertThat(treeRepo.findChildren(tree.lastSubChild), contains(child));
+  }
+
+  @Test
+  public void givenMoreChildrenThanDoublePrecision_whenFind_thenExact()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils);
+
+    // the 54th child onwards has a right bound of 1 - 1/2^54, which is 1.0 as a double
+    var children = new ArrayList<DyadicNode>();
+    for (int i = 0; i < 56; i++) {
+      var child = new DyadicNode(String.format("child-%d", i));
+      treeRepo.addChild(tree.root, child);
+      children.add(child);
+    }
+
+    assertThat(treeRepo.findChildren(tree.root), is(children));
+    for (var child : children) {
+      assertThat(treeRepo.findParent(child).get(), is(tree.root));
+      assertThat(treeRepo.findAncestors(child), contains(tree.root));
+      assertThat(treeRepo.findSubTree(child), contains(child));
+    }
+  }
+
+  @Test
+  public void givenManyTrees_whenFindTreeRoots_thenOrderedByTreeId() {
+    var tree1 = new ComplexTree3<>(treeRepo, utils);
+    var tree2 = new TreeWithTwoChildren<>(treeRepo, utils);
+    var tree3 = new TreeWithNoChildren<>(treeRepo, utils);
+
+    var expected = new TreeMap<>(Map.of(tree1.treeId, tree1.root, tree3.treeId, tree3.root));
+    assertThat(treeRepo.findTreeRoots(List.of(tree3.treeId, tree1.treeId, 42L)),
+        is(new ArrayList<>(expected.values())));
+    assertThat(treeRepo.findTreeRoots(List.of()), is(empty()));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindAllRoots_thenPagedByTreeId() {
+    var tree1 = new ComplexTree3<>(treeRepo, utils);
+    var tree2 = new TreeWithTwoChildren<>(treeRepo, utils);
+    var tree3 = new TreeWithNoChildren<>(treeRepo, utils);
+    var roots = new ArrayList<>(
+        new TreeMap<>(Map.of(tree1.treeId, tree1.root, tree2.treeId, tree2.root, tree3.treeId, tree3.root))
+            .values());
+
+    var page1 = treeRepo.findAllRoots(null, 2);
+    assertThat(page1, is(roots.subList(0, 2)));
+    var page2 = treeRepo.findAllRoots(page1.get(1).getTreeId(), 2);
+    assertThat(page2, is(roots.subList(2, 3)));
+    assertThat(treeRepo.findAllRoots(page2.get(0).getTreeId(), 2), is(empty()));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindByDepth_thenOrderedByTreeIdAndLeftToRight() {
+    var tree1 = new ComplexTree3<>(treeRepo, utils);
+    var tree2 = new TreeWithTwoChildren<>(treeRepo, utils);
+    var tree3 = new TreeWithNoChildren<>(treeRepo, utils);
+
+    var expected = tree1.treeId < tree2.treeId ?
+        List.of(tree1.child1, tree1.child2, tree2.child1, tree2.child2) :
+        List.of(tree2.child1, tree2.child2, tree1.child1, tree1.child2);
+    assertThat(treeRepo.findByDepth(1), is(expected));
+    assertThat(treeRepo.findByDepth(2, tree1.treeId), contains(tree1.subChild1, tree1.subChild2, tree1.lastSubChild));
+    assertThat(treeRepo.findByDepth(1, tree2.treeId, tree3.treeId), contains(tree2.child1, tree2.child2));
+    assertThat(treeRepo.findByDepth(0, tree3.treeId), contains(tree3.root));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindProjected_thenViewsOfNodes() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findChildrenProjected(tree.child1), is(TreeNodeView.of(treeRepo.findChildren(tree.child1))));
+    assertThat(treeRepo.findSubTreeProjected(tree.root), is(TreeNodeView.of(treeRepo.findSubTree(tree.root))));
+    assertThat(treeRepo.findAncestorsProjected(tree.subSubChild1),
+        is(TreeNodeView.of(treeRepo.findAncestors(tree.subSubChild1))));
+    assertThat(treeRepo.findAncestorsProjected(tree.root), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTreeProjected_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+
+    var actual = treeRepo.findSubTreeProjected(tree.child1);
+
+    assertThat(actual.stream().map(TreeNodeView::getName).collect(Collectors.toList()),
+        contains("child-1", "subChild-1", "subSubChild-1", "subChild-2"));
+    assertThat(actual.get(0).getId(), is(tree.child1.getId()));
+    assertThat(actual.get(0).getParentId(), is(tree.root.getId()));
+    assertThat(actual.get(2).getDepth(), is(3L));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSubTreeWithMaxDepth_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findSubTree(tree.root, 0), contains(tree.root));
+    assertThat(treeRepo.findSubTree(tree.root, 1), contains(tree.root, tree.child1, tree.child2));
+    assertThat(treeRepo.findSubTree(tree.root, 2),
+        contains(tree.root, tree.child1, tree.subChild1, tree.subChild2, tree.child2, tree.lastSubChild));
+    assertThat(treeRepo.findSubTree(tree.child1, 5), is(treeRepo.findSubTree(tree.child1)));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindDescendantsAtDepth_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findDescendantsAtDepth(tree.root, 1), is(treeRepo.findChildren(tree.root)));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.root, 2),
+        contains(tree.subChild1, tree.subChild2, tree.lastSubChild));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.child1, 2), contains(tree.subSubChild1));
+    assertThat(treeRepo.findDescendantsAtDepth(tree.child2, 2), is(empty()));
+  }
+
+  @Test
+  public void givenNegativeMaxDepth_whenFindSubTree_thenIllegalArgumentException() {
+    var tree = new TreeWithOneChild<>(treeRepo, utils);
+
+    exceptionRule.expect(IllegalArgumentException.class);
+    exceptionRule.expectMessage("Negative max depth: -1");
+    treeRepo.findSubTree(tree.root, -1);
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindSiblings_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+
+    assertThat(treeRepo.findNextSibling(tree.child1), is(Optional.of(tree.child2)));
+    assertThat(treeRepo.findNextSibling(tree.child2), is(Optional.empty()));
+    assertThat(treeRepo.findPreviousSibling(tree.subChild2), is(Optional.of(tree.subChild1)));
+    assertThat(treeRepo.findPreviousSibling(tree.subChild1), is(Optional.empty()));
+    assertThat(treeRepo.findNextSibling(tree.root), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenInsertBeforeFirstChild_thenSiblingsMoved() throws Exception {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    var inserted = new DyadicNode("inserted");
+
+    treeRepo.insertBefore(tree.child1, inserted);
+
+    // @formatter:off
+    var expected = String.format(
+        ".\n" +
+        "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+        "    ├── inserted (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+        "    ├── child-1 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]\n" +
+        "    │   ├── subChild-1 (id: %d) [treeId: %d | lft: 1/2 | rgt: 5/8]\n" +
+        "    │   │   └── subSubChild-1 (id: %d) [treeId: %d | lft: 1/2 | rgt: 9/16]\n" +
+        "    │   └── subChild-2 (id: %d) [treeId: %d | lft: 5/8 | rgt: 11/16]\n" +
+        "    └── child-2 (id: %d) [treeId: %d | lft: 3/4 | rgt: 7/8]\n" +
+        "        └── lastSubChild (id: %d) [treeId: %d | lft: 3/4 | rgt: 13/16]",
+        tree.root.getId(), tree.treeId,
+        inserted.getId(), tree.treeId,
+        tree.child1.getId(), tree.treeId,
+        tree.subChild1.getId(), tree.treeId,
+        tree.subSubChild1.getId(), tree.treeId,
+        tree.subChild2.getId(), tree.treeId,
+        tree.child2.getId(), tree.treeId,
+        tree.lastSubChild.getId(), tree.treeId);
+    // @formatter:on
+    assertThat(utils.printTree(tree.root), is(expected));
+    assertThat(treeRepo.findSubTree(tree.child1), contains(tree.child1, tree.subChild1, tree.subSubChild1,
+        tree.subChild2));
+  }
+
+  @Test
+  public void givenComplexTree3_whenInsertAfter_thenFollowingSiblingMoved() throws Exception {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    var inserted = new DyadicNode("inserted");
+
+    treeRepo.insertAfter(tree.subChild1, inserted);
+    treeRepo.addChild(tree.child1, new DyadicNode("added"));
+
+    assertThat(treeRepo.findChildren(tree.child1).stream().map(DyadicNode::getName).collect(Collectors.toList()),
+        contains("subChild-1", "inserted", "subChild-2", "added"));
+    assertThat(inserted.getLftN(), is(1L));
+    assertThat(inserted.getLftD(), is(4L));
+    assertThat(tree.subChild2.getLftN(), is(3L));
+    assertThat(tree.subChild2.getLftD(), is(8L));
+    assertThat(tree.subChild2.getRgtN(), is(7L));
+    assertThat(tree.subChild2.getRgtD(), is(16L));
+  }
+
+  @Test
+  public void givenGapLeftByRemovedChild_whenInsertBefore_thenNothingMoved() throws Exception {
+    var tree = new ComplexTree3<>(treeRepo, utils);
+    treeRepo.removeChild(tree.child1, tree.subChild1);
+    var inserted = new DyadicNode("inserted");
+
+    treeRepo.insertBefore(tree.subChild2, inserted);
+
+    assertThat(treeRepo.findChildren(tree.child1), contains(inserted, tree.subChild2));
+    assertThat(tree.subChild2.getLftN(), is(1L));
+    assertThat(tree.subChild2.getLftD(), is(4L));
+  }
+
+  @Test
+  public void givenRoot_whenInsertAfter_thenNodeIsTreeRoot() throws Exception {
+    var tree = new TreeWithOneChild<>(treeRepo, utils);
+
+    exceptionRule.expect(TreeRepository.NodeIsTreeRoot.class);
+    exceptionRule.expectMessage("Root node can not have siblings");
+    treeRepo.insertAfter(tree.root, new DyadicNode("inserted"));
+  }
+
   @SuppressWarnings("rawtypes")
   static class TreeWithNoChildren<T extends TreeEntity> {
     public T root;
@@ -0,0 +1,152 @@
+package works.hacker.repo.dyadic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeImporter;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.dyadic.DyadicTreeImporter;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The importer commits on a connection of its own, so the test is not transactional and cleans up after itself.
+ */
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class DyadicTreeImporterTest {
+  @Resource
+  DyadicNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected TreeUtils<DyadicNode> utils;
+
+  protected TreeImporter<?> importer;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(DyadicNode.class);
+    utils = new TreeUtils<>(treeRepo);
+    importer = new DyadicTreeImporter(dataSource, new TreeTable("DyadicNode"));
+  }
+
+  @After
+  public void cleanup() {
+    treeRepo.deleteAll();
+  }
+
+  protected List<Record> complexTree3() {
+    return List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "2", "subChild-1"),
+        new Record("4", "3", "subSubChild-1"),
+        new Record("5", "2", "subChild-2"),
+        new Record("6", "1", "child-2"),
+        new Record("7", "6", "lastSubChild"));
+  }
+
+  @Test
+  public void givenComplexTree3_whenImportTree_thenSameAsAddChild() throws SQLException {
+    var treeId = importer.importTree(complexTree3().iterator());
+
+    var root = treeRepo.findTreeRoot(treeId);
+    // @formatter:off
+    var expected = String.format(
+        ".\n" +
+        "└── root (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/1]\n" +
+        "    ├── child-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/2]\n" +
+        "    │   ├── subChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/4]\n" +
+        "    │   │   └── subSubChild-1 (id: %d) [treeId: %d | lft: 0/1 | rgt: 1/8]\n" +
+        "    │   └── subChild-2 (id: %d) [treeId: %d | lft: 1/4 | rgt: 3/8]\n" +
+        "    └── child-2 (id: %d) [treeId: %d | lft: 1/2 | rgt: 3/4]\n" +
+        "        └── lastSubChild (id: %d) [treeId: %d | lft: 1/2 | rgt: 5/8]",
+        root.getId(), treeId,
+        treeRepo.findByName("child-1").getId(), treeId,
+        treeRepo.findByName("subChild-1").getId(), treeId,
+        treeRepo.findByName("subSubChild-1").getId(), treeId,
+        treeRepo.findByName("subChild-2").getId(), treeId,
+        treeRepo.findByName("child-2").getId(), treeId,
+        treeRepo.findByName("lastSubChild").getId(), treeId);
+    // @formatter:on
+    assertThat(utils.printTree(root), is(expected));
+  }
+
+  @Test
+  public void givenComplexTree3_whenImportTree_thenParentIdsSet() throws SQLException {
+    var treeId = importer.importTree(complexTree3().iterator());
+
+    var root = treeRepo.findTreeRoot(treeId);
+    var child1 = treeRepo.findByName("child-1");
+    var subChild1 = treeRepo.findByName("subChild-1");
+    assertThat(root.getParentId(), is(nullValue()));
+    assertThat(child1.getParentId(), is(root.getId()));
+    assertThat(subChild1.getParentId(), is(child1.getId()));
+    assertThat(treeRepo.findByName("subSubChild-1").getParentId(), is(subChild1.getId()));
+    assertThat(treeRepo.findByName("subChild-2").getParentId(), is(child1.getId()));
+    assertThat(treeRepo.findByName("lastSubChild").getParentId(),
+        is(treeRepo.findByName("child-2").getId()));
+  }
+
+  @Test
+  public void givenImportedTree_whenAddChild_thenOK() throws Exception {
+    var treeId = importer.importTree(complexTree3().iterator());
+
+    var child2 = treeRepo.findByName("child-2");
+    var newChild = new DyadicNode("newChild");
+    treeRepo.addChild(child2, newChild);
+
+    assertThat(newChild.getLftN(), is(5L));
+    assertThat(newChild.getLftD(), is(8L));
+    assertThat(newChild.getRgtN(), is(11L));
+    assertThat(newChild.getRgtD(), is(16L));
+    assertThat(treeRepo.findChildren(treeRepo.findByName("child-2")),
+        contains(treeRepo.findByName("lastSubChild"), treeRepo.findByName("newChild")));
+  }
+
+  @Test
+  public void givenManyChildren_whenImportTree_thenSameAsAddChild() throws Exception {
+    var records = new ArrayList<Record>();
+    records.add(new Record("0", null, "root"));
+    for (int i = 1; i <= 56; i++) {
+      records.add(new Record(String.valueOf(i), "0", String.format("child-%d", i)));
+    }
+    var treeId = importer.importTree(records.iterator());
+
+    var root = treeRepo.findTreeRoot(treeId);
+    var expected = new DyadicNode("expected");
+    var repoTree = treeRepo.startTree(expected);
+    for (int i = 1; i <= 56; i++) {
+      treeRepo.addChild(expected, new DyadicNode(String.format("expected-%d", i)));
+    }
+
+    var actualChildren = treeRepo.findChildren(root);
+    var expectedChildren = treeRepo.findChildren(treeRepo.findTreeRoot(repoTree));
+    assertThat(actualChildren.size(), is(56));
+    for (int i = 0; i < 56; i++) {
+      assertThat(actualChildren.get(i).getLftScaled(), is(expectedChildren.get(i).getLftScaled()));
+      assertThat(actualChildren.get(i).getRgtScaled(), is(expectedChildren.get(i).getRgtScaled()));
+      assertThat(actualChildren.get(i).getName(), is(String.format("child-%d", i + 1)));
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package works.hacker.repo.dyadic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.dyadic.DyadicTreeImporter;
+import works.hacker.mptt.dyadic.DyadicTreeMigration;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The migration commits on a connection of its own, so the test is not transactional and cleans up after itself.
+ */
+@SuppressWarnings("OptionalGetWithoutIsPresent")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class DyadicTreeMigrationTest {
+  @Resource
+  DyadicNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected DyadicTreeMigration migration;
+
+  protected Long treeId;
+
+  @Before
+  public void init() throws SQLException {
+    treeRepo.setEntityClass(DyadicNode.class);
+    var table = new TreeTable("DyadicNode");
+    migration = new DyadicTreeMigration(dataSource, table);
+    treeId = new DyadicTreeImporter(dataSource, table).importTree(List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "2", "subChild-1"),
+        new Record("4", "1", "child-2")).iterator());
+  }
+
+  @After
+  public void cleanup() {
+    treeRepo.deleteAll();
+  }
+
+  @Test
+  public void givenTreeWithoutScaledBounds_whenUpdateScaledBounds_thenFindersOK() throws SQLException {
+    var expected = treeRepo.findByName("subChild-1");
+    // as the columns added to an existing table
+    try (var connection = dataSource.getConnection();
+         var statement = connection.createStatement()) {
+      statement.executeUpdate("UPDATE DyadicNode SET lftScaled = 0, rgtScaled = 0");
+    }
+    // every node overlaps the empty intervals
+    assertThat(treeRepo.findSubTree(treeRepo.findByName("child-2")), hasSize(4));
+
+    var updated = migration.updateScaledBounds();
+
+    assertThat(updated, is(4));
+    var actual = treeRepo.findByName("subChild-1");
+    assertThat(actual.getLftScaled(), is(expected.getLftScaled()));
+    assertThat(actual.getRgtScaled(), is(expected.getRgtScaled()));
+    assertThat(treeRepo.findSubTree(treeRepo.findByName("child-2")), contains(treeRepo.findByName("child-2")));
+    assertThat(treeRepo.findChildren(treeRepo.findTreeRoot(treeId)),
+        contains(treeRepo.findByName("child-1"), treeRepo.findByName("child-2")));
+    assertThat(treeRepo.findAncestors(actual),
+        contains(treeRepo.findTreeRoot(treeId), treeRepo.findByName("child-1")));
+    assertThat(migration.updateScaledBounds(), is(0));
+  }
+
+  @Test
+  public void givenMigratedTree_whenUpdateScaledBounds_thenNothingUpdated() throws SQLException {
+    assertThat(migration.updateScaledBounds(), is(0));
+  }
+
+  @Test
+  public void givenTreeWithoutParentIds_whenUpdateParentIds_thenFindParentAndChildrenOK() throws SQLException {
+    // as created before the parentId column was introduced
+    try (var connection = dataSource.getConnection();
+         var statement = connection.createStatement()) {
+      statement.executeUpdate("UPDATE DyadicNode SET parentId = NULL");
+    }
+    var child1 = treeRepo.findByName("child-1");
+    assertThat(treeRepo.findParent(child1).isPresent(), is(false));
+
+    var updated = migration.updateParentIds(treeId);
+
+    assertThat(updated, is(3));
+    child1 = treeRepo.findByName("child-1");
+    var root = treeRepo.findTreeRoot(treeId);
+    assertThat(root.getParentId(), is(nullValue()));
+    assertThat(treeRepo.findParent(child1).get().getId(), is(root.getId()));
+    assertThat(treeRepo.findChildren(root), contains(child1, treeRepo.findByName("child-2")));
+    assertThat(treeRepo.findChildren(child1), contains(treeRepo.findByName("subChild-1")));
+    assertThat(migration.updateParentIds(), is(0));
+  }
+}
@@ -0,0 +1,118 @@
+package works.hacker.repo.dyadic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.dyadic.DyadicNode;
+import works.hacker.mptt.TreeImporter.Record;
+import works.hacker.mptt.TreeTable;
+import works.hacker.mptt.TreeVerifier;
+import works.hacker.mptt.TreeVerifier.Violation;
+import works.hacker.mptt.dyadic.DyadicEntity;
+import works.hacker.mptt.dyadic.DyadicTreeImporter;
+import works.hacker.mptt.dyadic.DyadicTreeVerifier;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * The trees are corrupted via JDBC, which commits on a connection of its own, so the test is not transactional
+ * and cleans up after itself.
+ */
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@DirtiesContext
+public class DyadicTreeVerifierTest {
+  @Resource
+  DyadicNodeRepository treeRepo;
+
+  @Resource
+  DataSource dataSource;
+
+  protected TreeVerifier verifier;
+
+  protected Long treeId;
+
+  @Before
+  public void init() throws SQLException {
+    treeRepo.setEntityClass(DyadicNode.class);
+    verifier = new DyadicTreeVerifier(dataSource, new TreeTable("DyadicNode"));
+    treeId = new DyadicTreeImporter(dataSource, new TreeTable("DyadicNode")).importTree(List.of(
+        new Record("1", null, "root"),
+        new Record("2", "1", "child-1"),
+        new Record("3", "2", "subChild-1"),
+        new Record("4", "3", "subSubChild-1"),
+        new Record("5", "2", "subChild-2"),
+        new Record("6", "1", "child-2"),
+        new Record("7", "6", "lastSubChild")).iterator());
+  }
+
+  @After
+  public void cleanup() {
+    treeRepo.deleteAll();
+  }
+
+  @Test
+  public void givenComplexTree3_whenVerify_thenValid() throws SQLException {
+    var report = verifier.verify(treeId);
+
+    assertThat(report.isValid(), is(true));
+    assertThat(report.getNodes(), is(7L));
+  }
+
+  @Test
+  public void givenTreeAfterRemove_whenVerify_thenValid() throws Exception {
+    treeRepo.removeChild(treeRepo.findByName("child-1"), treeRepo.findByName("subChild-1"));
+
+    var report = verifier.verify(treeId);
+
+    assertThat(report.getViolations(), is(empty()));
+    assertThat(report.getNodes(), is(5L));
+  }
+
+  @Test
+  public void givenFractionNotMatchingScaledBound_whenVerify_thenViolation() throws SQLException {
+    update("UPDATE DyadicNode SET lftN = 3 WHERE name = 'subChild-2'");
+
+    var report = verifier.verify(treeId);
+
+    assertThat(getMessages(report.getViolations()), contains(
+        String.format("lft 3/4 not matching its scaled bound %d", DyadicEntity.toScaled(1, 4))));
+  }
+
+  @Test
+  public void givenOverlappingIntervals_whenVerify_thenViolations() throws SQLException {
+    // child-2 [3/8, 3/4] overlaps child-1 [0/1, 1/2]
+    update(String.format("UPDATE DyadicNode SET lftN = 3, lftD = 8, lftScaled = %d WHERE name = 'child-2'",
+        DyadicEntity.toScaled(3, 8)));
+
+    var report = verifier.verify(treeId);
+
+    assertThat(getMessages(report.getViolations()), hasItem(
+        String.format("Interval overlaps the interval of node %d", treeRepo.findByName("child-1").getId())));
+    assertThat(report.getViolations().get(0).getNodeId(), is(treeRepo.findByName("child-2").getId()));
+  }
+
+  protected void update(String update) throws SQLException {
+    try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+      statement.executeUpdate(update);
+    }
+  }
+
+  protected List<String> getMessages(List<Violation> violations) {
+    return violations.stream().map(Violation::getMessage).collect(Collectors.toList());
+  }
+}
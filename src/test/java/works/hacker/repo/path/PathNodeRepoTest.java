@@ -0,0 +1,672 @@
+package works.hacker.repo.path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.support.AnnotationConfigContextLoader;
+import works.hacker.config.TreesJpaConfig;
+import works.hacker.model.path.PathNode;
+import works.hacker.mptt.TreeEntity;
+import works.hacker.mptt.TreeRepository;
+import works.hacker.mptt.TreeUtils;
+import works.hacker.mptt.classic.MpttRepository;
+import works.hacker.repo.TreeFixtures.ComplexTree1;
+import works.hacker.repo.TreeFixtures.ComplexTree2;
+import works.hacker.repo.TreeFixtures.ComplexTree3;
+import works.hacker.repo.TreeFixtures.TreeWithChildAndSubChild;
+import works.hacker.repo.TreeFixtures.TreeWithNoChildren;
+import works.hacker.repo.TreeFixtures.TreeWithOneChild;
+import works.hacker.repo.TreeFixtures.TreeWithTwoChildren;
+
+import javax.annotation.Resource;
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SuppressWarnings("ALL")
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TreesJpaConfig.class}, loader = AnnotationConfigContextLoader.class)
+@Transactional
+@DirtiesContext
+public class PathNodeRepoTest {
+  private static final Map<String, String> BOUNDS = Map.of(
+      "root", "path: 0001",
+      "child-1", "path: 00010001",
+      "subChild-1", "path: 000100010001",
+      "subSubChild-1", "path: 0001000100010001",
+      "subChild-2", "path: 000100010002",
+      "child-2", "path: 00010002",
+      "lastSubChild", "path: 000100020001");
+
+  private final Logger LOG = LoggerFactory.getLogger(PathNodeRepoTest.class);
+
+  @Rule
+  public ExpectedException exceptionRule = ExpectedException.none();
+
+  @Resource
+  PathNodeRepository treeRepo;
+
+  protected TreeUtils<PathNode> utils;
+
+  @Before
+  public void init() {
+    treeRepo.setEntityClass(PathNode.class);
+    utils = new TreeUtils<>(treeRepo);
+  }
+
+  @Test
+  public void giveSaved_whenFindByName_thenOK() {
+    assertThat(treeRepo.count(), is(0L));
+
+    var expected = new PathNode("test-01");
+    treeRepo.save(expected);
+    assertThat(treeRepo.count(), is(1L));
+
+    var actual = treeRepo.findByName(expected.getName());
+    assertThat(actual.getId(), is(notNullValue()));
+    assertThat(actual.getName(), is(expected.getName()));
+  }
+
+  @Test
+  public void givenNoTree_whenConstructed_thenHasNoTreeId() {
+    var actual = new PathNode("test");
+    assertThat(actual.hasTreeId(), is(false));
+  }
+
+  @Test
+  public void givenNoTree_whenStartTree_thenOK() {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+
+    assertThat(treeRepo.count(), is(1L));
+
+    var actual = treeRepo.findByName(tree.root.getName());
+    assertThat(actual.getTreeId(), not(TreeEntity.NO_TREE_ID));
+    assertThat(actual.getTreeId(), is(tree.treeId));
+
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+
+    assertThat(actual.getDepth(), is(0L));
+    assertThat(actual.getPath(), is("0001"));
+  }
+
+  @Test
+  public void givenTree_whenStartTreeWithUsedRootNode_thenError()
+      throws TreeRepository.NodeAlreadyAttachedToTree {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+
+    exceptionRule.expect(MpttRepository.NodeAlreadyAttachedToTree.class);
+    exceptionRule.expectMessage(String.format("Node already has treeId set to %d", tree.treeId));
+    var root = treeRepo.findByName(tree.root.getName());
+    treeRepo.startTree(root);
+  }
+
+  @Test
+  public void givenTree_whenFindTreeRoot_thenOK() {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findTreeRoot(tree.treeId);
+    assertThat(actual, is(tree.root));
+  }
+
+  @Test
+  public void givenParentNodeNotAttachedToTree_whenAddChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeAlreadyAttachedToTree {
+    var parent = new PathNode("parent");
+    var child = new PathNode("child");
+
+    exceptionRule.expect(TreeRepository.NodeNotInTree.class);
+    exceptionRule.expectMessage(String.format("Parent node not attached to any tree: %s", parent));
+    treeRepo.addChild(parent, child);
+  }
+
+  @Test
+  public void givenChildIsTreeRoot_whenAddChild_thenError()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var parent = new PathNode("parent");
+    var child = new PathNode("child");
+
+    treeRepo.startTree(parent);
+    var treeId = treeRepo.startTree(child);
+
+    exceptionRule.expect(MpttRepository.NodeAlreadyAttachedToTree.class);
+    exceptionRule.expectMessage(String.format("Node already has treeId set to %d", treeId));
+    treeRepo.addChild(parent, child);
+  }
+
+
+  @Test
+  public void givenEmptyTree_whenFindYoungestChild_thenOptionalEmpty()
+      throws TreeRepository.NodeAlreadyAttachedToTree {
+    var root = new PathNode("root");
+    treeRepo.startTree(root);
+
+    var actual = treeRepo.findYoungestChild(root);
+    assertThat(actual, is(Optional.empty()));
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  @Test
+  public void givenEmptyTree_whenAddChild_thenOK()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var root = new PathNode("root");
+    treeRepo.startTree(root);
+
+    var child = new PathNode("child");
+    treeRepo.addChild(root, child);
+
+    assertThat(treeRepo.count(), is(2L));
+
+    var actualRoot = treeRepo.findByName("root");
+    var actualChild = treeRepo.findByName("child");
+
+    assertThat(actualRoot.getPath(), is("0001"));
+    assertThat(actualChild.getTreeId(), is(root.getTreeId()));
+    assertThat(actualChild.getPath(), is("00010001"));
+    assertThat(actualChild.getLft(), is(1L));
+    assertThat(actualChild.getRgt(), is(1L));
+
+    var youngestChild = treeRepo.findYoungestChild(actualRoot);
+    assertThat(youngestChild.get(), is(child));
+  }
+
+  @Test
+  public void givenTreeWithoutChildren_whenPrintTree_thenOK() {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+    assertThat(utils.printTree(tree.root), is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenFindChildren_thenContainsOneChild() {
+    var tree = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findChildren(tree.root);
+    assertThat(actual, containsInRelativeOrder(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithChild_whenPrintTree_thenOK() {
+    var tree = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenFindChildren_thenContainsTwoChildren() {
+    var tree = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findChildren(tree.root);
+    assertThat(actual, containsInRelativeOrder(tree.child1, tree.child2));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenPrintTree_thenOK() {
+    var tree = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenFindChildren_thenContainsOneChild() {
+    var tree = new TreeWithChildAndSubChild<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findChildren(tree.root);
+    assertThat(actual.size(), is(1));
+    assertThat(actual, containsInRelativeOrder(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenPrintTree_thenOK() {
+    var tree = new TreeWithChildAndSubChild<>(treeRepo, utils, BOUNDS);
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree1_whenPrintTree_thenOK() {
+    var tree = new ComplexTree1<>(treeRepo, utils, BOUNDS);
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree1_whenFindChildren_thenContainsTwoChildren() {
+    var tree = new ComplexTree1<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findChildren(tree.root);
+    assertThat(actual.size(), is(2));
+    assertThat(actual, containsInRelativeOrder(tree.child1, tree.child2));
+  }
+
+  @Test
+  public void givenComplexTree2_whenPrintTree_thenOK() {
+    var tree = new ComplexTree2<>(treeRepo, utils, BOUNDS);
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+  }
+
+  @Test
+  public void givenComplexTree2_whenFindChildren_thenOK() {
+    var tree = new ComplexTree2<>(treeRepo, utils, BOUNDS);
+
+    var actual1 = treeRepo.findChildren(tree.root);
+    assertThat(actual1.size(), is(2));
+    assertThat(actual1, containsInRelativeOrder(tree.child1, tree.child2));
+
+    var actual2 = treeRepo.findChildren(tree.child1);
+    assertThat(actual2.size(), is(1));
+    assertThat(actual2, contains(tree.subChild1));
+
+    var actual3 = treeRepo.findChildren(tree.subChild1);
+    assertThat(actual3.size(), is(1));
+    assertThat(actual3, contains(tree.subSubChild1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenPrintTree_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpected()));
+
+    var actualPartial = utils.printTree(tree.child1);
+    assertThat(actualPartial, is(tree.getExpectedPartial()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindChildren_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+
+    var actual1 = treeRepo.findChildren(tree.root);
+    assertThat(actual1.size(), is(2));
+    assertThat(actual1, containsInRelativeOrder(tree.child1, tree.child2));
+
+    var actual2 = treeRepo.findChildren(tree.child1);
+    assertThat(actual2.size(), is(2));
+    assertThat(actual2, containsInRelativeOrder(tree.subChild1, tree.subChild2));
+  }
+
+  @Test
+  public void givenParentNotAttachedToTree_whenRemoveChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var parent = new PathNode("parent");
+    var child = new PathNode("child");
+
+    exceptionRule.expect(MpttRepository.NodeNotInTree.class);
+    exceptionRule.expectMessage(String.format("Parent node not attached to any tree: %s", parent));
+    treeRepo.removeChild(parent, child);
+  }
+
+  @Test
+  public void givenParentAndChildInDifferentTrees_whenRemoveChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree1 = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+    var tree2 = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+
+    exceptionRule.expect(MpttRepository.NodeNotInTree.class);
+    exceptionRule
+        .expectMessage(
+            String.format("Nodes not in same tree - parent: %s; child %s", tree1.root, tree2.child1));
+    treeRepo.removeChild(tree1.root, tree2.child1);
+  }
+
+  @Test
+  public void givenParentAndChild_whenRemoveChildReverseParentAndChild_thenError()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+
+    exceptionRule.expect(MpttRepository.NodeNotChildOfParent.class);
+    treeRepo.removeChild(tree.child1, tree.root);
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    var removed = treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after\n%s", utils.printTree(tree.root)));
+
+    var actual = treeRepo.findByName(tree.root.getName());
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+
+    assertThat(treeRepo.findChildren(actual), is(emptyIterable()));
+
+    assertThat(treeRepo.count(), is(1L));
+
+    assertThat(removed.size(), is(1));
+    assertThat(removed, contains(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new TreeWithChildAndSubChild<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    var removed = treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    var actual = treeRepo.findByName(tree.root.getName());
+    assertThat(actual.getLft(), is(actual.getStartLft()));
+    assertThat(actual.getRgt(), is(actual.getStartRgt()));
+
+    assertThat(treeRepo.findChildren(actual), is(emptyIterable()));
+
+    assertThat(treeRepo.count(), is(1L));
+
+    assertThat(removed.size(), is(2));
+    assertThat(removed, contains(tree.child1, tree.subChild1));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenRemoveChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    var removed = treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    var actualChildren = treeRepo.findChildren(tree.root);
+    assertThat(actualChildren.size(), is(1));
+    assertThat(actualChildren, contains(tree.child2));
+
+    assertThat(treeRepo.count(), is(2L));
+
+    assertThat(removed.size(), is(1));
+    assertThat(removed, contains(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenRemoveChild_whenAddChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent,
+      TreeRepository.NodeAlreadyAttachedToTree {
+    var tree = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before remove:\n%s", utils.printTree(tree.root)));
+    treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after remove:\n%s", utils.printTree(tree.root)));
+
+    var newChild = new PathNode("newChild");
+    treeRepo.addChild(tree.root, newChild);
+
+    // @formatter:off
+    var expected = String.format(
+        ".\n" +
+        "└── root (id: %d) [treeId: %d | path: 0001]\n" +
+        "    ├── child-2 (id: %d) [treeId: %d | path: 00010002]\n" +
+        "    └── newChild (id: %d) [treeId: %d | path: 00010003]",
+        tree.root.getId(), tree.root.getTreeId(),
+        tree.child2.getId(), tree.child2.getTreeId(),
+        newChild.getId(),  newChild.getTreeId());
+    // @formatter:on
+    var actual = utils.printTree(tree.root);
+    LOG.debug(String.format("after add:\n%s", actual));
+
+    assertThat(actual, is(expected));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenRemoveSubChild_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new TreeWithChildAndSubChild<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    var removed = treeRepo.removeChild(tree.root, tree.subChild1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    var actualChildren = treeRepo.findChildren(tree.root);
+    assertThat(actualChildren.size(), is(1));
+    assertThat(actualChildren, contains(tree.child1));
+
+    assertThat(treeRepo.count(), is(2L));
+
+    assertThat(removed.size(), is(1));
+    assertThat(removed, contains(tree.subChild1));
+
+    assertThat(treeRepo.findChildren(tree.child1), is(empty()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild1_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    treeRepo.removeChild(tree.root, tree.child1);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpectedAfterChild1Removal()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenRemoveChild2_thenOK()
+      throws TreeRepository.NodeNotInTree, TreeRepository.NodeNotChildOfParent {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("before:\n%s", utils.printTree(tree.root)));
+    treeRepo.removeChild(tree.root, tree.child2);
+    LOG.debug(String.format("after:\n%s", utils.printTree(tree.root)));
+
+    var actual = utils.printTree(tree.root);
+    assertThat(actual, is(tree.getExpectedAfterChild2Removal()));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindTreeRoot_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+
+    LOG.debug(String.format("tree to search for root:\n%s", utils.printTree(tree.root)));
+
+    var actual = treeRepo.findTreeRoot(tree.treeId);
+    assertThat(actual, is(tree.root));
+  }
+
+  @Test
+  public void givenRoot_whenFindAncestorsOfRoot_thenEmptyList() {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findAncestors(tree.root);
+    assertThat(actual, is(empty()));
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenFindAncestorsOfChild_thenListOfRoot() {
+    var tree = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+    var actual = treeRepo.findAncestors(tree.child1);
+    assertThat(actual.size(), is(1));
+    assertThat(actual, contains(tree.root));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenFindAncestors_thenOK() {
+    var tree = new TreeWithChildAndSubChild<>(treeRepo, utils, BOUNDS);
+
+    var ancestorsOfRoot = treeRepo.findAncestors(tree.root);
+    assertThat(ancestorsOfRoot, is(empty()));
+
+    var ancestorsOfChild = treeRepo.findAncestors(tree.child1);
+    assertThat(ancestorsOfChild.size(), is(1));
+    assertThat(ancestorsOfChild, contains(tree.root));
+
+    var ancestorsOfSubChild = treeRepo.findAncestors(tree.subChild1);
+    assertThat(ancestorsOfSubChild.size(), is(2));
+    assertThat(ancestorsOfSubChild, containsInRelativeOrder(tree.root, tree.child1));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindAncestors_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+    assertThat(treeRepo.findAncestors(tree.subChild1), containsInRelativeOrder(tree.root, tree.child1));
+    assertThat(treeRepo.findAncestors(tree.subChild2), containsInRelativeOrder(tree.root, tree.child1));
+    assertThat(treeRepo.findAncestors(tree.subSubChild1),
+        containsInRelativeOrder(tree.root, tree.child1, tree.subChild1));
+  }
+
+  @Test
+  public void givenRoot_whenFindParentOfRoot_thenNull() throws TreeRepository.NodeAlreadyAttachedToTree {
+    var root = new PathNode("root");
+    treeRepo.startTree(root);
+    assertThat(treeRepo.findParent(root), is(Optional.empty()));
+  }
+
+  @Test
+  public void givenTreeWithOneChild_whenFindParentOfChild_thenRoot() {
+    var tree = new TreeWithOneChild<>(treeRepo, utils, BOUNDS);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+  }
+
+  @Test
+  public void givenTreeWithChildAndSubChild_whenFindParent_thenOK() {
+    var tree = new TreeWithChildAndSubChild<>(treeRepo, utils, BOUNDS);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.subChild1).get(), is(tree.child1));
+  }
+
+  @Test
+  public void givenTreeWithTwoChildren_whenFindParent_thenOK() {
+    var tree = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.child2).get(), is(tree.root));
+  }
+
+  @Test
+  public void givenComplexTree3_whenFindParent_thenOK() {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+    assertThat(treeRepo.findParent(tree.root), is(Optional.empty()));
+    assertThat(treeRepo.findParent(tree.child1).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.child2).get(), is(tree.root));
+    assertThat(treeRepo.findParent(tree.subChild1).get(), is(tree.child1));
+    assertThat(treeRepo.findParent(tree.subChild2).get(), is(tree.child1));
+    assertThat(treeRepo.findParent(tree.subSubChild1).get(), is(tree.subChild1));
+    assertThat(treeRepo.findParent(tree.lastSubChild).get(), is(tree.child2));
+  }
+
+  @Test
+  public void givenComplexTree3_whenStreamSubTree_thenPreOrder() {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+    try (var subTree = treeRepo.streamSubTree(tree.root)) {
+      assertThat(subTree.collect(Collectors.toList()),
+          contains(tree.root, tree.child1, tree.subChild1, tree.subSubChild1, tree.subChild2, tree.child2,
+              tree.lastSubChild));
+    }
+  }
+
+  @Test
+  public void givenComplexTree3_whenAddChildToLastSubChild_thenNestedInLastSubChild()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var tree = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+
+    var child = new PathNode("lastSubSubChild");
+    treeRepo.addChild(tree.lastSubChild, child);
+
+    assertThat(child.getPath(), is("0001000200010001"));
+
+    assertThat(treeRepo.findParent(child).get(), is(tree.lastSubChild));
+    assertThat(treeRepo.findChildren(tree.lastSubChild), contains(child));
+  }
+
+  @Test
+  public void givenManyChildren_whenFind_thenOK()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+
+    var children = new ArrayList<PathNode>();
+    for (int i = 0; i < 100; i++) {
+      var child = new PathNode(String.format("child-%d", i));
+      treeRepo.addChild(tree.root, child);
+      children.add(child);
+    }
+
+    // the ordinals are base 36 encoded, so the lexicographical order crosses from 0009 to 000a and 000z to 0010
+    assertThat(children.get(9).getPath(), is("0001000a"));
+    assertThat(children.get(35).getPath(), is("0001000z"));
+    assertThat(children.get(99).getPath(), is("0001002s"));
+
+    assertThat(treeRepo.findChildren(tree.root), is(children));
+    for (var child : children) {
+      assertThat(treeRepo.findParent(child).get(), is(tree.root));
+      assertThat(treeRepo.findAncestors(child), contains(tree.root));
+      assertThat(treeRepo.findSubTree(child), contains(child));
+    }
+  }
+
+  @Test
+  public void givenDeepTree_whenFindAncestors_thenOK()
+      throws TreeRepository.NodeAlreadyAttachedToTree, TreeRepository.NodeNotInTree {
+    var tree = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+
+    var path = new ArrayList<PathNode>();
+    path.add(tree.root);
+    for (int i = 0; i < 30; i++) {
+      var parent = path.get(path.size() - 1);
+      treeRepo.addChild(parent, new PathNode(String.format("older-%d", i)));
+      var child = new PathNode(String.format("younger-%d", i));
+      treeRepo.addChild(parent, child);
+      path.add(child);
+    }
+
+    var deepest = path.remove(path.size() - 1);
+    assertThat(treeRepo.findAncestors(deepest), is(path));
+    assertThat(treeRepo.findParent(deepest).get(), is(path.get(path.size() - 1)));
+    assertThat(treeRepo.findSubTree(path.get(29)).size(), is(3));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindTreeRoots_thenOrderedByTreeId() {
+    var tree1 = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+    var tree2 = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+    var tree3 = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+
+    var expected = new TreeMap<>(Map.of(tree1.treeId, tree1.root, tree3.treeId, tree3.root));
+    assertThat(treeRepo.findTreeRoots(List.of(tree3.treeId, tree1.treeId, 42L)),
+        is(new ArrayList<>(expected.values())));
+    assertThat(treeRepo.findTreeRoots(List.of()), is(empty()));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindAllRoots_thenPagedByTreeId() {
+    var tree1 = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+    var tree2 = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+    var tree3 = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+    var roots = new ArrayList<>(
+        new TreeMap<>(Map.of(tree1.treeId, tree1.root, tree2.treeId, tree2.root, tree3.treeId, tree3.root))
+            .values());
+
+    var page1 = treeRepo.findAllRoots(null, 2);
+    assertThat(page1, is(roots.subList(0, 2)));
+    var page2 = treeRepo.findAllRoots(page1.get(1).getTreeId(), 2);
+    assertThat(page2, is(roots.subList(2, 3)));
+    assertThat(treeRepo.findAllRoots(page2.get(0).getTreeId(), 2), is(empty()));
+  }
+
+  @Test
+  public void givenManyTrees_whenFindByDepth_thenOrderedByTreeIdAndLeftToRight() {
+    var tree1 = new ComplexTree3<>(treeRepo, utils, BOUNDS);
+    var tree2 = new TreeWithTwoChildren<>(treeRepo, utils, BOUNDS);
+    var tree3 = new TreeWithNoChildren<>(treeRepo, utils, BOUNDS);
+
+    var expected = tree1.treeId < tree2.treeId ?
+        List.of(tree1.child1, tree1.child2, tree2.child1, tree2.child2) :
+        List.of(tree2.child1, tree2.child2, tree1.child1, tree1.child2);
+    assertThat(treeRepo.findByDepth(1), is(expected));
+    assertThat(treeRepo.findByDepth(2, tree1.treeId), contains(tree1.subChild1, tree1.subChild2, tree1.lastSubChild));
+    assertThat(treeRepo.findByDepth(1, tree2.treeId, tree3.treeId), contains(tree2.child1, tree2.child2));
+    assertThat(treeRepo.findByDepth(0, tree3.treeId), contains(tree3.root));
+  }
+}